@@ -0,0 +1,196 @@
+package software.amazon.ec2.natgateway;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.CreateTagsRequest;
+import software.amazon.awssdk.services.ec2.model.CreateTagsResponse;
+import software.amazon.awssdk.services.ec2.model.DeleteTagsRequest;
+import software.amazon.awssdk.services.ec2.model.DeleteTagsResponse;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysResponse;
+import software.amazon.awssdk.services.ec2.model.NatGateway;
+import software.amazon.awssdk.services.ec2.model.Tag;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.Credentials;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+
+/**
+ * Measures the propagation of a stack-level tag change to a fleet of NAT Gateways, against an in-process EC2 stand-in
+ * that holds the tags of every NAT Gateway and answers each call after a fixed latency. The change is propagated by one
+ * Update Handler run per NAT Gateway, with a few runs in flight at once, and by a single BulkTagger apply. Every run
+ * starts from a fresh fleet and fails unless all NAT Gateways converged on the desired tags. The API calls of each run
+ * are printed.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BulkTagBenchmark {
+  private static final int NAT_GATEWAYS = 500;
+  private static final int CONCURRENT_UPDATES = 16;
+  private static final long CALL_LATENCY_MILLIS = 20;
+  private static final Map<String, String> PREVIOUS_TAGS = Collections.singletonMap("CostCenter", "1234");
+  private static final Map<String, String> DESIRED_TAGS = Collections.singletonMap("CostCenter", "5678");
+
+  private final LoggerProxy loggerProxy = new LoggerProxy();
+  private final Credentials credentials = new Credentials("accessKey", "secretKey", "token");
+  private ExecutorService callers;
+  private StandIn standIn;
+
+  @Setup
+  public void setup() {
+    callers = Executors.newFixedThreadPool(CONCURRENT_UPDATES);
+  }
+
+  @Setup(Level.Invocation)
+  public void newFleet() {
+    standIn = new StandIn();
+  }
+
+  @TearDown(Level.Invocation)
+  public void checkConverged() {
+    final long converged = standIn.tags.values().stream().filter(DESIRED_TAGS::equals).count();
+    if (converged != NAT_GATEWAYS) {
+      throw new IllegalStateException(String.format("%d of %d NAT Gateways converged", converged, NAT_GATEWAYS));
+    }
+    System.out.printf("%n%d API calls%n", standIn.calls.get());
+  }
+
+  @TearDown
+  public void tearDown() {
+    callers.shutdown();
+  }
+
+  @Benchmark
+  public int updateHandler() throws InterruptedException, ExecutionException {
+    final List<Future<ProgressEvent<ResourceModel, CallbackContext>>> futures = new ArrayList<>();
+    for (final String natGatewayId : standIn.tags.keySet()) {
+      futures.add(callers.submit(() -> {
+        final AmazonWebServicesClientProxy proxy =
+                new AmazonWebServicesClientProxy(loggerProxy, credentials, () -> Duration.ofMinutes(15).toMillis());
+        final ProxyClient<Ec2Client> proxyClient = proxy.newProxy(() -> standIn);
+        final ResourceModel model = ResourceModel.builder().natGatewayId(natGatewayId).build();
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .previousResourceState(model)
+                .desiredResourceState(model)
+                .previousResourceTags(PREVIOUS_TAGS)
+                .desiredResourceTags(DESIRED_TAGS)
+                .build();
+        return new UpdateHandler().handleRequest(proxy, request, new CallbackContext(), proxyClient, loggerProxy);
+      }));
+    }
+    int succeeded = 0;
+    for (final Future<ProgressEvent<ResourceModel, CallbackContext>> future : futures) {
+      succeeded += future.get().isSuccess() ? 1 : 0;
+    }
+    return succeeded;
+  }
+
+  @Benchmark
+  public Map<String, ProgressEvent<ResourceModel, CallbackContext>> bulkTagger() {
+    final AmazonWebServicesClientProxy proxy =
+            new AmazonWebServicesClientProxy(loggerProxy, credentials, () -> Duration.ofMinutes(15).toMillis());
+    final ProxyClient<Ec2Client> proxyClient = proxy.newProxy(() -> standIn);
+    // The batch driver knows the live tags, e.g. from a batch read
+    final Map<String, TagDiff> tagDiffs = new LinkedHashMap<>();
+    standIn.tags.forEach((natGatewayId, liveTags) ->
+            tagDiffs.put(natGatewayId, TagDiff.between(liveTags, DESIRED_TAGS, PREVIOUS_TAGS.keySet())));
+    return new BulkTagger(proxyClient).apply(tagDiffs);
+  }
+
+  /**
+   * Holds the tags of every NAT Gateway of the fleet.
+   */
+  private static class StandIn implements Ec2Client {
+    private final Map<String, Map<String, String>> tags = new ConcurrentHashMap<>();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    StandIn() {
+      for (int i = 0; i < NAT_GATEWAYS; i++) {
+        tags.put(String.format("nat-%017d", i), new ConcurrentHashMap<>(PREVIOUS_TAGS));
+      }
+    }
+
+    @Override
+    public DescribeNatGatewaysResponse describeNatGateways(final DescribeNatGatewaysRequest describeNatGatewaysRequest) {
+      pause();
+      return DescribeNatGatewaysResponse.builder()
+              .natGateways(describeNatGatewaysRequest.natGatewayIds().stream()
+                      .map(natGatewayId -> NatGateway.builder()
+                              .natGatewayId(natGatewayId)
+                              .state("available")
+                              .connectivityType("public")
+                              .tags(tags.get(natGatewayId).entrySet().stream()
+                                      .map(tag -> Tag.builder().key(tag.getKey()).value(tag.getValue()).build())
+                                      .collect(Collectors.toList()))
+                              .build())
+                      .collect(Collectors.toList()))
+              .build();
+    }
+
+    @Override
+    public CreateTagsResponse createTags(final CreateTagsRequest createTagsRequest) {
+      pause();
+      createTagsRequest.resources().forEach(natGatewayId -> createTagsRequest.tags()
+              .forEach(tag -> tags.get(natGatewayId).put(tag.key(), tag.value())));
+      return CreateTagsResponse.builder().build();
+    }
+
+    @Override
+    public DeleteTagsResponse deleteTags(final DeleteTagsRequest deleteTagsRequest) {
+      pause();
+      deleteTagsRequest.resources().forEach(natGatewayId -> deleteTagsRequest.tags()
+              .forEach(tag -> tags.get(natGatewayId).remove(tag.key(), tag.value())));
+      return DeleteTagsResponse.builder().build();
+    }
+
+    private void pause() {
+      calls.incrementAndGet();
+      try {
+        Thread.sleep(CALL_LATENCY_MILLIS);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    @Override
+    public String serviceName() {
+      return "ec2";
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
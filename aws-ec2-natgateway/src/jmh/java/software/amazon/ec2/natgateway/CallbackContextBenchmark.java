@@ -0,0 +1,199 @@
+package software.amazon.ec2.natgateway;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.CreateNatGatewayRequest;
+import software.amazon.awssdk.services.ec2.model.CreateNatGatewayResponse;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysResponse;
+import software.amazon.awssdk.services.ec2.model.NatGateway;
+import software.amazon.awssdk.services.ec2.model.NatGatewayAddress;
+import software.amazon.awssdk.services.ec2.model.Tag;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.Credentials;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import software.amazon.cloudformation.proxy.StdCallbackContext;
+import software.amazon.cloudformation.resource.Serializer;
+
+/**
+ * Measures the callback payload of a long create stabilization after the given number of Create Handler invocations,
+ * one per poll, against an in-process EC2 stand-in. It compares serializing and deserializing the compact
+ * CallbackContext with the payload that would also carry the requests and responses memoized by the call graph. The
+ * size of both payloads is printed once they are built.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CallbackContextBenchmark {
+  private static final String NAT_ID = "nat-0123456789abcdefg";
+
+  @Param({"1", "10", "100", "1000"})
+  private int invocations;
+
+  private final Serializer serializer = new Serializer();
+  private CallbackContext callbackContext;
+  private String compactPayload;
+  private String memoizingPayload;
+
+  /**
+   * The CallbackContext together with the call graph of StdCallbackContext, serialized the way StdCallbackContext does.
+   */
+  private static class MemoizingPayload {
+    @JsonUnwrapped
+    public CallbackContext callbackContext;
+
+    @JsonSerialize(using = StdCallbackContext.Serializer.class)
+    @JsonDeserialize(using = StdCallbackContext.Deserializer.class)
+    public Map<String, Object> callGraphs;
+  }
+
+  @Setup
+  public void setup() throws IOException {
+    final LoggerProxy loggerProxy = new LoggerProxy();
+    final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(loggerProxy,
+            new Credentials("accessKey", "secretKey", "token"), () -> Duration.ofMinutes(15).toMillis());
+    // Still pending after the last invocation
+    final ProxyClient<Ec2Client> proxyClient = proxy.newProxy(() -> new StandIn(invocations + 1));
+    final CreateHandler handler = new CreateHandler();
+    handler.setStabilizationBudget(Duration.ZERO);
+
+    final Map<String, String> systemTags = new HashMap<>();
+    systemTags.put("aws:cloudformation:stack-id", "arn:aws:cloudformation:us-east-1:123456789012:stack/stack/0123");
+    systemTags.put("aws:cloudformation:logical-id", "NatGateway");
+    final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+            .awsAccountId("123456789012")
+            .region("us-east-1")
+            .clientRequestToken("0123456789abcdef")
+            .systemTags(systemTags)
+            .desiredResourceState(ResourceModel.builder()
+                    .subnetId("subnet-0123456789abcdefg")
+                    .allocationId("eipalloc-0123456789abcdefg")
+                    .tags(Arrays.asList(software.amazon.ec2.natgateway.Tag.builder().key("Name").value("benchmark").build(),
+                            software.amazon.ec2.natgateway.Tag.builder().key("Team").value("network").build()))
+                    .build())
+            .build();
+
+    // The context stays in memory, so its call graph keeps what every invocation memoized
+    callbackContext = new CallbackContext();
+    for (int invocation = 0; invocation < invocations; invocation++) {
+      final ProgressEvent<ResourceModel, CallbackContext> progress =
+              handler.handleRequest(proxy, request, callbackContext, proxyClient, loggerProxy);
+      request.setDesiredResourceState(progress.getResourceModel());
+    }
+    compactPayload = serializeCompact();
+    memoizingPayload = serializeMemoizing();
+    System.out.printf("%n%d invocations: compact %d bytes, memoizing %d bytes%n",
+            invocations, compactPayload.length(), memoizingPayload.length());
+  }
+
+  @Benchmark
+  public String serializeCompact() throws IOException {
+    return serializer.serialize(callbackContext);
+  }
+
+  @Benchmark
+  public String serializeMemoizing() throws IOException {
+    final MemoizingPayload payload = new MemoizingPayload();
+    payload.callbackContext = callbackContext;
+    payload.callGraphs = callbackContext.callGraphs();
+    return serializer.serialize(payload);
+  }
+
+  @Benchmark
+  public CallbackContext deserializeCompact() throws IOException {
+    return serializer.deserialize(compactPayload, new TypeReference<CallbackContext>() {});
+  }
+
+  // Returned as an Object, the payload class is private to the benchmark
+  @Benchmark
+  public Object deserializeMemoizing() throws IOException {
+    return serializer.deserialize(memoizingPayload, new TypeReference<MemoizingPayload>() {});
+  }
+
+  /**
+   * Creates the NAT Gateway and keeps it pending until the given poll.
+   */
+  private static class StandIn implements Ec2Client {
+    private final int pendingPolls;
+    private int polls;
+
+    StandIn(final int pendingPolls) {
+      this.pendingPolls = pendingPolls;
+    }
+
+    @Override
+    public CreateNatGatewayResponse createNatGateway(final CreateNatGatewayRequest createNatGatewayRequest) {
+      return CreateNatGatewayResponse.builder()
+              .clientToken(createNatGatewayRequest.clientToken())
+              .natGateway(natGateway("pending", createNatGatewayRequest.tagSpecifications().stream()
+                      .flatMap(tagSpecification -> tagSpecification.tags().stream()).collect(Collectors.toList())))
+              .build();
+    }
+
+    @Override
+    public DescribeNatGatewaysResponse describeNatGateways(final DescribeNatGatewaysRequest describeNatGatewaysRequest) {
+      polls++;
+      return DescribeNatGatewaysResponse.builder()
+              .natGateways(natGateway(polls < pendingPolls ? "pending" : "available",
+                      Arrays.asList(Tag.builder().key("Name").value("benchmark").build())))
+              .build();
+    }
+
+    private static NatGateway natGateway(final String state, final List<Tag> tags) {
+      return NatGateway.builder()
+              .natGatewayId(NAT_ID)
+              .subnetId("subnet-0123456789abcdefg")
+              .vpcId("vpc-0123456789abcdefg")
+              .state(state)
+              .connectivityType("public")
+              .createTime(Instant.parse("2026-01-01T00:00:00Z"))
+              .natGatewayAddresses(NatGatewayAddress.builder()
+                      .allocationId("eipalloc-0123456789abcdefg")
+                      .networkInterfaceId("eni-0123456789abcdefg")
+                      .privateIp("10.0.0.10")
+                      .publicIp("203.0.113.10")
+                      .build())
+              .tags(tags)
+              .build();
+    }
+
+    @Override
+    public String serviceName() {
+      return "ec2";
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
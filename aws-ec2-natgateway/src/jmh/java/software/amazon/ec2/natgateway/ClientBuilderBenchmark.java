@@ -0,0 +1,130 @@
+package software.amazon.ec2.natgateway;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysResponse;
+import software.amazon.cloudformation.LambdaWrapper;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.Credentials;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+import software.amazon.cloudformation.proxy.ProxyClient;
+
+/**
+ * Measures the per-invocation overhead of building a new Ec2Client on every invocation against sharing one client
+ * across invocations, as ClientBuilder.getClient does. Each invocation goes through
+ * AmazonWebServicesClientProxy.newProxy and makes one DescribeNatGateways call with injected credentials against a
+ * local HTTP stand-in for EC2. The client built per invocation is closed once the invocation is done, so that the run
+ * does not pile up clients.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClientBuilderBenchmark {
+  private static final String DESCRIBE_RESPONSE =
+          "<DescribeNatGatewaysResponse xmlns=\"http://ec2.amazonaws.com/doc/2016-11-15/\">" +
+          "<requestId>00000000-0000-0000-0000-000000000000</requestId>" +
+          "<natGatewaySet><item>" +
+          "<natGatewayId>nat-0123456789abcdefg</natGatewayId>" +
+          "<subnetId>subnet-0123456789abcdefg</subnetId>" +
+          "<state>available</state>" +
+          "<connectivityType>public</connectivityType>" +
+          "</item></natGatewaySet>" +
+          "</DescribeNatGatewaysResponse>";
+
+  private final LoggerProxy loggerProxy = new LoggerProxy();
+  private final Credentials credentials = new Credentials("accessKey", "secretKey", "token");
+
+  private HttpServer server;
+  private URI endpoint;
+  private Ec2Client sharedClient;
+
+  @Setup
+  public void setup() throws IOException {
+    server = startEc2StandIn();
+    endpoint = URI.create("http://localhost:" + server.getAddress().getPort());
+    sharedClient = newClient();
+  }
+
+  @TearDown
+  public void tearDown() {
+    sharedClient.close();
+    server.stop(0);
+  }
+
+  @Benchmark
+  public DescribeNatGatewaysResponse newClientPerInvocation() {
+    try (Ec2Client client = newClient()) {
+      return invoke(client);
+    }
+  }
+
+  @Benchmark
+  public DescribeNatGatewaysResponse sharedClient() {
+    return invoke(sharedClient);
+  }
+
+  /**
+   * One invocation: a fresh proxy as in BaseHandlerStd.handleRequest, then a single describe.
+   */
+  private DescribeNatGatewaysResponse invoke(final Ec2Client client) {
+    final AmazonWebServicesClientProxy proxy =
+            new AmazonWebServicesClientProxy(loggerProxy, credentials, () -> Duration.ofMinutes(15).toMillis());
+    final ProxyClient<Ec2Client> proxyClient = proxy.newProxy(() -> client);
+    return proxyClient.injectCredentialsAndInvokeV2(
+            Translator.translateToReadRequest(ResourceModel.builder().natGatewayId("nat-0123456789abcdefg").build()),
+            proxyClient.client()::describeNatGateways);
+  }
+
+  private Ec2Client newClient() {
+    return Ec2Client.builder()
+            .httpClient(LambdaWrapper.HTTP_CLIENT)
+            .endpointOverride(endpoint)
+            .region(Region.US_EAST_1)
+            .build();
+  }
+
+  private static HttpServer startEc2StandIn() throws IOException {
+    // Without TCP_NODELAY the separate header and body writes stall on delayed ACKs and hide the client overhead
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    final byte[] body = DESCRIBE_RESPONSE.getBytes(StandardCharsets.UTF_8);
+    server.createContext("/", exchange -> {
+      try (InputStream requestBody = exchange.getRequestBody()) {
+        while (requestBody.read() != -1) {
+          // drain the query so the connection can be kept alive
+        }
+      }
+      exchange.getResponseHeaders().add("Content-Type", "text/xml");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream responseBody = exchange.getResponseBody()) {
+        responseBody.write(body);
+      }
+    });
+    server.start();
+    return server;
+  }
+}
@@ -0,0 +1,239 @@
+package software.amazon.ec2.natgateway;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.Credentials;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+
+/**
+ * Drives full Create, Read, Update, Delete and List flows through BaseHandlerStd.handleRequest against the Ec2Simulator,
+ * which answers each call after a log-normal latency. A flow is every invocation of an operation until it is done: the
+ * callback context is serialized between invocations, and the simulator clock is moved forward by the callback delay,
+ * so stabilization runs through the same re-invocations as in CloudFormation without waiting for them.
+ *
+ * For each flow it reports the wall time, the invocations and API calls it took, and the CPU time and bytes allocated
+ * by every thread of the JVM, which includes the handlers' own executors. The results are also written as JSON, to
+ * target/crudl-benchmark.json or the file given as the first argument, so that builds can be compared.
+ *
+ * A report of whole flows rather than a JMH benchmark. Run it with:
+ *   mvn -Pjmh test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=software.amazon.ec2.natgateway.CrudlBenchmark
+ */
+public class CrudlBenchmark {
+  private static final int WARMUP_CYCLES = 20;
+  private static final int MEASURED_CYCLES = 50;
+  private static final Duration MEDIAN_CALL_LATENCY = Duration.ofMillis(10);
+  private static final double CALL_LATENCY_SIGMA = 0.5;
+  private static final String SUBNET_ID = "subnet-0123456789abcdefg";
+  private static final String VPC_ID = "vpc-0123456789abcdefg";
+  private static final String ALLOCATION_ID = "eipalloc-0123456789abcdefg";
+  private static final String STACK_ID = "arn:aws:cloudformation:us-east-1:123456789012:stack/stack/0123";
+  private static final List<String> OPERATIONS = Arrays.asList("create", "read", "update", "list", "delete");
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+          (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private final AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+  private final Ec2Simulator simulator = new Ec2Simulator(Ec2Simulator.Config.builder()
+          .clock(clock::get)
+          .visibilityLag(Ec2Simulator.Delay.fixed(Duration.ofSeconds(1)))
+          .pendingTime(Ec2Simulator.Delay.uniform(Duration.ofSeconds(60), Duration.ofSeconds(120)))
+          .deletingTime(Ec2Simulator.Delay.uniform(Duration.ofSeconds(30), Duration.ofSeconds(60)))
+          .callLatency(Ec2Simulator.Delay.logNormal(MEDIAN_CALL_LATENCY, CALL_LATENCY_SIGMA))
+          .build())
+          .addSubnet(SUBNET_ID, VPC_ID);
+  private final LoggerProxy logger = new LoggerProxy();
+  private final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(logger,
+          new Credentials("accessKey", "secretKey", "token"), () -> Duration.ofMinutes(15).toMillis());
+  private final ProxyClient<Ec2Client> proxyClient = proxy.newProxy(() -> simulator);
+  private final Map<String, List<Sample>> samples = new LinkedHashMap<>();
+
+  /**
+   * What a single flow took.
+   */
+  @lombok.AllArgsConstructor
+  private static class Sample {
+    private final long wallNanos;
+    private final long cpuNanos;
+    private final long allocatedBytes;
+    private final int invocations;
+    private final int apiCalls;
+  }
+
+  public static void main(final String[] args) throws IOException {
+    final CrudlBenchmark benchmark = new CrudlBenchmark();
+    for (int i = 0; i < WARMUP_CYCLES; i++) {
+      benchmark.cycle(false);
+    }
+    for (int i = 0; i < MEASURED_CYCLES; i++) {
+      benchmark.cycle(true);
+    }
+    benchmark.report(new File(args.length > 0 ? args[0] : "target/crudl-benchmark.json"));
+  }
+
+  /**
+   * Creates a NAT Gateway, reads it, updates its tags, lists it and deletes it.
+   */
+  private void cycle(final boolean record) {
+    final Map<String, String> tags = Collections.singletonMap("CostCenter", "1234");
+    final Map<String, String> updatedTags = new HashMap<>();
+    updatedTags.put("CostCenter", "5678");
+    updatedTags.put("Owner", "network-team");
+    final Map<String, String> systemTags = new HashMap<>();
+    systemTags.put("aws:cloudformation:stack-id", STACK_ID);
+    systemTags.put("aws:cloudformation:logical-id", "NatGateway" + UUID.randomUUID().toString().substring(0, 8));
+
+    final ResourceModel model = ResourceModel.builder()
+            .subnetId(SUBNET_ID)
+            .allocationId(ALLOCATION_ID)
+            .connectivityType("public")
+            .tags(Collections.singletonList(Tag.builder().key("CostCenter").value("1234").build()))
+            .build();
+    final ProgressEvent<ResourceModel, CallbackContext> created = measure("create", record, new CreateHandler(),
+            ResourceHandlerRequest.<ResourceModel>builder()
+                    .clientRequestToken(UUID.randomUUID().toString())
+                    .desiredResourceState(model)
+                    .desiredResourceTags(tags)
+                    .systemTags(systemTags)
+                    .build());
+    final ResourceModel createdModel = created.getResourceModel();
+
+    measure("read", record, new ReadHandler(),
+            ResourceHandlerRequest.<ResourceModel>builder().desiredResourceState(createdModel).build());
+
+    measure("update", record, new UpdateHandler(),
+            ResourceHandlerRequest.<ResourceModel>builder()
+                    .previousResourceState(createdModel)
+                    .desiredResourceState(ResourceModel.builder()
+                            .natGatewayId(createdModel.getNatGatewayId())
+                            .subnetId(SUBNET_ID)
+                            .allocationId(ALLOCATION_ID)
+                            .connectivityType("public")
+                            .build())
+                    .previousResourceTags(tags)
+                    .desiredResourceTags(updatedTags)
+                    .previousSystemTags(systemTags)
+                    .systemTags(systemTags)
+                    .build());
+
+    measure("list", record, new ListHandler(),
+            ResourceHandlerRequest.<ResourceModel>builder().desiredResourceState(ResourceModel.builder().build()).build());
+
+    measure("delete", record, new DeleteHandler(),
+            ResourceHandlerRequest.<ResourceModel>builder().desiredResourceState(createdModel).build());
+  }
+
+  /**
+   * Invokes the handler until the operation is done and records what the whole flow took.
+   */
+  private ProgressEvent<ResourceModel, CallbackContext> measure(final String operation, final boolean record,
+                                                              final BaseHandlerStd handler,
+                                                              final ResourceHandlerRequest<ResourceModel> handlerRequest) {
+    handler.setStabilizationBudget(Duration.ZERO);
+    final int callsBefore = simulator.getTotalCalls();
+    final Map<Long, long[]> threadsBefore = threadUsage();
+    final long start = System.nanoTime();
+
+    CallbackContext callbackContext = new CallbackContext();
+    ProgressEvent<ResourceModel, CallbackContext> progress;
+    int invocations = 0;
+    do {
+      progress = handler.handleRequest(proxy, handlerRequest, callbackContext, proxyClient, logger);
+      invocations++;
+      if (progress.isInProgress()) {
+        callbackContext = AbstractTestBase.roundTrip(progress.getCallbackContext());
+        handlerRequest.setDesiredResourceState(progress.getResourceModel());
+        clock.addAndGet(Duration.ofSeconds(Math.max(progress.getCallbackDelaySeconds(), 1)).toMillis());
+      }
+    } while (progress.isInProgress());
+
+    final long wallNanos = System.nanoTime() - start;
+    final Map<Long, long[]> threadsAfter = threadUsage();
+    if (!progress.isSuccess()) {
+      throw new IllegalStateException(String.format("%s failed: %s %s", operation, progress.getErrorCode(), progress.getMessage()));
+    }
+    if (record) {
+      long cpuNanos = 0;
+      long allocatedBytes = 0;
+      for (final Map.Entry<Long, long[]> thread : threadsAfter.entrySet()) {
+        final long[] before = threadsBefore.getOrDefault(thread.getKey(), new long[2]);
+        cpuNanos += thread.getValue()[0] - before[0];
+        allocatedBytes += thread.getValue()[1] - before[1];
+      }
+      samples.computeIfAbsent(operation, key -> new ArrayList<>())
+              .add(new Sample(wallNanos, cpuNanos, allocatedBytes, invocations, simulator.getTotalCalls() - callsBefore));
+    }
+    return progress;
+  }
+
+  /**
+   * @return the CPU time and allocated bytes of every live thread, by thread id
+   */
+  private static Map<Long, long[]> threadUsage() {
+    final long[] threadIds = THREADS.getAllThreadIds();
+    final long[] allocatedBytes = THREADS.getThreadAllocatedBytes(threadIds);
+    final Map<Long, long[]> usage = new HashMap<>();
+    for (int i = 0; i < threadIds.length; i++) {
+      usage.put(threadIds[i], new long[] {Math.max(THREADS.getThreadCpuTime(threadIds[i]), 0), Math.max(allocatedBytes[i], 0)});
+    }
+    return usage;
+  }
+
+  private void report(final File output) throws IOException {
+    final List<Map<String, Object>> flows = new ArrayList<>();
+    System.out.printf("%-8s %10s %10s %12s %12s %14s %12s%n",
+            "flow", "wall p50", "wall p90", "invocations", "API calls", "CPU", "allocated");
+    for (final String operation : OPERATIONS) {
+      final List<Sample> flowSamples = samples.get(operation);
+      final long[] wallNanos = flowSamples.stream().mapToLong(sample -> sample.wallNanos).sorted().toArray();
+      final Map<String, Object> flow = new LinkedHashMap<>();
+      flow.put("flow", operation);
+      flow.put("samples", flowSamples.size());
+      flow.put("wallMillisP50", wallNanos[wallNanos.length / 2] / 1e6);
+      flow.put("wallMillisP90", wallNanos[wallNanos.length * 9 / 10] / 1e6);
+      flow.put("invocations", flowSamples.stream().mapToInt(sample -> sample.invocations).average().orElse(0));
+      flow.put("apiCalls", flowSamples.stream().mapToInt(sample -> sample.apiCalls).average().orElse(0));
+      flow.put("cpuMillis", flowSamples.stream().mapToLong(sample -> sample.cpuNanos).average().orElse(0) / 1e6);
+      flow.put("allocatedBytes", (long) flowSamples.stream().mapToLong(sample -> sample.allocatedBytes).average().orElse(0));
+      flows.add(flow);
+      System.out.printf("%-8s %7.1f ms %7.1f ms %12.1f %12.1f %11.2f ms %9d KB%n", operation,
+              flow.get("wallMillisP50"), flow.get("wallMillisP90"), flow.get("invocations"), flow.get("apiCalls"),
+              flow.get("cpuMillis"), (Long) flow.get("allocatedBytes") / 1024);
+    }
+
+    final Map<String, Object> results = new LinkedHashMap<>();
+    results.put("benchmark", CrudlBenchmark.class.getSimpleName());
+    results.put("timestamp", Instant.now().toString());
+    results.put("javaVersion", System.getProperty("java.version"));
+    results.put("medianCallLatencyMillis", MEDIAN_CALL_LATENCY.toMillis());
+    results.put("callLatencySigma", CALL_LATENCY_SIGMA);
+    results.put("warmupCycles", WARMUP_CYCLES);
+    results.put("measuredCycles", MEASURED_CYCLES);
+    results.put("flows", flows);
+    final File directory = output.getAbsoluteFile().getParentFile();
+    if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Cannot create " + directory);
+    }
+    new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output, results);
+    System.out.println("Results written to " + output.getPath());
+  }
+}
@@ -0,0 +1,52 @@
+package software.amazon.ec2.natgateway;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.ec2.model.Ec2Exception;
+import software.amazon.cloudformation.exceptions.BaseHandlerException;
+
+/**
+ * Measures BaseHandlerStd.handleError, which maps every EC2 error the handlers catch, for an error code matched early,
+ * one matched late and one falling through to the status code.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HandleErrorBenchmark {
+  @Param({"InvalidParameter", "ServiceUnavailable", "SomethingUnexpected"})
+  private String errorCode;
+
+  private AwsServiceException exception;
+  private BaseHandlerStd handler;
+
+  @Setup
+  public void setup() {
+    exception = Ec2Exception.builder()
+            .statusCode(400)
+            .message("Benchmark error")
+            .awsErrorDetails(AwsErrorDetails.builder().errorCode(errorCode).errorMessage("Benchmark error").build())
+            .build();
+    handler = new ReadHandler();
+  }
+
+  @Benchmark
+  public BaseHandlerException handleError() {
+    return handler.handleError(exception);
+  }
+}
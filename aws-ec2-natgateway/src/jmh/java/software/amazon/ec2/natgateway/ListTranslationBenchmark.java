@@ -0,0 +1,74 @@
+package software.amazon.ec2.natgateway;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.ec2.model.ConnectivityType;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysResponse;
+import software.amazon.awssdk.services.ec2.model.NatGateway;
+import software.amazon.awssdk.services.ec2.model.NatGatewayAddress;
+import software.amazon.awssdk.services.ec2.model.NatGatewayState;
+import software.amazon.awssdk.services.ec2.model.Tag;
+
+/**
+ * Measures translating one DescribeNatGateways page into identifier-only models and into fully populated models, for
+ * NAT Gateways that carry tags and an address as they do in practice. Run with the GC profiler, as the jmh profile
+ * does, to see the bytes allocated per page next to the time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListTranslationBenchmark {
+  private static final int TAGS_PER_NAT_GATEWAY = 10;
+
+  @Param({"100", "1000"})
+  private int pageSize;
+
+  private DescribeNatGatewaysResponse page;
+
+  @Setup
+  public void setup() {
+    final List<NatGateway> natGateways = new ArrayList<>(pageSize);
+    for (int i = 0; i < pageSize; i++) {
+      final List<Tag> tags = new ArrayList<>(TAGS_PER_NAT_GATEWAY + 1);
+      for (int t = 0; t < TAGS_PER_NAT_GATEWAY; t++) {
+        tags.add(Tag.builder().key("Key_" + t).value("Value_" + i + "_" + t).build());
+      }
+      tags.add(Tag.builder().key("aws:cloudformation:stack-name").value("stack-" + i).build());
+      natGateways.add(NatGateway.builder()
+              .natGatewayId(String.format("nat-%017d", i))
+              .subnetId(String.format("subnet-%017d", i % 50))
+              .connectivityType(ConnectivityType.PUBLIC)
+              .state(NatGatewayState.AVAILABLE)
+              .natGatewayAddresses(NatGatewayAddress.builder().allocationId(String.format("eipalloc-%017d", i)).build())
+              .tags(tags)
+              .build());
+    }
+    page = DescribeNatGatewaysResponse.builder().natGateways(natGateways).build();
+  }
+
+  @Benchmark
+  public List<ResourceModel> identifierOnly() {
+    return Translator.translateFromListRequest(page);
+  }
+
+  @Benchmark
+  public List<ResourceModel> withProperties() {
+    return Translator.translateFromListRequestWithProperties(page);
+  }
+}
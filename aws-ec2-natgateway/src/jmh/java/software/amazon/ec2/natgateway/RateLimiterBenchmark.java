@@ -0,0 +1,186 @@
+package software.amazon.ec2.natgateway;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.cloudformation.LambdaWrapper;
+import software.amazon.cloudformation.exceptions.BaseHandlerException;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.Credentials;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+
+/**
+ * Measures Read Handler invocations made by many concurrent callers against a local HTTP stand-in for EC2 that only
+ * serves a fixed number of calls per second and answers the others with RequestLimitExceeded, with and without the
+ * adaptive rate limiter in front of the client. The SDK retries throttled calls with its default policy in both runs.
+ * A read that still fails counts as an operation too, and the failed reads, API calls and throttled calls of each
+ * iteration are printed.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 15)
+@Measurement(iterations = 3, time = 15)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+  private static final double ALLOWED_CALLS_PER_SECOND = 20;
+  private static final int CALLERS = 16;
+  private static final String NAT_ID = "nat-0123456789abcdefg";
+
+  @Param({"unlimited", "adaptive"})
+  private String limiter;
+
+  private final Ec2StandIn standIn = new Ec2StandIn();
+  private final AtomicInteger failures = new AtomicInteger();
+  private final LoggerProxy loggerProxy = new LoggerProxy();
+  private final Credentials credentials = new Credentials("accessKey", "secretKey", "token");
+  private final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+          .desiredResourceState(ResourceModel.builder().natGatewayId(NAT_ID).build())
+          .build();
+  private HttpServer server;
+  private Ec2Client client;
+  private ReadHandler handler;
+  private AdaptiveRateLimiter rateLimiter;
+
+  @Setup
+  public void setup() throws IOException {
+    server = standIn.start();
+    client = Ec2Client.builder()
+            .httpClient(LambdaWrapper.HTTP_CLIENT)
+            .endpointOverride(URI.create("http://localhost:" + server.getAddress().getPort()))
+            .region(Region.US_EAST_1)
+            .build();
+    handler = new ReadHandler();
+    rateLimiter = "adaptive".equals(limiter) ? new AdaptiveRateLimiter() : null;
+  }
+
+  @Setup(Level.Iteration)
+  public void reset() {
+    standIn.reset();
+    failures.set(0);
+  }
+
+  @TearDown(Level.Iteration)
+  public void report() {
+    System.out.printf("%n%d failed reads, %d API calls, %d throttled%n", failures.get(), standIn.calls.get(),
+            standIn.throttled.get());
+  }
+
+  @TearDown
+  public void tearDown() {
+    client.close();
+    server.stop(0);
+  }
+
+  @Benchmark
+  @Threads(CALLERS)
+  public boolean read() {
+    final AmazonWebServicesClientProxy proxy =
+            new AmazonWebServicesClientProxy(loggerProxy, credentials, () -> Duration.ofMinutes(15).toMillis());
+    final ProxyClient<Ec2Client> plainClient = proxy.newProxy(() -> client);
+    final ProxyClient<Ec2Client> proxyClient = rateLimiter == null
+            ? plainClient
+            : new RateLimitedProxyClient(plainClient, rateLimiter);
+    try {
+      return handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, loggerProxy).isSuccess();
+    } catch (final BaseHandlerException e) {
+      failures.incrementAndGet();
+      return false;
+    }
+  }
+
+  /**
+   * Answers DescribeNatGateways with a single available NAT Gateway while its own token bucket has tokens, and with a
+   * RequestLimitExceeded error otherwise, like EC2 does once an account exceeds its request rate.
+   */
+  private static class Ec2StandIn {
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger throttled = new AtomicInteger();
+    private double tokens;
+    private long lastRefillNanos;
+
+    synchronized void reset() {
+      calls.set(0);
+      throttled.set(0);
+      tokens = ALLOWED_CALLS_PER_SECOND;
+      lastRefillNanos = System.nanoTime();
+    }
+
+    private synchronized boolean tryAcquire() {
+      final long now = System.nanoTime();
+      tokens = Math.min(ALLOWED_CALLS_PER_SECOND, tokens + ALLOWED_CALLS_PER_SECOND * (now - lastRefillNanos) / 1e9);
+      lastRefillNanos = now;
+      if (tokens < 1) {
+        return false;
+      }
+      tokens -= 1;
+      return true;
+    }
+
+    HttpServer start() throws IOException {
+      // Without TCP_NODELAY the separate header and body writes stall on delayed ACKs and hide the client overhead
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+      final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.setExecutor(Executors.newFixedThreadPool(32, runnable -> {
+        final Thread thread = new Thread(runnable, "ec2-stand-in");
+        thread.setDaemon(true);
+        return thread;
+      }));
+      server.createContext("/", exchange -> {
+        try (InputStream requestBody = exchange.getRequestBody()) {
+          while (requestBody.read() != -1) {
+            // Drain the request, every call is a DescribeNatGateways of the same NAT Gateway
+          }
+        }
+        calls.incrementAndGet();
+        final boolean allowed = tryAcquire();
+        final String response;
+        if (allowed) {
+          response = "<DescribeNatGatewaysResponse xmlns=\"http://ec2.amazonaws.com/doc/2016-11-15/\"><natGatewaySet>" +
+                  "<item><natGatewayId>" + NAT_ID + "</natGatewayId><subnetId>subnet-0123456789abcdefg</subnetId>" +
+                  "<state>available</state><connectivityType>public</connectivityType></item>" +
+                  "</natGatewaySet></DescribeNatGatewaysResponse>";
+        } else {
+          throttled.incrementAndGet();
+          response = "<Response><Errors><Error><Code>RequestLimitExceeded</Code>" +
+                  "<Message>Request limit exceeded.</Message></Error></Errors><RequestID>stand-in</RequestID></Response>";
+        }
+        final byte[] body = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/xml");
+        exchange.sendResponseHeaders(allowed ? 200 : 503, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+          responseBody.write(body);
+        }
+      });
+      server.start();
+      return server;
+    }
+  }
+}
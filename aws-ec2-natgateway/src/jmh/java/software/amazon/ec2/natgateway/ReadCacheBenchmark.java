@@ -0,0 +1,185 @@
+package software.amazon.ec2.natgateway;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.cloudformation.LambdaWrapper;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.Credentials;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+
+/**
+ * Measures Read Handler throughput and latency during a burst of reads of a few hundred NAT Gateways by concurrent
+ * callers, as drift detection sends them, against a local HTTP stand-in for EC2 that answers each DescribeNatGateways
+ * after a fixed latency. The burst runs without the describe cache, with a cache that starts every iteration cold and
+ * with a cache warmed by a read of every NAT Gateway. The API calls and cache counters of each iteration are printed.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 4)
+@Measurement(iterations = 3, time = 4)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReadCacheBenchmark {
+  private static final int NAT_GATEWAYS = 300;
+  private static final int CALLERS = 16;
+  private static final long CALL_LATENCY_MILLIS = 15;
+
+  @Param({"uncached", "cold", "warm"})
+  private String cache;
+
+  private final AtomicInteger calls = new AtomicInteger();
+  private final LoggerProxy loggerProxy = new LoggerProxy();
+  private final Credentials credentials = new Credentials("accessKey", "secretKey", "token");
+  private HttpServer server;
+  private Ec2Client client;
+  private ReadHandler handler;
+  private DescribeCache describeCache;
+
+  @Setup
+  public void setup() throws IOException {
+    server = startStandIn(calls);
+    client = Ec2Client.builder()
+            .httpClient(LambdaWrapper.HTTP_CLIENT)
+            .endpointOverride(URI.create("http://localhost:" + server.getAddress().getPort()))
+            .region(Region.US_EAST_1)
+            .build();
+    handler = new ReadHandler();
+  }
+
+  @Setup(Level.Iteration)
+  public void startBurst() throws InterruptedException, ExecutionException {
+    describeCache = "uncached".equals(cache)
+            ? null : new DescribeCache(BaseHandlerStd.DESCRIBE_CACHE_MAX_ENTRIES, BaseHandlerStd.DESCRIBE_CACHE_TTL);
+    handler.setDescribeCache(describeCache);
+    if ("warm".equals(cache)) {
+      // Concurrently, so that the first entries have not expired yet by the time the burst starts
+      final ExecutorService readers = Executors.newFixedThreadPool(CALLERS);
+      final List<Future<?>> reads = new ArrayList<>();
+      for (int i = 0; i < NAT_GATEWAYS; i++) {
+        final int natGateway = i;
+        reads.add(readers.submit(() -> read(natGateway)));
+      }
+      for (final Future<?> future : reads) {
+        future.get();
+      }
+      readers.shutdown();
+    }
+    calls.set(0);
+  }
+
+  @TearDown(Level.Iteration)
+  public void reportBurst() {
+    System.out.printf("%n%d API calls", calls.get());
+    if (describeCache != null) {
+      System.out.printf(", %d hits %d misses %d evictions", describeCache.getHits(), describeCache.getMisses(),
+              describeCache.getEvictions());
+    }
+    System.out.println();
+  }
+
+  @TearDown
+  public void tearDown() {
+    client.close();
+    server.stop(0);
+  }
+
+  @Benchmark
+  @Threads(CALLERS)
+  public ProgressEvent<ResourceModel, CallbackContext> read() {
+    return read(ThreadLocalRandom.current().nextInt(NAT_GATEWAYS));
+  }
+
+  private ProgressEvent<ResourceModel, CallbackContext> read(final int natGateway) {
+    final AmazonWebServicesClientProxy proxy =
+            new AmazonWebServicesClientProxy(loggerProxy, credentials, () -> Duration.ofMinutes(15).toMillis());
+    final ProxyClient<Ec2Client> proxyClient = proxy.newProxy(() -> client);
+    final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+            .awsAccountId("123456789012")
+            .region("us-east-1")
+            .desiredResourceState(ResourceModel.builder().natGatewayId(String.format("nat-%017d", natGateway)).build())
+            .build();
+    return handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, loggerProxy);
+  }
+
+  /**
+   * Serves DescribeNatGateways of a single NAT Gateway by id, answering with it available after a fixed latency.
+   */
+  private static HttpServer startStandIn(final AtomicInteger calls) throws IOException {
+    // Without TCP_NODELAY the separate header and body writes stall on delayed ACKs and hide the client overhead
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.setExecutor(Executors.newFixedThreadPool(32, runnable -> {
+      final Thread thread = new Thread(runnable, "ec2-stand-in");
+      thread.setDaemon(true);
+      return thread;
+    }));
+    server.createContext("/", exchange -> {
+      final String query;
+      try (InputStream requestBody = exchange.getRequestBody()) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        for (int read; (read = requestBody.read(buffer)) != -1; ) {
+          bytes.write(buffer, 0, read);
+        }
+        query = URLDecoder.decode(new String(bytes.toByteArray(), StandardCharsets.UTF_8), StandardCharsets.UTF_8.name());
+      }
+      calls.incrementAndGet();
+      final int idStart = query.indexOf("NatGatewayId.1=") + "NatGatewayId.1=".length();
+      final int idEnd = query.indexOf('&', idStart);
+      final String natGatewayId = idEnd < 0 ? query.substring(idStart) : query.substring(idStart, idEnd);
+      try {
+        Thread.sleep(CALL_LATENCY_MILLIS);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      final byte[] body = ("<DescribeNatGatewaysResponse xmlns=\"http://ec2.amazonaws.com/doc/2016-11-15/\"><natGatewaySet>" +
+              "<item><natGatewayId>" + natGatewayId + "</natGatewayId><subnetId>subnet-0123456789abcdefg</subnetId>" +
+              "<state>available</state><connectivityType>public</connectivityType></item>" +
+              "</natGatewaySet></DescribeNatGatewaysResponse>").getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "text/xml");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream responseBody = exchange.getResponseBody()) {
+        responseBody.write(body);
+      }
+    });
+    server.start();
+    return server;
+  }
+}
@@ -0,0 +1,246 @@
+package software.amazon.ec2.natgateway;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.cloudformation.LambdaWrapper;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.Credentials;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+
+/**
+ * Measures how long walking every page of the List Handler takes, serially and sharded by VPC, against a local HTTP
+ * stand-in for EC2 holding thousands of synthetic NAT Gateways spread unevenly across dozens of VPCs. The stand-in
+ * answers each call after a fixed latency plus a cost per NAT Gateway returned, which is what concurrent shards save.
+ * The API calls of the last walk of each iteration are printed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShardedListBenchmark {
+  private static final int NAT_GATEWAYS = 5000;
+  private static final int VPCS = 40;
+  private static final long CALL_LATENCY_MICROS = 15_000;
+  private static final long LATENCY_PER_NAT_GATEWAY_MICROS = 200;
+
+  @Param({"100", "1000"})
+  private int pageSize;
+
+  @Param({"false", "true"})
+  private boolean sharded;
+
+  private final Ec2StandIn standIn = new Ec2StandIn();
+  private final LoggerProxy loggerProxy = new LoggerProxy();
+  private final Credentials credentials = new Credentials("accessKey", "secretKey", "token");
+  private HttpServer server;
+  private Ec2Client client;
+  private ListHandler handler;
+
+  @Setup
+  public void setup() throws IOException {
+    server = standIn.start();
+    client = Ec2Client.builder()
+            .httpClient(LambdaWrapper.HTTP_CLIENT)
+            .endpointOverride(URI.create("http://localhost:" + server.getAddress().getPort()))
+            .region(Region.US_EAST_1)
+            .build();
+    handler = new ListHandler();
+    handler.setPageSize(pageSize);
+    handler.setSharded(sharded);
+  }
+
+  @TearDown(Level.Iteration)
+  public void report() {
+    System.out.printf("%n%d API calls per walk%n", standIn.calls.get());
+  }
+
+  @TearDown
+  public void tearDown() {
+    client.close();
+    server.stop(0);
+  }
+
+  @Benchmark
+  public int walk() {
+    standIn.calls.set(0);
+    String nextToken = null;
+    int listed = 0;
+    do {
+      final AmazonWebServicesClientProxy proxy =
+              new AmazonWebServicesClientProxy(loggerProxy, credentials, () -> Duration.ofMinutes(15).toMillis());
+      final ProxyClient<Ec2Client> proxyClient = proxy.newProxy(() -> client);
+      final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+              .desiredResourceState(ResourceModel.builder().build())
+              .nextToken(nextToken)
+              .build();
+      final ProgressEvent<ResourceModel, CallbackContext> response =
+              handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, loggerProxy);
+      listed += response.getResourceModels().size();
+      nextToken = response.getNextToken();
+    } while (nextToken != null);
+
+    if (listed != NAT_GATEWAYS) {
+      throw new IllegalStateException(String.format("Listed %d NAT Gateways instead of %d", listed, NAT_GATEWAYS));
+    }
+    return listed;
+  }
+
+  /**
+   * Serves DescribeVpcs and DescribeNatGateways, honouring the vpc-id filter, MaxResults and NextToken. NAT Gateways
+   * are spread over the VPCs with a skew so that a few VPCs hold most of them.
+   */
+  private static class Ec2StandIn {
+    private final List<String> vpcIds = new ArrayList<>();
+    private final List<String[]> natGateways = new ArrayList<>();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    Ec2StandIn() {
+      for (int v = 0; v < VPCS; v++) {
+        vpcIds.add(String.format("vpc-%017d", v));
+      }
+      for (int i = 0; i < NAT_GATEWAYS; i++) {
+        final int vpc = (int) (VPCS * Math.pow((double) i / NAT_GATEWAYS, 2));
+        natGateways.add(new String[] {String.format("nat-%017d", i), vpcIds.get(vpc)});
+      }
+    }
+
+    HttpServer start() throws IOException {
+      // Without TCP_NODELAY the separate header and body writes stall on delayed ACKs and hide the client overhead
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+      final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.setExecutor(Executors.newFixedThreadPool(32, runnable -> {
+        final Thread thread = new Thread(runnable, "ec2-stand-in");
+        thread.setDaemon(true);
+        return thread;
+      }));
+      server.createContext("/", exchange -> {
+        final Map<String, String> query;
+        try (InputStream requestBody = exchange.getRequestBody()) {
+          query = parseQuery(requestBody);
+        }
+        calls.incrementAndGet();
+        final String response = "DescribeVpcs".equals(query.get("Action"))
+                ? describeVpcs()
+                : describeNatGateways(query);
+        final byte[] body = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/xml");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+          responseBody.write(body);
+        }
+      });
+      server.start();
+      return server;
+    }
+
+    private String describeVpcs() {
+      pause(CALL_LATENCY_MICROS);
+      return "<DescribeVpcsResponse xmlns=\"http://ec2.amazonaws.com/doc/2016-11-15/\"><vpcSet>" +
+              vpcIds.stream().map(vpcId -> "<item><vpcId>" + vpcId + "</vpcId></item>").collect(Collectors.joining()) +
+              "</vpcSet></DescribeVpcsResponse>";
+    }
+
+    private String describeNatGateways(final Map<String, String> query) {
+      final String vpcId = vpcFilter(query);
+      final int maxResults = Integer.parseInt(query.getOrDefault("MaxResults", "1000"));
+      final int from = Integer.parseInt(query.getOrDefault("NextToken", "0"));
+
+      final StringBuilder items = new StringBuilder();
+      int returned = 0;
+      int next = from;
+      for (; next < natGateways.size() && returned < maxResults; next++) {
+        final String[] natGateway = natGateways.get(next);
+        if (vpcId == null || vpcId.equals(natGateway[1])) {
+          items.append("<item><natGatewayId>").append(natGateway[0]).append("</natGatewayId>")
+                  .append("<vpcId>").append(natGateway[1]).append("</vpcId>")
+                  .append("<subnetId>subnet-0123456789abcdefg</subnetId>")
+                  .append("<state>available</state><connectivityType>public</connectivityType></item>");
+          returned++;
+        }
+      }
+      pause(CALL_LATENCY_MICROS + returned * LATENCY_PER_NAT_GATEWAY_MICROS);
+
+      final boolean more = natGateways.subList(next, natGateways.size()).stream()
+              .anyMatch(natGateway -> vpcId == null || vpcId.equals(natGateway[1]));
+      return "<DescribeNatGatewaysResponse xmlns=\"http://ec2.amazonaws.com/doc/2016-11-15/\">" +
+              "<natGatewaySet>" + items + "</natGatewaySet>" +
+              (more ? "<nextToken>" + next + "</nextToken>" : "") +
+              "</DescribeNatGatewaysResponse>";
+    }
+
+    private static String vpcFilter(final Map<String, String> query) {
+      for (int f = 1; query.containsKey("Filter." + f + ".Name"); f++) {
+        if ("vpc-id".equals(query.get("Filter." + f + ".Name"))) {
+          return query.get("Filter." + f + ".Value.1");
+        }
+      }
+      return null;
+    }
+
+    private static Map<String, String> parseQuery(final InputStream requestBody) throws IOException {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[4096];
+      for (int read; (read = requestBody.read(buffer)) != -1; ) {
+        bytes.write(buffer, 0, read);
+      }
+      final Map<String, String> query = new HashMap<>();
+      for (final String pair : new String(bytes.toByteArray(), StandardCharsets.UTF_8).split("&")) {
+        final int separator = pair.indexOf('=');
+        if (separator > 0) {
+          query.put(decode(pair.substring(0, separator)), decode(pair.substring(separator + 1)));
+        }
+      }
+      return query;
+    }
+
+    private static String decode(final String value) throws UnsupportedEncodingException {
+      return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+    }
+
+    private static void pause(final long micros) {
+      try {
+        Thread.sleep(micros / 1000, (int) (micros % 1000) * 1000);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,185 @@
+package software.amazon.ec2.natgateway;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.CreateTagsRequest;
+import software.amazon.awssdk.services.ec2.model.CreateTagsResponse;
+import software.amazon.awssdk.services.ec2.model.DeleteTagsRequest;
+import software.amazon.awssdk.services.ec2.model.DeleteTagsResponse;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysResponse;
+import software.amazon.awssdk.services.ec2.model.NatGateway;
+import software.amazon.awssdk.services.ec2.model.Tag;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.Credentials;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+
+/**
+ * Counts the tagging API calls the Update Handler makes for common tag updates, against an in-process EC2 stand-in that
+ * holds the live tags and answers each call after a fixed latency. For comparison, it also counts the calls of a diff
+ * between the previous and desired tags, which ignores the live tags, and checks whether that diff would converge them.
+ *
+ * A report of API call counts rather than a JMH benchmark. Run it with:
+ *   mvn -Pjmh test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=software.amazon.ec2.natgateway.TagUpdateBenchmark
+ */
+public class TagUpdateBenchmark {
+  private static final long CALL_LATENCY_MILLIS = 20;
+  private static final String NAT_ID = "nat-0123456789abcdefg";
+  private static final String STACK_ID = "arn:aws:cloudformation:us-east-1:123456789012:stack/stack/0123";
+
+  public static void main(final String[] args) {
+    final Map<String, String> tags = tags("Key_", 0, 5);
+    final Map<String, String> addedTag = new HashMap<>(tags);
+    addedTag.put("Key_5", "Value_5");
+    final Map<String, String> removedTag = new HashMap<>(tags);
+    removedTag.remove("Key_4");
+    final Map<String, String> driftedTag = new HashMap<>(tags);
+    driftedTag.put("Key_0", "Drifted");
+    final Map<String, String> systemTags = new HashMap<>();
+    systemTags.put("aws:cloudformation:stack-id", STACK_ID);
+    final Map<String, String> importedTags = new HashMap<>(tags);
+    importedTags.putAll(systemTags);
+
+    // Warm up the handler and the client proxy
+    run("warm up", tags, addedTag, tags, null, null, false);
+
+    System.out.printf("%-28s %10s %10s %10s %10s %10s%n", "update", "prev/desc", "converged", "live", "converged", "latency");
+    run("template unchanged", tags, tags, tags, null, null, true);
+    run("one tag added", tags, addedTag, tags, null, null, true);
+    run("one tag removed", tags, removedTag, tags, null, null, true);
+    run("retried after tags applied", tags, addedTag, addedTag, null, null, true);
+    run("tag value drifted", tags, tags, driftedTag, null, null, true);
+    run("45 tags replaced", tags("Key_", 0, 45), tags("Name_", 0, 45), tags("Key_", 0, 45), null, null, true);
+    run("120 tags added", new HashMap<>(), tags("Key_", 0, 120), new HashMap<>(), null, null, true);
+    run("rollback after import", tags, tags, importedTags, systemTags, null, true);
+  }
+
+  private static void run(final String update, final Map<String, String> previousTags, final Map<String, String> desiredTags,
+                          final Map<String, String> liveTags, final Map<String, String> previousSystemTags,
+                          final Map<String, String> systemTags, final boolean report) {
+    // The diff the Update Handler used to make, between the previous and desired tags
+    final Map<String, String> tagsToDelete = new HashMap<>(previousTags);
+    tagsToDelete.entrySet().removeAll(desiredTags.entrySet());
+    final Map<String, String> tagsToCreate = new HashMap<>(desiredTags);
+    tagsToCreate.entrySet().removeAll(previousTags.entrySet());
+    if (previousSystemTags != null && systemTags == null) {
+      tagsToDelete.putAll(previousTags);
+    }
+    final int previousCalls = (tagsToCreate.isEmpty() ? 0 : 1) + (tagsToDelete.isEmpty() ? 0 : 1);
+    final Map<String, String> previousResult = new HashMap<>(liveTags);
+    previousResult.putAll(tagsToCreate);
+    tagsToDelete.keySet().forEach(previousResult::remove);
+
+    final StandIn standIn = new StandIn(liveTags);
+    final LoggerProxy loggerProxy = new LoggerProxy();
+    final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(loggerProxy,
+            new Credentials("accessKey", "secretKey", "token"), () -> Duration.ofMinutes(15).toMillis());
+    final ProxyClient<Ec2Client> proxyClient = proxy.newProxy(() -> standIn);
+    final ResourceModel model = ResourceModel.builder().natGatewayId(NAT_ID).build();
+    final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+            .previousResourceState(model)
+            .desiredResourceState(model)
+            .previousResourceTags(previousTags)
+            .desiredResourceTags(desiredTags)
+            .previousSystemTags(previousSystemTags)
+            .systemTags(systemTags)
+            .build();
+
+    final long start = System.nanoTime();
+    new UpdateHandler().handleRequest(proxy, request, new CallbackContext(), proxyClient, loggerProxy);
+    final long latencyNanos = System.nanoTime() - start;
+    if (!report) {
+      return;
+    }
+
+    final Map<String, String> expectedTags = new HashMap<>(desiredTags);
+    liveTags.forEach((key, value) -> {
+      if (!previousTags.containsKey(key) && !(previousSystemTags != null && previousSystemTags.containsKey(key))) {
+        expectedTags.putIfAbsent(key, value);
+      }
+    });
+    System.out.printf("%-28s %10d %10s %10d %10s %7.0f ms%n", update, previousCalls, previousResult.equals(expectedTags),
+            standIn.taggingCalls.get(), standIn.liveTags.equals(expectedTags), latencyNanos / 1e6);
+  }
+
+  private static Map<String, String> tags(final String prefix, final int from, final int to) {
+    final Map<String, String> tags = new LinkedHashMap<>();
+    for (int i = from; i < to; i++) {
+      tags.put(prefix + i, "Value_" + i);
+    }
+    return tags;
+  }
+
+  /**
+   * Holds the live tags of a single NAT Gateway.
+   */
+  private static class StandIn implements Ec2Client {
+    private final Map<String, String> liveTags;
+    private final AtomicInteger taggingCalls = new AtomicInteger();
+
+    StandIn(final Map<String, String> liveTags) {
+      this.liveTags = new HashMap<>(liveTags);
+    }
+
+    @Override
+    public synchronized DescribeNatGatewaysResponse describeNatGateways(final DescribeNatGatewaysRequest describeNatGatewaysRequest) {
+      pause();
+      return DescribeNatGatewaysResponse.builder()
+              .natGateways(NatGateway.builder()
+                      .natGatewayId(NAT_ID)
+                      .state("available")
+                      .connectivityType("public")
+                      .tags(liveTags.entrySet().stream()
+                              .map(tag -> Tag.builder().key(tag.getKey()).value(tag.getValue()).build())
+                              .collect(Collectors.toList()))
+                      .build())
+              .build();
+    }
+
+    @Override
+    public CreateTagsResponse createTags(final CreateTagsRequest createTagsRequest) {
+      taggingCalls.incrementAndGet();
+      pause();
+      synchronized (this) {
+        createTagsRequest.tags().forEach(tag -> liveTags.put(tag.key(), tag.value()));
+      }
+      return CreateTagsResponse.builder().build();
+    }
+
+    @Override
+    public DeleteTagsResponse deleteTags(final DeleteTagsRequest deleteTagsRequest) {
+      taggingCalls.incrementAndGet();
+      pause();
+      synchronized (this) {
+        // Only removes a tag whose value matches
+        deleteTagsRequest.tags().forEach(tag -> liveTags.remove(tag.key(), tag.value()));
+      }
+      return DeleteTagsResponse.builder().build();
+    }
+
+    private static void pause() {
+      try {
+        Thread.sleep(CALL_LATENCY_MILLIS);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    @Override
+    public String serviceName() {
+      return "ec2";
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,140 @@
+package software.amazon.ec2.natgateway;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.ec2.model.CreateNatGatewayRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysResponse;
+import software.amazon.awssdk.services.ec2.model.NatGateway;
+import software.amazon.awssdk.services.ec2.model.NatGatewayAddress;
+import software.amazon.awssdk.services.ec2.model.Tag;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+
+/**
+ * Measures the Translator conversions the handlers run on every invocation, across the tag counts a NAT Gateway has
+ * (up to 50, the EC2 limit) and the page sizes a List returns (up to 1000). Run with the GC profiler, as the jmh
+ * profile does, to see the bytes allocated per operation next to the time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TranslatorBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Tags {
+    @Param({"0", "10", "50"})
+    private int tagCount;
+
+    private List<Tag> sdkTags;
+    private Map<String, String> tags;
+    private NatGateway natGateway;
+    private ResourceModel model;
+    private ResourceHandlerRequest<ResourceModel> request;
+
+    @Setup
+    public void setup() {
+      sdkTags = new ArrayList<>();
+      tags = new HashMap<>();
+      for (int i = 0; i < tagCount; i++) {
+        sdkTags.add(Tag.builder().key("Key_" + i).value("Value_" + i).build());
+        tags.put("Key_" + i, "Value_" + i);
+      }
+      final Map<String, String> systemTags = new HashMap<>();
+      systemTags.put("aws:cloudformation:stack-id", "arn:aws:cloudformation:us-east-1:123456789012:stack/stack/0123");
+      systemTags.put("aws:cloudformation:logical-id", "NatGateway");
+      // A described NAT Gateway also carries the system tags, which the resource model leaves out
+      final List<Tag> describedTags = new ArrayList<>(sdkTags);
+      systemTags.forEach((key, value) -> describedTags.add(Tag.builder().key(key).value(value).build()));
+
+      natGateway = NatGateway.builder()
+              .natGatewayId("nat-0123456789abcdefg")
+              .subnetId("subnet-0123456789abcdefg")
+              .connectivityType("public")
+              .state("available")
+              .natGatewayAddresses(NatGatewayAddress.builder().allocationId("eipalloc-0123456789abcdefg").build())
+              .tags(describedTags)
+              .build();
+      model = Translator.translateNatGatewayToResourceModel(natGateway);
+      request = ResourceHandlerRequest.<ResourceModel>builder()
+              .desiredResourceState(model)
+              .desiredResourceTags(tags)
+              .systemTags(systemTags)
+              .build();
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Page {
+    @Param({"1", "100", "1000"})
+    private int pageSize;
+
+    private DescribeNatGatewaysResponse describeNatGatewaysResponse;
+
+    @Setup
+    public void setup() {
+      final List<NatGateway> natGateways = new ArrayList<>();
+      for (int i = 0; i < pageSize; i++) {
+        natGateways.add(NatGateway.builder()
+                .natGatewayId(String.format("nat-%017d", i))
+                .subnetId("subnet-0123456789abcdefg")
+                .connectivityType("private")
+                .state("available")
+                .build());
+      }
+      describeNatGatewaysResponse = DescribeNatGatewaysResponse.builder().natGateways(natGateways).nextToken("token").build();
+    }
+  }
+
+  @Benchmark
+  public List<software.amazon.ec2.natgateway.Tag> convertToNatTags(final Tags tags) {
+    return Translator.convertToNatTags(tags.sdkTags);
+  }
+
+  @Benchmark
+  public List<Tag> convertToSdkTags(final Tags tags) {
+    return Translator.convertToSdkTags(tags.tags);
+  }
+
+  // Goes through convertNatTagsToTagSpecification, which merges the resource and system tags
+  @Benchmark
+  public CreateNatGatewayRequest translateToCreateRequest(final Tags tags) {
+    return Translator.translateToCreateRequest(tags.model, tags.request, "4b90a7e4-b790-456b-a937-0cfdfa211dfe");
+  }
+
+  @Benchmark
+  public ResourceModel translateNatGatewayToResourceModel(final Tags tags) {
+    return Translator.translateNatGatewayToResourceModel(tags.natGateway);
+  }
+
+  @Benchmark
+  public DescribeNatGatewaysRequest translateToListRequest() {
+    return Translator.translateToListRequest("token", 100);
+  }
+
+  @Benchmark
+  public List<ResourceModel> translateFromListRequest(final Page page) {
+    return Translator.translateFromListRequest(page.describeNatGatewaysResponse);
+  }
+
+  @Benchmark
+  public List<ResourceModel> translateFromListRequestWithProperties(final Page page) {
+    return Translator.translateFromListRequestWithProperties(page.describeNatGatewaysResponse);
+  }
+}
@@ -0,0 +1,94 @@
+package software.amazon.ec2.natgateway;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket whose rate adapts to EC2 throttling. Every throttled call cuts the rate to 70%, and every successful call adds
+ * 1/rate to it, which grows the rate by about one call per second each second while calls keep succeeding. The bucket
+ * holds at most one second worth of calls, so a container that was idle cannot burst far past the learnt rate.
+ *
+ * EC2 throttles every account in every region on its own, so a container keeps one limiter per account and region,
+ * shared by the invocations it serves for them (see BaseHandlerStd). Throttling learnt by an invocation slows down the
+ * following ones of the same account and region, and only those.
+ */
+public class AdaptiveRateLimiter {
+  static final double DEFAULT_MAX_RATE = 50;
+  static final double MIN_RATE = 0.5;
+  static final double DECREASE_FACTOR = 0.7;
+
+  private final double maxRate;
+  private final LongSupplier nanoClock;
+
+  // Guarded by this
+  private double rate;
+  private double tokens;
+  private long lastRefillNanos;
+
+  public AdaptiveRateLimiter() {
+    this(DEFAULT_MAX_RATE, System::nanoTime);
+  }
+
+  AdaptiveRateLimiter(final double maxRate, final LongSupplier nanoClock) {
+    this.maxRate = maxRate;
+    this.nanoClock = nanoClock;
+    this.rate = maxRate;
+    this.tokens = maxRate;
+    this.lastRefillNanos = nanoClock.getAsLong();
+  }
+
+  /**
+   * @param accountId the account the calls are made in
+   * @param region    the region the calls are made in
+   * @return the key of the limiter of the account and region
+   */
+  static String key(final String accountId, final String region) {
+    return accountId + '/' + region;
+  }
+
+  /**
+   * Blocks until the calling thread may make a call. An interrupted wait returns early with the interrupt flag set.
+   */
+  public void acquire() {
+    final long waitNanos = reserve();
+    if (waitNanos > 0) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Takes a token, going into debt when the bucket is empty so that waiting callers are served in turn.
+   * @return how long the caller has to wait before making its call, in nanoseconds
+   */
+  synchronized long reserve() {
+    refill();
+    tokens -= 1;
+    return tokens >= 0 ? 0 : (long) (-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+  }
+
+  public synchronized void onSuccess() {
+    refill();
+    rate = Math.min(maxRate, rate + 1 / rate);
+  }
+
+  public synchronized void onThrottle() {
+    refill();
+    rate = Math.max(MIN_RATE, rate * DECREASE_FACTOR);
+    // Drop the burst the bucket still holds, it was sized for the previous rate
+    tokens = Math.min(tokens, 0);
+  }
+
+  public synchronized double getRate() {
+    return rate;
+  }
+
+  private void refill() {
+    final long now = nanoClock.getAsLong();
+    tokens = Math.min(Math.max(1, rate), tokens + rate * (now - lastRefillNanos) / TimeUnit.SECONDS.toNanos(1));
+    lastRefillNanos = now;
+  }
+}
@@ -0,0 +1,174 @@
+package software.amazon.ec2.natgateway;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+/**
+ * Bytes allocated by the thread serving one handler invocation, split by phase. The profile is bound to the thread
+ * between start and finish, and code run through measure is attributed to the given phase. Phases nest, and the bytes of
+ * an inner phase are only counted there, so a poll's DescribeNatGateways call is counted as a service call and not as
+ * stabilization, and the phases add up to the total. Whatever runs outside of a measured phase is counted as OTHER.
+ * A profile started while another one is running on the thread adds its bytes to that one, phase by phase, when it
+ * finishes, so a caller can profile several invocations at once.
+ *
+ * Only the invocation thread is counted, allocations made on executor threads, such as the parallel tag calls of the
+ * Update handler, are left out. Where the JVM does not provide per-thread allocation counters every phase stays at 0.
+ */
+public final class AllocationProfile {
+  public enum Phase {
+    // Model to EC2 request, see Translator
+    TRANSLATE,
+    // EC2 call made through the ProxyClient, including the SDK's marshalling and unmarshalling
+    SERVICE_CALL,
+    // Stabilization polling, apart from the calls it makes
+    STABILIZE,
+    // EC2 response to model, see Translator
+    RESULT_TRANSLATION,
+    // Trace export and metrics emission once the invocation returned
+    TELEMETRY,
+    OTHER
+  }
+
+  private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = threadMXBean();
+  private static final ThreadLocal<AllocationProfile> CURRENT = new ThreadLocal<>();
+
+  private final long threadId = Thread.currentThread().getId();
+  private final long[] bytes = new long[Phase.values().length];
+  // Profile bound to the thread when this one started, bound again when this one finishes
+  private final AllocationProfile enclosing;
+  private Phase phase = Phase.OTHER;
+  private long mark;
+  private boolean finished;
+
+  private AllocationProfile(final AllocationProfile enclosing) {
+    this.enclosing = enclosing;
+    if (enclosing != null) {
+      enclosing.enter(enclosing.phase);
+      this.mark = enclosing.mark;
+    } else {
+      this.mark = allocatedBytes();
+    }
+  }
+
+  /**
+   * Starts profiling the current thread.
+   * @return the profile, to be finished on the same thread
+   */
+  public static AllocationProfile start() {
+    final AllocationProfile profile = new AllocationProfile(CURRENT.get());
+    CURRENT.set(profile);
+    return profile;
+  }
+
+  /**
+   * @return whether the JVM counts the bytes allocated by each thread
+   */
+  public static boolean isSupported() {
+    return THREAD_MX_BEAN != null;
+  }
+
+  /**
+   * Runs the given code, attributing what it allocates to the phase when the current thread is being profiled.
+   * @param phase the phase the code belongs to
+   * @param code  the code to run
+   * @return what the code returned
+   */
+  public static <T> T measure(final Phase phase, final Supplier<T> code) {
+    final AllocationProfile profile = CURRENT.get();
+    if (profile == null || profile.finished) {
+      return code.get();
+    }
+    final Phase outer = profile.enter(phase);
+    try {
+      return code.get();
+    } finally {
+      profile.enter(outer);
+    }
+  }
+
+  /**
+   * Stops profiling, and adds the bytes to the enclosing profile if there is one. Calling it again has no effect.
+   * @return this profile
+   */
+  public AllocationProfile finish() {
+    if (!finished) {
+      enter(Phase.OTHER);
+      finished = true;
+      if (enclosing != null) {
+        for (final Phase each : Phase.values()) {
+          enclosing.bytes[each.ordinal()] += getBytes(each);
+        }
+        enclosing.mark = mark;
+        CURRENT.set(enclosing);
+      } else {
+        CURRENT.remove();
+      }
+    }
+    return this;
+  }
+
+  /**
+   * @param phase a phase
+   * @return the bytes allocated in the phase so far
+   */
+  public long getBytes(final Phase phase) {
+    return bytes[phase.ordinal()];
+  }
+
+  /**
+   * @return the bytes allocated in all phases so far
+   */
+  public long getTotalBytes() {
+    long total = 0;
+    for (final long phaseBytes : bytes) {
+      total += phaseBytes;
+    }
+    return total;
+  }
+
+  /**
+   * @return the profile as a single log line of key=value pairs
+   */
+  @Override
+  public String toString() {
+    final StringBuilder line = new StringBuilder("AllocatedBytes total=").append(getTotalBytes());
+    for (final Phase each : Phase.values()) {
+      line.append(' ').append(each.name().toLowerCase()).append('=').append(getBytes(each));
+    }
+    return line.toString();
+  }
+
+  /**
+   * Charges the bytes allocated since the last switch to the running phase, then switches to the given one.
+   * @param next the phase to switch to
+   * @return the phase that was running
+   */
+  private Phase enter(final Phase next) {
+    final long now = allocatedBytes();
+    bytes[phase.ordinal()] += now - mark;
+    mark = now;
+    final Phase previous = phase;
+    phase = next;
+    return previous;
+  }
+
+  private long allocatedBytes() {
+    return THREAD_MX_BEAN != null ? THREAD_MX_BEAN.getThreadAllocatedBytes(threadId) : 0;
+  }
+
+  private static com.sun.management.ThreadMXBean threadMXBean() {
+    try {
+      final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      if (bean instanceof com.sun.management.ThreadMXBean) {
+        final com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        if (sunBean.isThreadAllocatedMemorySupported()) {
+          sunBean.setThreadAllocatedMemoryEnabled(true);
+          return sunBean;
+        }
+      }
+    } catch (final UnsupportedOperationException | SecurityException e) {
+      // Profiles stay empty
+    }
+    return null;
+  }
+}
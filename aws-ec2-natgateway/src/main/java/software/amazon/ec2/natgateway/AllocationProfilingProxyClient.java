@@ -0,0 +1,21 @@
+package software.amazon.ec2.natgateway;
+
+import software.amazon.awssdk.awscore.AwsRequest;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.cloudformation.proxy.ProxyClient;
+
+import java.util.function.Supplier;
+
+/**
+ * ProxyClient that attributes what every call allocates to the SERVICE_CALL phase of the running AllocationProfile.
+ */
+public class AllocationProfilingProxyClient extends ForwardingProxyClient {
+  public AllocationProfilingProxyClient(final ProxyClient<Ec2Client> delegate) {
+    super(delegate);
+  }
+
+  @Override
+  protected <T> T around(final AwsRequest request, final Supplier<T> call) {
+    return AllocationProfile.measure(AllocationProfile.Phase.SERVICE_CALL, call);
+  }
+}
@@ -1,7 +1,16 @@
 package software.amazon.ec2.natgateway;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.ConnectivityType;
 import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysRequest;
 import software.amazon.awssdk.services.ec2.model.NatGateway;
 import software.amazon.awssdk.services.ec2.model.State;
@@ -12,9 +21,12 @@ import software.amazon.cloudformation.exceptions.CfnInvalidRequestException;
 import software.amazon.cloudformation.exceptions.CfnNotFoundException;
 import software.amazon.cloudformation.exceptions.CfnServiceLimitExceededException;
 import software.amazon.cloudformation.exceptions.CfnServiceInternalErrorException;
+import software.amazon.cloudformation.exceptions.CfnThrottlingException;
 import software.amazon.cloudformation.exceptions.ResourceNotFoundException;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.CallChain;
 import software.amazon.cloudformation.proxy.Logger;
+import software.amazon.cloudformation.proxy.OperationStatus;
 import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
@@ -23,21 +35,164 @@ import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
  * This abstract class contains functionality shared across the different handlers that extend it.
  */
 public abstract class BaseHandlerStd extends BaseHandler<CallbackContext> {
+  // Longest a single invocation keeps polling in-process before handing control back to CloudFormation
+  static final Duration DEFAULT_STABILIZATION_BUDGET = Duration.ofSeconds(45);
+  static final Duration DEFAULT_STABILIZATION_POLL_INTERVAL = Duration.ofSeconds(5);
+  static final int MIN_CALLBACK_DELAY_SECONDS = 10;
+  static final int MAX_CALLBACK_DELAY_SECONDS = 60;
+  // Polls and callback delays are spread by up to this fraction either way, so that stacks started together do not
+  // keep polling in lockstep
+  static final double POLL_JITTER = 0.2;
+  // Transient failures in a row tolerated before the handler gives up, and the first retry delay, doubled per retry
+  static final int MAX_TRANSIENT_RETRIES = 8;
+  static final int MIN_RETRY_DELAY_SECONDS = 5;
+  // How long after CreateNatGateway returned a NAT Gateway that can not be found is taken for EC2 eventual consistency
+  static final Duration DEFAULT_VISIBILITY_GRACE_PERIOD = Duration.ofMinutes(2);
+
+  // Environment variable that, set to true, has Read served from the describe cache
+  static final String DESCRIBE_CACHE_VARIABLE = "NAT_GATEWAY_DESCRIBE_CACHE";
+  // Bounds of the describe cache, short enough that a change made outside of CloudFormation shows up quickly
+  static final int DESCRIBE_CACHE_MAX_ENTRIES = 1000;
+  static final Duration DESCRIBE_CACHE_TTL = Duration.ofSeconds(5);
+
+  // Metrics emitted by every invocation, on top of the per-call ones of MetricsProxyClient
+  static final String STABILIZATION_POLLS = "StabilizationPolls";
+  static final String TIME_TO_STABLE = "TimeToStable";
+  static final String ALLOCATED_BYTES = "AllocatedBytes";
+  static final String CONNECTIVITY_TYPE_DIMENSION = "ConnectivityType";
+
+  // Prefix of the call-graph stage names, which also name the spans of an operation
+  static final String STAGE_PREFIX = "AWS-EC2-NatGateway::";
+
+  // Shared by the invocations served by this container for the same account and region, see AdaptiveRateLimiter
+  private static final ConcurrentMap<String, AdaptiveRateLimiter> RATE_LIMITERS = new ConcurrentHashMap<>();
+  // Shared by every invocation served by this container when the describe cache is turned on, see DescribeCache
+  private static final DescribeCache DESCRIBE_CACHE = Boolean.parseBoolean(setting(DESCRIBE_CACHE_VARIABLE))
+          ? new DescribeCache(DESCRIBE_CACHE_MAX_ENTRIES, DESCRIBE_CACHE_TTL) : null;
+  // Shared by every invocation served by this container, see SpanExporter
+  private static final SpanExporter SPAN_EXPORTER = SpanExporter.fromEnvironment();
+
+  @lombok.Setter(lombok.AccessLevel.PACKAGE)
+  private Duration stabilizationBudget = DEFAULT_STABILIZATION_BUDGET;
+
+  @lombok.Setter(lombok.AccessLevel.PACKAGE)
+  private Duration stabilizationPollInterval = DEFAULT_STABILIZATION_POLL_INTERVAL;
+
+  @lombok.Setter(lombok.AccessLevel.PACKAGE)
+  private Duration visibilityGracePeriod = DEFAULT_VISIBILITY_GRACE_PERIOD;
+
+  // Null when the describe cache is off
+  @lombok.Getter(lombok.AccessLevel.PROTECTED)
+  @lombok.Setter(lombok.AccessLevel.PACKAGE)
+  private DescribeCache describeCache = DESCRIBE_CACHE;
+
+  @lombok.Setter(lombok.AccessLevel.PACKAGE)
+  private SpanExporter spanExporter = SPAN_EXPORTER;
+
+  /**
+   * A single stabilization poll. Implementations describe the NAT Gateway, record the observed state in the callback
+   * context and throw if the NAT Gateway can never reach the desired state.
+   */
+  @FunctionalInterface
+  protected interface StabilizationCheck {
+    boolean isStabilized(ProxyClient<Ec2Client> proxyClient, ResourceModel model, CallbackContext callbackContext);
+  }
+
   @Override
   public final ProgressEvent<ResourceModel, CallbackContext> handleRequest(
     final AmazonWebServicesClientProxy proxy,
     final ResourceHandlerRequest<ResourceModel> request,
     final CallbackContext callbackContext,
     final Logger logger) {
-    return handleRequest(
+    return handleRequestWithRetries(
       proxy,
       request,
       callbackContext != null ? callbackContext : new CallbackContext(),
-      proxy.newProxy(ClientBuilder::getClient),
+      new RateLimitedProxyClient(proxy.newProxy(ClientBuilder::getClient), rateLimiter(request)),
       logger
     );
   }
 
+  /**
+   * @param request the request naming the account and region the calls are made in
+   * @return the rate limiter of the account and region
+   */
+  static AdaptiveRateLimiter rateLimiter(final ResourceHandlerRequest<ResourceModel> request) {
+    return RATE_LIMITERS.computeIfAbsent(AdaptiveRateLimiter.key(request.getAwsAccountId(), request.getRegion()),
+            key -> new AdaptiveRateLimiter());
+  }
+
+  /**
+   * Runs the handler, turning a transient EC2 failure into an IN_PROGRESS event so that CloudFormation re-invokes the
+   * handler after a backoff instead of failing the operation, until MAX_TRANSIENT_RETRIES failures in a row were seen.
+   * The call graph is not serialized, see CallbackContext, so a re-invocation resumes from the checkpoints of the
+   * callback context instead: a Create that recorded its createdTime and a Delete that recorded its
+   * deletionRequestedTime only wait for the NAT Gateway, and the other steps are made again.
+   * Handlers that can not return IN_PROGRESS, see mutatesNatGateway, get the exception.
+   * What the invocation allocates is profiled by phase and logged once it returns, see AllocationProfile, and its
+   * metrics are emitted as embedded metric format lines, see MetricsRegistry. When a span exporter is configured, its
+   * stages and EC2 calls are traced and handed to the exporter, see Trace.
+   */
+  final ProgressEvent<ResourceModel, CallbackContext> handleRequestWithRetries(
+    final AmazonWebServicesClientProxy proxy,
+    final ResourceHandlerRequest<ResourceModel> request,
+    final CallbackContext callbackContext,
+    final ProxyClient<Ec2Client> proxyClient,
+    final Logger logger) {
+    final MetricsRegistry metrics = new MetricsRegistry(operation());
+    callbackContext.setMetrics(metrics);
+    // Without an exporter the spans would be thrown away, so the invocation is not traced at all
+    final Trace trace = spanExporter != SpanExporter.NONE ? Trace.resume(callbackContext, STAGE_PREFIX + operation()) : null;
+    callbackContext.setTrace(trace);
+    final AllocationProfile allocationProfile = AllocationProfile.start();
+    ProgressEvent<ResourceModel, CallbackContext> outcome = null;
+    final ProgressEvent<ResourceModel, CallbackContext> progress;
+    try {
+      final ProxyClient<Ec2Client> measuredProxyClient =
+              new AllocationProfilingProxyClient(new MetricsProxyClient(proxyClient, metrics));
+      progress = handleRequest(proxy, request, callbackContext,
+              trace != null ? new TracingProxyClient(measuredProxyClient, trace) : measuredProxyClient, logger);
+      outcome = progress;
+    } catch (final BaseHandlerException e) {
+      if (!mutatesNatGateway() || !recordTransientFailure(e, callbackContext, logger)) {
+        throw e;
+      }
+      final int retryDelaySeconds = computeRetryDelaySeconds(callbackContext);
+      logger.log(String.format("%s operation hit a transient failure, retrying in %d seconds.", ResourceModel.TYPE_NAME,
+              retryDelaySeconds));
+      outcome = ProgressEvent.defaultInProgressHandler(callbackContext, retryDelaySeconds, request.getDesiredResourceState());
+      return outcome;
+    } finally {
+      // Also when the operation failed, it may have changed the NAT Gateway before failing
+      if (describeCache != null && mutatesNatGateway() && request.getDesiredResourceState() != null
+              && request.getDesiredResourceState().getNatGatewayId() != null) {
+        describeCache.invalidate(describeCacheKey(request));
+      }
+      if (trace != null) {
+        final ProgressEvent<ResourceModel, CallbackContext> tracedOutcome = outcome;
+        AllocationProfile.measure(AllocationProfile.Phase.TELEMETRY, () -> {
+          exportTrace(trace, tracedOutcome, callbackContext, logger);
+          return null;
+        });
+      }
+      // The metric holds what was allocated up to now, the logged profile also counts emitting the metrics
+      if (AllocationProfile.isSupported()) {
+        metrics.record(ALLOCATED_BYTES, MetricsRegistry.Unit.BYTES, allocationProfile.getTotalBytes());
+      }
+      callbackContext.setMetrics(null);
+      AllocationProfile.measure(AllocationProfile.Phase.TELEMETRY, () -> {
+        metrics.emit(logger);
+        return null;
+      });
+      allocationProfile.finish();
+      if (AllocationProfile.isSupported()) {
+        logger.log(String.format("%s %s", getClass().getSimpleName(), allocationProfile));
+      }
+    }
+    callbackContext.setTransientRetries(0);
+    return progress;
+  }
+
   protected abstract ProgressEvent<ResourceModel, CallbackContext> handleRequest(
     final AmazonWebServicesClientProxy proxy,
     final ResourceHandlerRequest<ResourceModel> request,
@@ -45,6 +200,84 @@ public abstract class BaseHandlerStd extends BaseHandler<CallbackContext> {
     final ProxyClient<Ec2Client> proxyClient,
     final Logger logger);
 
+  /**
+   * Starts a call-graph stage, traced as a span of the invocation until the next stage starts.
+   * @param proxy             aws proxy used to initiate the proxy chain for the call graph
+   * @param stage             the stage name, which also names the call graph
+   * @param proxyClient       aws ec2 client used to make request
+   * @param model             Nat Gateway Resource Model
+   * @param callbackContext   the callback context holding the trace
+   * @return the request maker of the call chain, as returned by proxy.initiate
+   */
+  protected static CallChain.RequestMaker<Ec2Client, ResourceModel, CallbackContext> initiate(
+          final AmazonWebServicesClientProxy proxy,
+          final String stage,
+          final ProxyClient<Ec2Client> proxyClient,
+          final ResourceModel model,
+          final CallbackContext callbackContext) {
+    startStage(callbackContext, stage);
+    return proxy.initiate(stage, proxyClient, model, callbackContext);
+  }
+
+  /**
+   * Starts a stage that does not go through proxy.initiate, such as the stabilization polls.
+   * @param callbackContext   the callback context holding the trace, which is absent when the handler is called directly
+   * @param stage             the stage name
+   */
+  protected static void startStage(final CallbackContext callbackContext, final String stage) {
+    if (callbackContext.getTrace() != null) {
+      callbackContext.getTrace().startStage(stage);
+    }
+  }
+
+  /**
+   * Hands the spans of the invocation to the span exporter. A failed export is only logged, as the operation itself
+   * did not fail.
+   * @param trace             the trace of the invocation
+   * @param outcome           the event returned by the invocation, null if it threw
+   * @param callbackContext   the callback context holding the trace
+   * @param logger            used to log
+   */
+  private void exportTrace(final Trace trace, final ProgressEvent<ResourceModel, CallbackContext> outcome,
+                           final CallbackContext callbackContext, final Logger logger) {
+    callbackContext.setTrace(null);
+    final boolean operationDone = outcome == null || !outcome.isInProgress();
+    final List<Span> spans = trace.finish(outcome == null ? OperationStatus.FAILED.toString() : outcome.getStatus().toString(),
+            operationDone);
+    try {
+      spanExporter.export(spans);
+    } catch (final RuntimeException e) {
+      logger.log(String.format("Exporting %d spans failed: %s", spans.size(), e));
+    }
+  }
+
+  /**
+   * Reads a setting of the container the handlers run in. The wrapper builds each handler once per container, so a
+   * setting is read when the handler is built and holds for every invocation it serves.
+   * @param variable the environment variable holding the setting
+   * @return the trimmed value of the setting, or null if it is not set
+   */
+  static String setting(final String variable) {
+    final String value = System.getenv(variable);
+    return value == null || value.trim().isEmpty() ? null : value.trim();
+  }
+
+  /**
+   * @return the value of the Operation dimension of the metrics, the handler name without the Handler suffix
+   */
+  private String operation() {
+    final String name = getClass().getSimpleName();
+    return name.endsWith("Handler") ? name.substring(0, name.length() - "Handler".length()) : name;
+  }
+
+  /**
+   * @return whether this handler changes the NAT Gateway. CloudFormation re-invokes the Create, Update and Delete
+   * handlers, so they may answer a transient failure with IN_PROGRESS while Read and List keep failing fast, and they
+   * invalidate the cached describe of the NAT Gateway they change.
+   */
+  protected boolean mutatesNatGateway() {
+    return false;
+  }
 
   /**
    * Translates the exceptions to CloudFormation exceptions based on the EC2 error codes.
@@ -71,13 +304,60 @@ public abstract class BaseHandlerStd extends BaseHandler<CallbackContext> {
       case "TagLimitExceeded":
       case "NatGatewayLimitExceeded": return new CfnServiceLimitExceededException(e);
       case "UnauthorizedOperation": return new CfnAccessDeniedException(e);
+      case "RequestLimitExceeded":
+      case "Throttling": return new CfnThrottlingException(e);
       case "InternalError":
       case "InternalFailure":
+      case "Unavailable":
       case "ServiceUnavailable": return new CfnServiceInternalErrorException(e);
-      default: return new CfnGeneralServiceException(e);
+      default: return e.statusCode() >= 500 ? new CfnServiceInternalErrorException(e) : new CfnGeneralServiceException(e);
     }
   }
 
+  /**
+   * Runs a translation of the model into an EC2 request, attributing what it allocates to the TRANSLATE phase.
+   * @param translation the Translator call
+   * @return the EC2 request
+   */
+  protected static <T> T translate(final Supplier<T> translation) {
+    return AllocationProfile.measure(AllocationProfile.Phase.TRANSLATE, translation);
+  }
+
+  /**
+   * Runs a translation of an EC2 response into models, attributing what it allocates to the RESULT_TRANSLATION phase.
+   * @param translation the Translator call
+   * @return the translated result
+   */
+  protected static <T> T translateResult(final Supplier<T> translation) {
+    return AllocationProfile.measure(AllocationProfile.Phase.RESULT_TRANSLATION, translation);
+  }
+
+  /**
+   * @param e an exception returned by handleError
+   * @return whether the same call may succeed if made again later
+   */
+  static boolean isTransient(final BaseHandlerException e) {
+    return e instanceof CfnServiceInternalErrorException || e instanceof CfnThrottlingException;
+  }
+
+  /**
+   * Counts a transient failure in the callback context.
+   * @param e               the failure
+   * @param callbackContext the callback context holding the retry count
+   * @param logger          used to log
+   * @return true if the failure is transient and the retry budget is not spent yet
+   */
+  private static boolean recordTransientFailure(final BaseHandlerException e, final CallbackContext callbackContext,
+                                                final Logger logger) {
+    if (!isTransient(e) || callbackContext.getTransientRetries() >= MAX_TRANSIENT_RETRIES) {
+      return false;
+    }
+    callbackContext.setTransientRetries(callbackContext.getTransientRetries() + 1);
+    logger.log(String.format("Transient failure %d of %d: %s", callbackContext.getTransientRetries(),
+            MAX_TRANSIENT_RETRIES, e.getMessage()));
+    return true;
+  }
+
   /**
    * Reads the NAT Gateway resource by calling the describeNatGateways API
    * @param describeNatGatewaysRequest   Request made by the client
@@ -91,8 +371,13 @@ public abstract class BaseHandlerStd extends BaseHandler<CallbackContext> {
           final Logger logger) {
     NatGateway natGateway;
     try {
-      natGateway = proxyClient.injectCredentialsAndInvokeV2(describeNatGatewaysRequest,
-              proxyClient.client()::describeNatGateways).natGateways().get(0);
+      final List<NatGateway> natGateways = proxyClient.injectCredentialsAndInvokeV2(describeNatGatewaysRequest,
+              proxyClient.client()::describeNatGateways).natGateways();
+      // EC2 may answer with no NAT Gateway instead of an error for one it does not know (yet)
+      if (natGateways.isEmpty()) {
+        throw new ResourceNotFoundException(ResourceModel.TYPE_NAME, String.join(",", describeNatGatewaysRequest.natGatewayIds()));
+      }
+      natGateway = natGateways.get(0);
       // The Read Handler should only return a non-deleted NAT Gateway
       if(State.DELETED.toString().equalsIgnoreCase(natGateway.stateAsString())) {
         throw new ResourceNotFoundException(ResourceModel.TYPE_NAME, natGateway.natGatewayId());
@@ -103,4 +388,176 @@ public abstract class BaseHandlerStd extends BaseHandler<CallbackContext> {
     logger.log(String.format("%s has successfully been read.", ResourceModel.TYPE_NAME));
     return natGateway;
   }
+
+  /**
+   * @param request the request naming the NAT Gateway
+   * @return the key of the NAT Gateway in the describe cache
+   */
+  protected static String describeCacheKey(final ResourceHandlerRequest<ResourceModel> request) {
+    return DescribeCache.key(request.getAwsAccountId(), request.getRegion(), request.getDesiredResourceState().getNatGatewayId());
+  }
+
+  /**
+   * A NAT Gateway that can not be found right after CreateNatGateway returned is most likely not visible yet, as EC2 is
+   * eventually consistent, so it is only taken as missing once the visibility grace period has passed.
+   * @param callbackContext the callback context holding the creation time
+   * @return true if this operation created the NAT Gateway less than the grace period ago
+   */
+  protected boolean isWithinVisibilityGrace(final CallbackContext callbackContext) {
+    return callbackContext.getCreatedTime() != null
+            && System.currentTimeMillis() - callbackContext.getCreatedTime() < visibilityGracePeriod.toMillis();
+  }
+
+  /**
+   * Returns the NAT Gateway already described during this request when it belongs to the given model, so that a chained
+   * Read can be answered without another DescribeNatGateways call.
+   * @param model             Nat Gateway Resource Model
+   * @param callbackContext   the callback context holding the request-scoped snapshot
+   * @return the snapshot, or empty if none was taken for this NAT Gateway
+   */
+  protected Optional<NatGateway> findNatGatewaySnapshot(final ResourceModel model, final CallbackContext callbackContext) {
+    return Optional.ofNullable(callbackContext.getNatGatewaySnapshot())
+            .filter(natGateway -> natGateway.natGatewayId().equals(model.getNatGatewayId()))
+            .filter(natGateway -> !State.DELETED.toString().equalsIgnoreCase(natGateway.stateAsString()));
+  }
+
+  /**
+   * Polls the given stabilization check in-process while the invocation's stabilization budget allows. Once the
+   * budget is spent, an IN_PROGRESS event is returned so that CloudFormation re-invokes the handler after the computed
+   * callback delay. The attempt count, first poll time and last observed state live in the callback context, so the
+   * re-invocation resumes where this one stopped. A poll that fails transiently is polled again, until
+   * MAX_TRANSIENT_RETRIES polls in a row failed.
+   * @param progress          holds the current progress data
+   * @param proxyClient       aws ec2 client used to make request
+   * @param check             the stabilization poll to run
+   * @param logger            used to log
+   * @return ProgressEvent    the given progress once stabilized, otherwise an IN_PROGRESS event with a callback delay
+   */
+  protected ProgressEvent<ResourceModel, CallbackContext> stabilize(
+          final ProgressEvent<ResourceModel, CallbackContext> progress,
+          final ProxyClient<Ec2Client> proxyClient,
+          final StabilizationCheck check,
+          final Logger logger) {
+    return stabilize(progress, proxyClient, check, false, logger);
+  }
+
+  /**
+   * Like {@link #stabilize(ProgressEvent, ProxyClient, StabilizationCheck, Logger)}, but when the caller has just
+   * observed the NAT Gateway in a transitional state, the first poll is skipped: it waits one poll interval without
+   * counting as a stabilization attempt.
+   * @param progress          holds the current progress data
+   * @param proxyClient       aws ec2 client used to make request
+   * @param check             the stabilization poll to run
+   * @param alreadyObserved   whether the caller has just observed the NAT Gateway not to be stabilized
+   * @param logger            used to log
+   * @return ProgressEvent    the given progress once stabilized, otherwise an IN_PROGRESS event with a callback delay
+   */
+  protected ProgressEvent<ResourceModel, CallbackContext> stabilize(
+          final ProgressEvent<ResourceModel, CallbackContext> progress,
+          final ProxyClient<Ec2Client> proxyClient,
+          final StabilizationCheck check,
+          final boolean alreadyObserved,
+          final Logger logger) {
+    final ResourceModel model = progress.getResourceModel();
+    final CallbackContext callbackContext = progress.getCallbackContext();
+    final long deadline = System.currentTimeMillis() + stabilizationBudget.toMillis();
+
+    if (callbackContext.getStabilizationStartTime() == null) {
+      callbackContext.setStabilizationStartTime(System.currentTimeMillis());
+    }
+    startStage(callbackContext, STAGE_PREFIX + operation() + "::Stabilize");
+
+    boolean poll = !alreadyObserved;
+    while (true) {
+      if (poll) {
+        callbackContext.setStabilizationAttempts(callbackContext.getStabilizationAttempts() + 1);
+        boolean stabilized;
+        try {
+          stabilized = AllocationProfile.measure(AllocationProfile.Phase.STABILIZE,
+                  () -> check.isStabilized(proxyClient, model, callbackContext));
+          callbackContext.setTransientRetries(0);
+        } catch (final BaseHandlerException e) {
+          // A failed poll tells nothing about the NAT Gateway, so it only counts against the retry budget
+          if (!recordTransientFailure(e, callbackContext, logger)) {
+            throw e;
+          }
+          stabilized = false;
+        }
+        if (stabilized) {
+          recordStabilized(model, callbackContext);
+          return progress;
+        }
+      }
+      poll = true;
+      final long pollInterval = jitter(stabilizationPollInterval.toMillis());
+      if (System.currentTimeMillis() + pollInterval > deadline) {
+        break;
+      }
+      try {
+        Thread.sleep(pollInterval);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+
+    final int callbackDelaySeconds = computeCallbackDelaySeconds(callbackContext);
+    logger.log(String.format("%s %s is %s after %d stabilization attempts, checking again in %d seconds.",
+            ResourceModel.TYPE_NAME, model.getNatGatewayId(), callbackContext.getLastObservedState(),
+            callbackContext.getStabilizationAttempts(), callbackDelaySeconds));
+    return ProgressEvent.defaultInProgressHandler(callbackContext, callbackDelaySeconds, model);
+  }
+
+  /**
+   * Records how many polls, over all invocations, and how long the NAT Gateway took to stabilize.
+   * @param model             Nat Gateway Resource Model holding the connectivity type
+   * @param callbackContext   the callback context holding the stabilization progress and the invocation's metrics
+   */
+  private void recordStabilized(final ResourceModel model, final CallbackContext callbackContext) {
+    final MetricsRegistry metrics = callbackContext.getMetrics();
+    if (metrics == null) {
+      return;
+    }
+    final String connectivityType = model.getConnectivityType() != null
+            ? model.getConnectivityType() : ConnectivityType.PUBLIC.toString();
+    metrics.record(STABILIZATION_POLLS, MetricsRegistry.Unit.COUNT, callbackContext.getStabilizationAttempts(),
+            CONNECTIVITY_TYPE_DIMENSION, connectivityType);
+    metrics.record(TIME_TO_STABLE, MetricsRegistry.Unit.MILLISECONDS,
+            System.currentTimeMillis() - callbackContext.getStabilizationStartTime(),
+            CONNECTIVITY_TYPE_DIMENSION, connectivityType);
+  }
+
+  /**
+   * Backs off in proportion to how long the NAT Gateway has already been transitioning, so short transitions are
+   * picked up quickly and long ones do not cause needless re-invocations. The delay is jittered like the polls.
+   * @param callbackContext the callback context holding the stabilization start time
+   * @return the callback delay in seconds
+   */
+  static int computeCallbackDelaySeconds(final CallbackContext callbackContext) {
+    final long elapsedSeconds = Duration.ofMillis(
+            System.currentTimeMillis() - callbackContext.getStabilizationStartTime()).getSeconds();
+    return clampCallbackDelay(jitter(clampCallbackDelay(elapsedSeconds / 4)));
+  }
+
+  /**
+   * Backs off exponentially with the number of transient failures in a row. The delay is jittered like the polls.
+   * @param callbackContext the callback context holding the retry count
+   * @return the callback delay in seconds
+   */
+  static int computeRetryDelaySeconds(final CallbackContext callbackContext) {
+    final long delaySeconds = (long) MIN_RETRY_DELAY_SECONDS << Math.min(16, callbackContext.getTransientRetries() - 1);
+    return (int) Math.min(MAX_CALLBACK_DELAY_SECONDS, Math.max(1, jitter(delaySeconds)));
+  }
+
+  private static int clampCallbackDelay(final long seconds) {
+    return (int) Math.min(MAX_CALLBACK_DELAY_SECONDS, Math.max(MIN_CALLBACK_DELAY_SECONDS, seconds));
+  }
+
+  /**
+   * @param value a poll interval or delay
+   * @return the value moved by a random amount of up to POLL_JITTER of it, either way
+   */
+  static long jitter(final long value) {
+    return Math.round(value * (1 + POLL_JITTER * (2 * ThreadLocalRandom.current().nextDouble() - 1)));
+  }
 }
@@ -0,0 +1,138 @@
+package software.amazon.ec2.natgateway;
+
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.cloudformation.exceptions.BaseHandlerException;
+import software.amazon.cloudformation.exceptions.CfnNotFoundException;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Applies tag changes to many NAT Gateways at once, for batch drivers that propagate a tag change across a fleet. NAT
+ * Gateways that get the same tags created, or the same tags removed, share their CreateTags or DeleteTags calls, each
+ * naming up to MAX_RESOURCES_PER_CALL NAT Gateways and TagDiff.MAX_TAGS_PER_CALL tags. The calls are made
+ * concurrently, so changing a stack-level tag on 500 NAT Gateways takes one call instead of 500 Update Handler runs.
+ *
+ * A tagging call fails as a whole, so when a shared call fails because a NAT Gateway could not be found it is split in
+ * two and retried, until the missing NAT Gateways are isolated and the others are tagged. Any other failure is reported
+ * for every NAT Gateway of the call.
+ */
+public class BulkTagger {
+  // Most resource ids EC2 accepts in a CreateTags or DeleteTags call
+  static final int MAX_RESOURCES_PER_CALL = 1000;
+
+  // Tagging calls made concurrently
+  static final int MAX_CONCURRENT_CALLS = 8;
+
+  private final ProxyClient<Ec2Client> proxyClient;
+  private final Function<AwsServiceException, BaseHandlerException> errorHandler;
+  private final AtomicInteger calls = new AtomicInteger();
+
+  /**
+   * @param proxyClient aws ec2 client used to make request
+   */
+  public BulkTagger(final ProxyClient<Ec2Client> proxyClient) {
+    // Errors are translated the way the Update Handler translates them for a single NAT Gateway
+    this(proxyClient, new UpdateHandler()::handleError);
+  }
+
+  BulkTagger(final ProxyClient<Ec2Client> proxyClient,
+             final Function<AwsServiceException, BaseHandlerException> errorHandler) {
+    this.proxyClient = proxyClient;
+    this.errorHandler = errorHandler;
+  }
+
+  /**
+   * @param tagDiffs the tag changes of each NAT Gateway, by NAT Gateway id
+   * @return by NAT Gateway id, in the order of the tag changes: a success event if all its tags were changed, otherwise
+   * a failure event with the error of a call that failed for it
+   */
+  public Map<String, ProgressEvent<ResourceModel, CallbackContext>> apply(final Map<String, TagDiff> tagDiffs) {
+    final Map<Map<String, String>, List<String>> createGroups = new LinkedHashMap<>();
+    final Map<Map<String, String>, List<String>> deleteGroups = new LinkedHashMap<>();
+    tagDiffs.forEach((natGatewayId, tagDiff) -> {
+      if (!tagDiff.getTagsToCreate().isEmpty()) {
+        createGroups.computeIfAbsent(tagDiff.getTagsToCreate(), tags -> new ArrayList<>()).add(natGatewayId);
+      }
+      if (!tagDiff.getTagsToDelete().isEmpty()) {
+        deleteGroups.computeIfAbsent(tagDiff.getTagsToDelete(), tags -> new ArrayList<>()).add(natGatewayId);
+      }
+    });
+
+    final Map<String, BaseHandlerException> failures = new ConcurrentHashMap<>();
+    final List<CompletableFuture<Void>> pending = new ArrayList<>();
+    createGroups.forEach((tags, natGatewayIds) -> submit(tags, natGatewayIds, true, failures, pending));
+    deleteGroups.forEach((tags, natGatewayIds) -> submit(tags, natGatewayIds, false, failures, pending));
+    CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+
+    final Map<String, ProgressEvent<ResourceModel, CallbackContext>> results = new LinkedHashMap<>();
+    tagDiffs.keySet().forEach(natGatewayId -> {
+      final BaseHandlerException failure = failures.get(natGatewayId);
+      results.put(natGatewayId, failure == null
+              ? ProgressEvent.defaultSuccessHandler(ResourceModel.builder().natGatewayId(natGatewayId).build())
+              : ProgressEvent.defaultFailureHandler(failure, failure.getErrorCode()));
+    });
+    return results;
+  }
+
+  /**
+   * @return the number of tagging calls made so far
+   */
+  public int getCalls() {
+    return calls.get();
+  }
+
+  private void submit(final Map<String, String> tags, final List<String> natGatewayIds, final boolean create,
+                      final Map<String, BaseHandlerException> failures, final List<CompletableFuture<Void>> pending) {
+    for (final Map<String, String> tagChunk : TagDiff.chunk(tags)) {
+      for (int from = 0; from < natGatewayIds.size(); from += MAX_RESOURCES_PER_CALL) {
+        final List<String> resourceChunk = natGatewayIds.subList(from,
+                Math.min(natGatewayIds.size(), from + MAX_RESOURCES_PER_CALL));
+        pending.add(CompletableFuture.runAsync(() -> tag(tagChunk, resourceChunk, create, failures), LazyHolder.EXECUTOR));
+      }
+    }
+  }
+
+  private void tag(final Map<String, String> tags, final List<String> natGatewayIds, final boolean create,
+                   final Map<String, BaseHandlerException> failures) {
+    calls.incrementAndGet();
+    try {
+      if (create) {
+        proxyClient.injectCredentialsAndInvokeV2(Translator.translateToCreateTagsRequest(tags, natGatewayIds),
+                proxyClient.client()::createTags);
+      } else {
+        proxyClient.injectCredentialsAndInvokeV2(Translator.translateToDeleteTagsRequest(tags, natGatewayIds),
+                proxyClient.client()::deleteTags);
+      }
+    } catch (final AwsServiceException e) {
+      final BaseHandlerException exception = errorHandler.apply(e);
+      if (exception instanceof CfnNotFoundException && natGatewayIds.size() > 1) {
+        final int half = natGatewayIds.size() / 2;
+        tag(tags, natGatewayIds.subList(0, half), create, failures);
+        tag(tags, natGatewayIds.subList(half, natGatewayIds.size()), create, failures);
+      } else {
+        natGatewayIds.forEach(natGatewayId -> failures.putIfAbsent(natGatewayId, exception));
+      }
+    }
+  }
+
+  // Initialized on the first bulk tagging only. Daemon threads so an idle pool never keeps the JVM alive.
+  private static class LazyHolder {
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(MAX_CONCURRENT_CALLS, runnable -> {
+      final Thread thread = new Thread(runnable, "nat-gateway-bulk-tagging");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+}
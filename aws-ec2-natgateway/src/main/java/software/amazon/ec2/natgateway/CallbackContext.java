@@ -1,15 +1,73 @@
 package software.amazon.ec2.natgateway;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import software.amazon.awssdk.services.ec2.model.NatGateway;
 import software.amazon.cloudformation.proxy.StdCallbackContext;
 
 @lombok.Getter
 @lombok.Setter
 @lombok.ToString
 @lombok.EqualsAndHashCode(callSuper = true)
+@JsonIgnoreProperties({"callGraphs"})
 /**
  * CallbackContext is an extension of StdCallbackContext used to provide the given requests or responses that occur during
- * a Handler's progress. This is now empty but could be updated to include variables for the call graph to retain if
- * necessary.
+ * a Handler's progress. It also carries the stabilization progress so that a re-invocation can resume polling where the
+ * previous invocation stopped.
+ *
+ * Only these flat fields are serialized into the callback payload. The requests and responses StdCallbackContext
+ * memoizes for each call graph are left out, so the payload stays a few hundred bytes however many calls and polls the
+ * operation takes. They are still memoized for the rest of an invocation, and a re-invocation resumes from the
+ * checkpoints below instead of replaying them.
  */
 public class CallbackContext extends StdCallbackContext {
+    // Epoch millis at which CreateNatGateway returned, null until then. EC2 may not return the NAT Gateway for a while
+    // after that, which is tolerated until the visibility grace period has passed.
+    private Long createdTime;
+
+    // Epoch millis at which the deletion was requested, or found already requested, null until then. Once set, a
+    // re-invocation only waits for the NAT Gateway to be deleted.
+    private Long deletionRequestedTime;
+
+    // Number of DescribeNatGateways polls made so far while waiting for the NAT Gateway to stabilize
+    private int stabilizationAttempts;
+
+    // Epoch millis of the first stabilization poll, null until stabilization has started
+    private Long stabilizationStartTime;
+
+    // Last NAT Gateway state observed by a stabilization poll
+    private String lastObservedState;
+
+    // Number of transient EC2 failures in a row, reset by the next call that succeeds
+    private int transientRetries;
+
+    // Trace the operation's invocations join, see Trace, null while no span exporter is configured. The ids are hex, 32
+    // and 16 characters long.
+    private String traceId;
+    private String operationSpanId;
+
+    // Epoch millis at which the first invocation of the operation started, null until then
+    private Long operationStartTime;
+
+    // Number of handler invocations of the operation so far
+    private int invocations;
+
+    // NAT Gateway as last described during this invocation. It is never serialized, so it only lives as long as the
+    // request that produced it and lets the chained Read skip another DescribeNatGateways call.
+    @JsonIgnore
+    @lombok.ToString.Exclude
+    @lombok.EqualsAndHashCode.Exclude
+    private NatGateway natGatewaySnapshot;
+
+    // Spans of the running invocation, exported once it returns and never serialized
+    @JsonIgnore
+    @lombok.ToString.Exclude
+    @lombok.EqualsAndHashCode.Exclude
+    private Trace trace;
+
+    // Metrics of the running invocation, emitted once it returns and never serialized
+    @JsonIgnore
+    @lombok.ToString.Exclude
+    @lombok.EqualsAndHashCode.Exclude
+    private MetricsRegistry metrics;
 }
@@ -4,9 +4,29 @@ import software.amazon.awssdk.services.ec2.Ec2Client;
 import software.amazon.cloudformation.LambdaWrapper;
 
 public class ClientBuilder {
+  /**
+   * Returns the Ec2Client shared by every invocation served by this container. The client, along with its endpoint
+   * resolution, marshallers and the pooled connections of the shared HTTP client, is built on first use only.
+   * Credentials are not bound to the client: they are injected into each request by
+   * ProxyClient.injectCredentialsAndInvokeV2.
+   * @return the shared Ec2Client
+   */
   public static Ec2Client getClient() {
+    return LazyHolder.EC2_CLIENT;
+  }
+
+  /**
+   * Builds a new Ec2Client backed by the shared HTTP client.
+   * @return a new Ec2Client
+   */
+  static Ec2Client newClient() {
     return Ec2Client.builder()
             .httpClient(LambdaWrapper.HTTP_CLIENT)
             .build();
   }
+
+  // Initialized by the JVM on the first call to getClient, which makes the lazy initialization thread safe
+  private static class LazyHolder {
+    private static final Ec2Client EC2_CLIENT = newClient();
+  }
 }
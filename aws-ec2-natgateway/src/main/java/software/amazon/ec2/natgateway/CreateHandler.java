@@ -1,23 +1,30 @@
 package software.amazon.ec2.natgateway;
 
-import software.amazon.awssdk.awscore.AwsRequest;
-import software.amazon.awssdk.awscore.AwsResponse;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.services.ec2.Ec2Client;
 import software.amazon.awssdk.services.ec2.model.CreateNatGatewayRequest;
 import software.amazon.awssdk.services.ec2.model.CreateNatGatewayResponse;
 import software.amazon.awssdk.services.ec2.model.State;
 import software.amazon.awssdk.services.ec2.model.NatGateway;
+import software.amazon.cloudformation.exceptions.BaseHandlerException;
 import software.amazon.cloudformation.exceptions.CfnGeneralServiceException;
+import software.amazon.cloudformation.exceptions.CfnNotFoundException;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
 import software.amazon.cloudformation.proxy.Logger;
 import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 
+import java.util.List;
+
 public class CreateHandler extends BaseHandlerStd {
     private Logger logger;
 
+    @Override
+    protected boolean mutatesNatGateway() {
+        return true;
+    }
+
     protected ProgressEvent<ResourceModel, CallbackContext> handleRequest(
         final AmazonWebServicesClientProxy proxy,
         final ResourceHandlerRequest<ResourceModel> request,
@@ -30,35 +37,45 @@ public class CreateHandler extends BaseHandlerStd {
         final String clientToken = request.getClientRequestToken();
 
         return ProgressEvent.progress(request.getDesiredResourceState(), callbackContext)
-            .then(progress ->
-                 proxy.initiate("AWS-EC2-NatGateway::Create", proxyClient,progress.getResourceModel(),
+            .then(progress -> isCreated(progress.getCallbackContext())
+                ? progress
+                : initiate(proxy, "AWS-EC2-NatGateway::Create", proxyClient,progress.getResourceModel(),
                          progress.getCallbackContext())
-                    .translateToServiceRequest(awsRequest -> Translator.translateToCreateRequest(model, request, clientToken))
-                    .makeServiceCall((awsRequest, client) -> createResource(awsRequest, proxyClient, logger, model))
-                    .stabilize(this::isCreateStabilized) // Only moves on when isCreateStabilized returns true
+                    .translateToServiceRequest(awsRequest -> translate(() -> Translator.translateToCreateRequest(model, request, clientToken)))
+                    .makeServiceCall((awsRequest, client) -> createResource(awsRequest, proxyClient, logger, model,
+                            progress.getCallbackContext()))
                     .progress()
                 )
+            // Only moves on when isCreateStabilized returns true, otherwise schedules a callback
+            .then(progress -> stabilize(progress, proxyClient, this::isCreateStabilized, logger))
             .then(progress -> new ReadHandler().handleRequest(proxy, request, callbackContext, proxyClient, logger));
     }
 
+    private static boolean isCreated(final CallbackContext callbackContext) {
+        return callbackContext.getCreatedTime() != null;
+    }
+
     /**
      * Creates the NAT Gateway resource by calling the createNatGateway API
      * @param createNatGatewayRequest   Request made by the client
      * @param proxyClient               aws ec2 client used to make request
      * @param logger                    used to log
      * @param model                     Nat Gateway Resource Model
+     * @param callbackContext           the callback context the creation time is recorded in
      * @return CreateNatGateway Response
      */
     protected CreateNatGatewayResponse createResource(
             final CreateNatGatewayRequest createNatGatewayRequest,
             final ProxyClient<Ec2Client> proxyClient,
             final Logger logger,
-            final ResourceModel model) {
+            final ResourceModel model,
+            final CallbackContext callbackContext) {
         CreateNatGatewayResponse createNatGatewayResponse;
         try {
             createNatGatewayResponse = proxyClient.injectCredentialsAndInvokeV2(createNatGatewayRequest,
                     proxyClient.client()::createNatGateway);
             model.setNatGatewayId(createNatGatewayResponse.natGateway().natGatewayId());
+            callbackContext.setCreatedTime(System.currentTimeMillis());
         } catch (final AwsServiceException e) {
             throw handleError(e);
         }
@@ -70,41 +87,74 @@ public class CreateHandler extends BaseHandlerStd {
     /**
      * Verifies that the state of the Nat Gateway created has gone to AVAILABLE. If the state is FAILED, then it throws
      * an exception and fails the Resource Creation.
-     * @param awsRequest        Request made by the client
-     * @param awsResponse       Response from the request
      * @param proxyClient       aws ec2 client used to make request
      * @param model             Nat Gateway Resource Model
      * @param callbackContext   the callback context for the handler
      * @return boolean, true means stabilized and ends the stabilization process.
      */
     protected boolean isCreateStabilized(
-            final AwsRequest awsRequest,
-            final AwsResponse awsResponse,
             final ProxyClient<Ec2Client> proxyClient,
             final ResourceModel model,
             final CallbackContext callbackContext) {
 
+        final List<NatGateway> natGateways;
         try {
-            final NatGateway natGateway =
-                    proxyClient.injectCredentialsAndInvokeV2(Translator.translateToReadRequest(model),
-                            proxyClient.client()::describeNatGateways).natGateways().get(0);
-            final String natId = natGateway.natGatewayId();
-            final String state = natGateway.stateAsString();
-            if (State.AVAILABLE.toString().equalsIgnoreCase(state)) {
-                logger.log(String.format("%s %s has stabilized and is fully created.", ResourceModel.TYPE_NAME, natId));
-                return true;
-            } else if(State.FAILED.toString().equalsIgnoreCase(state)) {
-                final String message = String.format("NatGateway %s is in state %s and hence failed to stabilize. " +
-                        "Detailed failure message: %s", natId, state, natGateway.failureMessage());
-                logger.log(message);
-                throw new CfnGeneralServiceException(message);
-            } else {
-                return false;
-            }
+            natGateways = proxyClient.injectCredentialsAndInvokeV2(Translator.translateToReadRequest(model),
+                    proxyClient.client()::describeNatGateways).natGateways();
         } catch (final AwsServiceException e) {
+            final BaseHandlerException exception = handleError(e);
+            if (exception instanceof CfnNotFoundException) {
+                return isNotVisibleYet(model, callbackContext);
+            }
             logger.log(String.format("DescribeNatGateways API call failed during stabilization with exception: %s",
                     e.getMessage()));
-            throw handleError(e);
+            throw exception;
+        }
+        // EC2 may answer with no NAT Gateway instead of an error for one that is not visible yet
+        if (natGateways.isEmpty()) {
+            return isNotVisibleYet(model, callbackContext);
         }
+
+        final NatGateway natGateway = natGateways.get(0);
+        final String natId = natGateway.natGatewayId();
+        final String state = natGateway.stateAsString();
+        callbackContext.setLastObservedState(state);
+        if (State.AVAILABLE.toString().equalsIgnoreCase(state)) {
+            callbackContext.setNatGatewaySnapshot(natGateway);
+            logger.log(String.format("%s %s has stabilized and is fully created.", ResourceModel.TYPE_NAME, natId));
+            return true;
+        } else if (State.FAILED.toString().equalsIgnoreCase(state)) {
+            final String message = String.format("NatGateway %s is in state %s and hence failed to stabilize. " +
+                    "Detailed failure message: %s", natId, state, natGateway.failureMessage());
+            logger.log(message);
+            throw new CfnGeneralServiceException(message);
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Handles a NAT Gateway that EC2 could not find during stabilization, which right after the create only means that
+     * it is not visible yet.
+     * @param model             Nat Gateway Resource Model
+     * @param callbackContext   the callback context holding the creation time
+     * @return false, the NAT Gateway has not stabilized
+     * @throws CfnGeneralServiceException once the visibility grace period has passed
+     */
+    private boolean isNotVisibleYet(final ResourceModel model, final CallbackContext callbackContext) {
+        if (!isWithinVisibilityGrace(callbackContext)) {
+            final String message = String.format("NatGateway %s could still not be found %d seconds after it was created.",
+                    model.getNatGatewayId(), createdSecondsAgo(callbackContext));
+            logger.log(message);
+            throw new CfnGeneralServiceException(message);
+        }
+        logger.log(String.format("%s %s is not visible yet %d seconds after it was created.", ResourceModel.TYPE_NAME,
+                model.getNatGatewayId(), createdSecondsAgo(callbackContext)));
+        return false;
+    }
+
+    private static long createdSecondsAgo(final CallbackContext callbackContext) {
+        return callbackContext.getCreatedTime() == null
+                ? 0 : (System.currentTimeMillis() - callbackContext.getCreatedTime()) / 1000;
     }
 }
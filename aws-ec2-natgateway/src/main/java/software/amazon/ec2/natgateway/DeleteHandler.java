@@ -1,24 +1,29 @@
 package software.amazon.ec2.natgateway;
 
-import software.amazon.awssdk.awscore.AwsRequest;
-import software.amazon.awssdk.awscore.AwsResponse;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.services.ec2.Ec2Client;
 import software.amazon.awssdk.services.ec2.model.DeleteNatGatewayRequest;
 import software.amazon.awssdk.services.ec2.model.DeleteNatGatewayResponse;
 import software.amazon.awssdk.services.ec2.model.State;
 import software.amazon.awssdk.services.ec2.model.NatGateway;
-import software.amazon.cloudformation.exceptions.CfnGeneralServiceException;
-import software.amazon.cloudformation.exceptions.ResourceNotFoundException;
+import software.amazon.cloudformation.exceptions.BaseHandlerException;
+import software.amazon.cloudformation.exceptions.CfnNotFoundException;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
 import software.amazon.cloudformation.proxy.Logger;
 import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 
+import java.util.List;
+
 public class DeleteHandler extends BaseHandlerStd {
     private Logger logger;
 
+    @Override
+    protected boolean mutatesNatGateway() {
+        return true;
+    }
+
     protected ProgressEvent<ResourceModel, CallbackContext> handleRequest(
         final AmazonWebServicesClientProxy proxy,
         final ResourceHandlerRequest<ResourceModel> request,
@@ -28,25 +33,71 @@ public class DeleteHandler extends BaseHandlerStd {
 
         this.logger = logger;
 
+        if (callbackContext.getDeletionRequestedTime() != null) {
+            return stabilize(ProgressEvent.progress(request.getDesiredResourceState(), callbackContext), proxyClient,
+                    this::isDeleteStabilized, logger)
+                .then(progress -> ProgressEvent.defaultSuccessHandler(null));
+        }
+
         return ProgressEvent.progress(request.getDesiredResourceState(), callbackContext)
             // This check verifies that the resource exists before deleting. If the resource has already been deleted,
-            // a ResourceNotFound exception is thrown.
+            // a ResourceNotFound exception is thrown. Otherwise the state it returns decides how the deletion proceeds.
             .then(progress ->
-                    proxy.initiate("AWS-EC2-NatGateway::Delete::PreDeletionCheck", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
-                         .translateToServiceRequest(Translator::translateToReadRequest)
+                    initiate(proxy, "AWS-EC2-NatGateway::Delete::PreDeletionCheck", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
+                         .translateToServiceRequest(model -> translate(() -> Translator.translateToReadRequest(model)))
                          .makeServiceCall((awsRequest, _proxyClient) -> readResource(awsRequest, proxyClient, logger))
-                         .progress()
-            )
-            .then(progress ->
-                proxy.initiate("AWS-EC2-NatGateway::Delete", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
-                    .translateToServiceRequest(Translator::translateToDeleteRequest)
-                    .makeServiceCall((awsRequest, client) -> deleteResource(awsRequest, proxyClient, logger))
-                    .stabilize(this::isDeleteStabilized)
-                    .progress()
+                         .done((awsRequest, natGateway, client, model, context) ->
+                                 executeDeletePlan(ProgressEvent.progress(model, context), proxy, proxyClient, natGateway))
             )
             .then(progress -> ProgressEvent.defaultSuccessHandler(null));
     }
 
+    /**
+     * Picks the deletion steps from the state returned by the pre-deletion check. Once the deletion is requested it is
+     * checkpointed in the callback context, so a re-invocation goes straight to the wait without describing the NAT
+     * Gateway again.
+     *  - deleting: a previous attempt already started the deletion, so only the wait remains
+     *  - failed: the NAT Gateway holds no resources, so it is deleted without waiting
+     *  - otherwise: the NAT Gateway is deleted and the handler waits for it to reach deleted
+     * @param progress          holds the current progress data
+     * @param proxy             aws proxy used to inject credentials and to initiate the proxy chain for the call graph
+     * @param proxyClient       aws ec2 client used to make request
+     * @param natGateway        Nat Gateway returned by the pre-deletion check
+     * @return ProgressEvent    indicates the state of the progress, whether successful, in progress, or failed
+     */
+    protected ProgressEvent<ResourceModel, CallbackContext> executeDeletePlan(
+            final ProgressEvent<ResourceModel, CallbackContext> progress,
+            final AmazonWebServicesClientProxy proxy,
+            final ProxyClient<Ec2Client> proxyClient,
+            final NatGateway natGateway) {
+
+        final String state = natGateway.stateAsString();
+        if (State.DELETING.toString().equalsIgnoreCase(state)) {
+            logger.log(String.format("%s %s is already being deleted.", ResourceModel.TYPE_NAME, natGateway.natGatewayId()));
+            progress.getCallbackContext().setDeletionRequestedTime(System.currentTimeMillis());
+            progress.getCallbackContext().setLastObservedState(state);
+            // The pre-deletion check just observed deleting, so the first poll waits instead of describing it again
+            return stabilize(progress, proxyClient, this::isDeleteStabilized, true, logger);
+        } else if (State.FAILED.toString().equalsIgnoreCase(state)) {
+            return requestDeletion(progress, proxy, proxyClient);
+        } else {
+            return requestDeletion(progress, proxy, proxyClient)
+                    .then(newProgress -> stabilize(newProgress, proxyClient, this::isDeleteStabilized, logger));
+        }
+    }
+
+    private ProgressEvent<ResourceModel, CallbackContext> requestDeletion(
+            final ProgressEvent<ResourceModel, CallbackContext> progress,
+            final AmazonWebServicesClientProxy proxy,
+            final ProxyClient<Ec2Client> proxyClient) {
+        return initiate(proxy, "AWS-EC2-NatGateway::Delete", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
+                .translateToServiceRequest(model -> translate(() -> Translator.translateToDeleteRequest(model)))
+                .makeServiceCall((awsRequest, client) -> deleteResource(awsRequest, proxyClient, logger))
+                .done((awsRequest, deleteNatGatewayResponse, client, model, context) -> {
+                    context.setDeletionRequestedTime(System.currentTimeMillis());
+                    return ProgressEvent.progress(model, context);
+                });
+    }
 
     /**
      * Deletes the NAT Gateway resource by calling the deleteNatGateway API
@@ -72,37 +123,52 @@ public class DeleteHandler extends BaseHandlerStd {
     }
 
     /**
-     * Verifies that the state of the Nat Gateway has gone to DELETED.
-     * @param awsRequest        Request made by the client
-     * @param awsResponse       Response from the request
+     * Verifies that the state of the Nat Gateway has gone to DELETED. A FAILED Nat Gateway holds no resources and is
+     * removed by EC2, and a Nat Gateway that can no longer be found is gone, so both also end the stabilization.
      * @param proxyClient       aws ec2 client used to make request
      * @param model             Nat Gateway Resource Model
      * @param callbackContext   the callback context for the handler
      * @return boolean, true means stabilized and ends the stabilization process.
      */
     protected boolean isDeleteStabilized(
-            final AwsRequest awsRequest,
-            final AwsResponse awsResponse,
             final ProxyClient<Ec2Client> proxyClient,
             final ResourceModel model,
             final CallbackContext callbackContext) {
 
+        final List<NatGateway> natGateways;
         try {
-            final NatGateway natGateway =
-                    proxyClient.injectCredentialsAndInvokeV2(Translator.translateToReadRequest(model),
-                            proxyClient.client()::describeNatGateways).natGateways().get(0);
-            final String natId = natGateway.natGatewayId();
-            final String state = natGateway.stateAsString();
-            if (State.DELETED.toString().equalsIgnoreCase(state)) {
-                logger.log(String.format("%s %s has stabilized and is fully deleted.", ResourceModel.TYPE_NAME, natId));
+            natGateways = proxyClient.injectCredentialsAndInvokeV2(Translator.translateToReadRequest(model),
+                    proxyClient.client()::describeNatGateways).natGateways();
+        } catch (final AwsServiceException e) {
+            final BaseHandlerException exception = handleError(e);
+            if (exception instanceof CfnNotFoundException) {
+                logger.log(String.format("%s %s can no longer be found and is fully deleted.", ResourceModel.TYPE_NAME,
+                        model.getNatGatewayId()));
                 return true;
-            } else {
-                return false;
             }
-        } catch (final AwsServiceException e) {
             logger.log(String.format("DescribeNatGateways API call failed during stablization with exception: %s",
                     e.getMessage()));
-            throw handleError(e);
+            throw exception;
+        }
+        if (natGateways.isEmpty()) {
+            logger.log(String.format("%s %s can no longer be found and is fully deleted.", ResourceModel.TYPE_NAME,
+                    model.getNatGatewayId()));
+            return true;
+        }
+
+        final NatGateway natGateway = natGateways.get(0);
+        final String natId = natGateway.natGatewayId();
+        final String state = natGateway.stateAsString();
+        callbackContext.setLastObservedState(state);
+        if (State.DELETED.toString().equalsIgnoreCase(state)) {
+            logger.log(String.format("%s %s has stabilized and is fully deleted.", ResourceModel.TYPE_NAME, natId));
+            return true;
+        } else if (State.FAILED.toString().equalsIgnoreCase(state)) {
+            logger.log(String.format("%s %s is in state %s and will be removed by EC2. Detailed failure message: %s",
+                    ResourceModel.TYPE_NAME, natId, state, natGateway.failureMessage()));
+            return true;
         }
+        // deleting, or the deletion is not visible yet
+        return false;
     }
 }
@@ -0,0 +1,110 @@
+package software.amazon.ec2.natgateway;
+
+import software.amazon.awssdk.services.ec2.model.NatGateway;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * Read-through cache of described NAT Gateways, keyed by account, region and NAT Gateway id. Entries expire after a
+ * short time to live, and once the cache is full the least recently read entry is evicted. Only NAT Gateways that were
+ * found are cached, so a deletion is never hidden by the cache.
+ *
+ * The cache is off unless the NAT_GATEWAY_DESCRIBE_CACHE environment variable is set to true. Once on, one cache is
+ * shared by every invocation served by a container (see BaseHandlerStd), so bursts of Read requests for the same NAT
+ * Gateways share their describes. The Create, Update and Delete handlers invalidate the entries of the NAT Gateways they
+ * change.
+ */
+public class DescribeCache {
+  private final int maxEntries;
+  private final long ttlNanos;
+  private final LongSupplier nanoClock;
+
+  // Guarded by this. Entries in least recently read first order.
+  private final Map<String, Entry> entries;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  @lombok.AllArgsConstructor
+  private static class Entry {
+    private final NatGateway natGateway;
+    private final long expiresAtNanos;
+  }
+
+  public DescribeCache(final int maxEntries, final Duration ttl) {
+    this(maxEntries, ttl, System::nanoTime);
+  }
+
+  DescribeCache(final int maxEntries, final Duration ttl, final LongSupplier nanoClock) {
+    this.maxEntries = maxEntries;
+    this.ttlNanos = ttl.toNanos();
+    this.nanoClock = nanoClock;
+    this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+        if (size() > DescribeCache.this.maxEntries) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * @param accountId    the account the NAT Gateway belongs to
+   * @param region       the region the NAT Gateway lives in
+   * @param natGatewayId the NAT Gateway id
+   * @return the cache key of the NAT Gateway
+   */
+  static String key(final String accountId, final String region, final String natGatewayId) {
+    return accountId + '/' + region + '/' + natGatewayId;
+  }
+
+  /**
+   * @param key the cache key of a NAT Gateway
+   * @return the NAT Gateway as last described, or empty if it is not cached or its entry expired
+   */
+  public synchronized Optional<NatGateway> get(final String key) {
+    final Entry entry = entries.get(key);
+    if (entry == null || entry.expiresAtNanos - nanoClock.getAsLong() <= 0) {
+      if (entry != null) {
+        entries.remove(key);
+      }
+      misses++;
+      return Optional.empty();
+    }
+    hits++;
+    return Optional.of(entry.natGateway);
+  }
+
+  public synchronized void put(final String key, final NatGateway natGateway) {
+    entries.put(key, new Entry(natGateway, nanoClock.getAsLong() + ttlNanos));
+  }
+
+  public synchronized void invalidate(final String key) {
+    entries.remove(key);
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+}
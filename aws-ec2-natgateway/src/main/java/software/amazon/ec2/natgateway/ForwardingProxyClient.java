@@ -0,0 +1,79 @@
+package software.amazon.ec2.natgateway;
+
+import software.amazon.awssdk.awscore.AwsRequest;
+import software.amazon.awssdk.awscore.AwsResponse;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.pagination.sync.SdkIterable;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.cloudformation.proxy.ProxyClient;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * ProxyClient that forwards every call to a delegate through the around hook, so that a decorator only implements what
+ * it does around a call rather than every injectCredentialsAndInvoke method of ProxyClient.
+ */
+public abstract class ForwardingProxyClient implements ProxyClient<Ec2Client> {
+  protected final ProxyClient<Ec2Client> delegate;
+
+  protected ForwardingProxyClient(final ProxyClient<Ec2Client> delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Makes a call to the delegate.
+   * @param request the request of the call
+   * @param call    the call to the delegate
+   * @return what the call returned
+   */
+  protected abstract <T> T around(AwsRequest request, Supplier<T> call);
+
+  /**
+   * Makes an asynchronous call to the delegate. Unless overridden, it goes through around, which then only covers
+   * starting the call.
+   * @param request the request of the call
+   * @param call    the call to the delegate
+   * @return the future of the call
+   */
+  protected <T> CompletableFuture<T> aroundAsync(final AwsRequest request, final Supplier<CompletableFuture<T>> call) {
+    return around(request, call);
+  }
+
+  @Override
+  public <RequestT extends AwsRequest, ResponseT extends AwsResponse> ResponseT injectCredentialsAndInvokeV2(
+          final RequestT request, final Function<RequestT, ResponseT> requestFunction) {
+    return around(request, () -> delegate.injectCredentialsAndInvokeV2(request, requestFunction));
+  }
+
+  @Override
+  public <RequestT extends AwsRequest, ResponseT extends AwsResponse> CompletableFuture<ResponseT> injectCredentialsAndInvokeV2Async(
+          final RequestT request, final Function<RequestT, CompletableFuture<ResponseT>> requestFunction) {
+    return aroundAsync(request, () -> delegate.injectCredentialsAndInvokeV2Async(request, requestFunction));
+  }
+
+  @Override
+  public <RequestT extends AwsRequest, ResponseT extends AwsResponse, IterableT extends SdkIterable<ResponseT>> IterableT
+  injectCredentialsAndInvokeIterableV2(final RequestT request, final Function<RequestT, IterableT> requestFunction) {
+    return around(request, () -> delegate.injectCredentialsAndInvokeIterableV2(request, requestFunction));
+  }
+
+  @Override
+  public <RequestT extends AwsRequest, ResponseT extends AwsResponse> ResponseInputStream<ResponseT> injectCredentialsAndInvokeV2InputStream(
+          final RequestT request, final Function<RequestT, ResponseInputStream<ResponseT>> requestFunction) {
+    return around(request, () -> delegate.injectCredentialsAndInvokeV2InputStream(request, requestFunction));
+  }
+
+  @Override
+  public <RequestT extends AwsRequest, ResponseT extends AwsResponse> ResponseBytes<ResponseT> injectCredentialsAndInvokeV2Bytes(
+          final RequestT request, final Function<RequestT, ResponseBytes<ResponseT>> requestFunction) {
+    return around(request, () -> delegate.injectCredentialsAndInvokeV2Bytes(request, requestFunction));
+  }
+
+  @Override
+  public Ec2Client client() {
+    return delegate.client();
+  }
+}
@@ -0,0 +1,66 @@
+package software.amazon.ec2.natgateway;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysResponse;
+import software.amazon.awssdk.services.ec2.model.NatGateway;
+import software.amazon.awssdk.services.ec2.model.State;
+import software.amazon.cloudformation.proxy.ProxyClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Exports every NAT Gateway of the account as newline delimited JSON, one fully populated resource model per line.
+ * Unlike the List Handler it is not driven page by page by a caller: the next page is only described once the previous
+ * one has been written, so only one page of NAT Gateways is held in memory however many the account has.
+ */
+public class InventoryExporter {
+  private static final ObjectMapper MAPPER = new ObjectMapper()
+          .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+          .configure(SerializationFeature.FLUSH_AFTER_WRITE_VALUE, false);
+
+  /**
+   * Writes every non-deleted NAT Gateway to the given stream, which is flushed but left open.
+   *
+   * The pages are described one at a time through ProxyClient.injectCredentialsAndInvokeV2 rather than through the
+   * SDK paginator and injectCredentialsAndInvokeIterableV2, which walks every page once before handing the paginator
+   * back and would double the DescribeNatGateways calls of an export.
+   * @param proxyClient aws ec2 client used to make request
+   * @param out         stream the NDJSON lines are written to
+   * @return the number of NAT Gateways exported
+   * @throws IOException if writing to the stream fails. EC2 errors are thrown as the SDK raises them, since an export
+   *                     is not reported back to CloudFormation.
+   */
+  public long export(final ProxyClient<Ec2Client> proxyClient, final OutputStream out) throws IOException {
+    DescribeNatGatewaysRequest describeNatGatewaysRequest =
+            Translator.translateToListRequest(null, ListHandler.MAX_MAX_RESULTS);
+
+    long exported = 0;
+    try (JsonGenerator generator = MAPPER.getFactory().createGenerator(out)) {
+      // Lines are delimited by the newline written after each model instead of the default space
+      generator.setRootValueSeparator(null);
+      String nextToken;
+      do {
+        final DescribeNatGatewaysResponse describeNatGatewaysResponse = proxyClient.injectCredentialsAndInvokeV2(
+                describeNatGatewaysRequest, proxyClient.client()::describeNatGateways);
+        for (final NatGateway natGateway : describeNatGatewaysResponse.natGateways()) {
+          // Only non-deleted NAT Gateways are exported, as in the List Handler
+          if (State.DELETED.toString().equalsIgnoreCase(natGateway.stateAsString())) {
+            continue;
+          }
+          MAPPER.writeValue(generator, Translator.translateNatGatewayToResourceModel(natGateway));
+          generator.writeRaw('\n');
+          exported++;
+        }
+        nextToken = describeNatGatewaysResponse.nextToken();
+        describeNatGatewaysRequest = describeNatGatewaysRequest.toBuilder().nextToken(nextToken).build();
+      } while (nextToken != null);
+    }
+    out.flush();
+    return exported;
+  }
+}
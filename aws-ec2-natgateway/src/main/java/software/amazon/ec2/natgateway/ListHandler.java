@@ -13,10 +13,36 @@ import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class ListHandler extends BaseHandlerStd {
+    static final int DEFAULT_PAGE_SIZE = 100;
+    // Environment variable setting the number of NAT Gateways per page, DEFAULT_PAGE_SIZE when it is not set
+    static final String PAGE_SIZE_VARIABLE = "NAT_GATEWAY_LIST_PAGE_SIZE";
+    // Environment variable that, set to true, has the listed models carry every property
+    static final String WITH_PROPERTIES_VARIABLE = "NAT_GATEWAY_LIST_WITH_PROPERTIES";
+    // Environment variable that, set to true, has the NAT Gateways listed VPC by VPC
+    static final String SHARDED_VARIABLE = "NAT_GATEWAY_LIST_SHARDED";
+    // DescribeNatGateways accepts a MaxResults between 5 and 1000
+    static final int MIN_MAX_RESULTS = 5;
+    static final int MAX_MAX_RESULTS = 1000;
+    // Bounds how many DescribeNatGateways calls a single page may take to fill
+    static final int MAX_DESCRIBE_CALLS_PER_PAGE = 5;
+
+    @lombok.Setter(lombok.AccessLevel.PACKAGE)
+    private int pageSize = pageSize(setting(PAGE_SIZE_VARIABLE));
+
+    // When set, listed models carry every property instead of only the primary identifier, so inventory tooling does
+    // not need a Read per NAT Gateway
+    @lombok.Setter(lombok.AccessLevel.PACKAGE)
+    private boolean withProperties = Boolean.parseBoolean(setting(WITH_PROPERTIES_VARIABLE));
+
+    // When set, the NAT Gateways are listed VPC by VPC, several VPCs at a time, and the next token carries where the
+    // walk of the VPCs stands. It makes several times the API calls of the plain paginator, see ShardedLister for when
+    // it pays off.
+    @lombok.Setter(lombok.AccessLevel.PACKAGE)
+    private boolean sharded = Boolean.parseBoolean(setting(SHARDED_VARIABLE));
 
     @Override
     public ProgressEvent<ResourceModel, CallbackContext> handleRequest(
@@ -28,11 +54,13 @@ public class ListHandler extends BaseHandlerStd {
 
         final ResourceModel model = request.getDesiredResourceState();
 
-        return proxy.initiate("AWS-EC2-NatGateway::List", proxyClient, model, callbackContext)
-                .translateToServiceRequest(awsRequest -> Translator.translateToListRequest(request.getNextToken()))
+        return initiate(proxy, "AWS-EC2-NatGateway::List", proxyClient, model, callbackContext)
+                .translateToServiceRequest(awsRequest -> translate(() -> Translator.translateToListRequest(request.getNextToken(), maxResults(pageSize, 0))))
                 .makeServiceCall((awsRequest, _proxyClient) -> listResource(awsRequest, proxyClient , logger))
                 .done((awsRequest, awsResponse, client, clientModel, context) -> ProgressEvent.<ResourceModel, CallbackContext>builder()
-                        .resourceModels(Translator.translateFromListRequest(awsResponse))
+                        .resourceModels(translateResult(() -> withProperties
+                                ? Translator.translateFromListRequestWithProperties(awsResponse)
+                                : Translator.translateFromListRequest(awsResponse)))
                         .nextToken(awsResponse.nextToken())
                         .status(OperationStatus.SUCCESS)
                         .build());
@@ -40,29 +68,90 @@ public class ListHandler extends BaseHandlerStd {
 
 
     /**
-     * Lists all the NAT Gateway resources by calling the describeNatGateways API
+     * Lists the NAT Gateway resources by calling the describeNatGateways API. EC2 may return fewer NAT Gateways than
+     * asked for, so further pages are fetched until the page size is reached or there are no more NAT Gateways.
      * @param describeNatGatewaysRequest   Request made by the client
      * @param proxyClient                  aws ec2 client used to make request
      * @param logger                       used to log
-     * @return DescribeNatGateways Response
+     * @return DescribeNatGateways Response holding the NAT Gateways of the page and the token of the next one
      */
     protected DescribeNatGatewaysResponse listResource(
             final DescribeNatGatewaysRequest describeNatGatewaysRequest,
             final ProxyClient<Ec2Client> proxyClient,
             final Logger logger) {
-        DescribeNatGatewaysResponse describeNatGatewaysResponse;
+        final DescribeNatGatewaysResponse describeNatGatewaysResponse;
         try {
-            describeNatGatewaysResponse = proxyClient.injectCredentialsAndInvokeV2(describeNatGatewaysRequest,
-                    proxyClient.client()::describeNatGateways);
-            // The List Handler should only list non-deleted NAT Gateways
-            List<NatGateway> natGatewayList = describeNatGatewaysResponse.natGateways().stream()
-                    .filter(nat -> !(State.DELETED.toString().equalsIgnoreCase(nat.stateAsString())))
-                    .collect(Collectors.toList());
-            describeNatGatewaysResponse = DescribeNatGatewaysResponse.builder().natGateways(natGatewayList).build();
+            describeNatGatewaysResponse = sharded
+                    ? ShardedLister.listPage(describeNatGatewaysRequest.nextToken(), pageSize, proxyClient)
+                    : fillPage(describeNatGatewaysRequest, pageSize, proxyClient);
         } catch (final AwsServiceException e) {
             throw handleError(e);
         }
         logger.log(String.format("%s has successfully been listed.", ResourceModel.TYPE_NAME));
         return describeNatGatewaysResponse;
     }
+
+    /**
+     * Calls the describeNatGateways API from the given request until the page holds the given number of NAT Gateways,
+     * there are no more NAT Gateways or the call limit of a page is reached. Once fewer than MIN_MAX_RESULTS NAT Gateways
+     * are missing, the page is returned as it is: a further call could return more NAT Gateways than the page has room
+     * for, and the next token would then skip the ones left out.
+     * @param describeNatGatewaysRequest   Request for the first describe call
+     * @param size                         number of NAT Gateways wanted on the page
+     * @param proxyClient                  aws ec2 client used to make request
+     * @return DescribeNatGateways Response holding the NAT Gateways of the page and the token of the next one
+     */
+    static DescribeNatGatewaysResponse fillPage(
+            final DescribeNatGatewaysRequest describeNatGatewaysRequest,
+            final int size,
+            final ProxyClient<Ec2Client> proxyClient) {
+        final List<NatGateway> natGatewayList = new ArrayList<>();
+        DescribeNatGatewaysRequest pageRequest = describeNatGatewaysRequest;
+        String nextToken;
+        int describeCalls = 0;
+        do {
+            final DescribeNatGatewaysResponse describeNatGatewaysResponse =
+                    proxyClient.injectCredentialsAndInvokeV2(pageRequest, proxyClient.client()::describeNatGateways);
+            describeCalls++;
+            // The List Handler should only list non-deleted NAT Gateways
+            for (final NatGateway natGateway : describeNatGatewaysResponse.natGateways()) {
+                if (!State.DELETED.toString().equalsIgnoreCase(natGateway.stateAsString())) {
+                    natGatewayList.add(natGateway);
+                }
+            }
+            nextToken = describeNatGatewaysResponse.nextToken();
+            pageRequest = pageRequest.toBuilder()
+                    .nextToken(nextToken)
+                    .maxResults(maxResults(size, natGatewayList.size()))
+                    .build();
+        } while (nextToken != null && size - natGatewayList.size() >= MIN_MAX_RESULTS
+                && describeCalls < MAX_DESCRIBE_CALLS_PER_PAGE);
+        return DescribeNatGatewaysResponse.builder().natGateways(natGatewayList).nextToken(nextToken).build();
+    }
+
+    /**
+     * @param setting the page size setting, null if it is not set
+     * @return the page size, brought within the MaxResults DescribeNatGateways accepts, or DEFAULT_PAGE_SIZE if the
+     * setting is not a number
+     */
+    static int pageSize(final String setting) {
+        if (setting == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        try {
+            return Math.min(MAX_MAX_RESULTS, Math.max(MIN_MAX_RESULTS, Integer.parseInt(setting)));
+        } catch (final NumberFormatException e) {
+            return DEFAULT_PAGE_SIZE;
+        }
+    }
+
+    /**
+     * @param size   number of NAT Gateways wanted on the page
+     * @param listed number of NAT Gateways already on the page
+     * @return the MaxResults to request so that the page is filled up to its size, or more than the room left on the
+     * page if that is below MIN_MAX_RESULTS
+     */
+    static int maxResults(final int size, final int listed) {
+        return Math.min(MAX_MAX_RESULTS, Math.max(MIN_MAX_RESULTS, size - listed));
+    }
 }
@@ -0,0 +1,76 @@
+package software.amazon.ec2.natgateway;
+
+import software.amazon.awssdk.awscore.AwsRequest;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.cloudformation.proxy.ProxyClient;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * ProxyClient that records the latency of every call, and the calls that failed by EC2 error code, in a MetricsRegistry.
+ * Both are dimensioned by the EC2 action, such as DescribeNatGateways.
+ */
+public class MetricsProxyClient extends ForwardingProxyClient {
+  static final String LATENCY = "Latency";
+  static final String ERRORS = "Errors";
+  static final String API_DIMENSION = "Api";
+  static final String ERROR_CODE_DIMENSION = "ErrorCode";
+
+  private final MetricsRegistry metrics;
+
+  public MetricsProxyClient(final ProxyClient<Ec2Client> delegate, final MetricsRegistry metrics) {
+    super(delegate);
+    this.metrics = metrics;
+  }
+
+  @Override
+  protected <T> T around(final AwsRequest request, final Supplier<T> call) {
+    final long start = System.nanoTime();
+    Throwable failure = null;
+    try {
+      return call.get();
+    } catch (final RuntimeException e) {
+      failure = e;
+      throw e;
+    } finally {
+      record(request, start, failure);
+    }
+  }
+
+  // The latency runs until the future completes
+  @Override
+  protected <T> CompletableFuture<T> aroundAsync(final AwsRequest request, final Supplier<CompletableFuture<T>> call) {
+    final long start = System.nanoTime();
+    return call.get().whenComplete((response, e) -> record(request, start, e instanceof CompletionException ? e.getCause() : e));
+  }
+
+  private void record(final AwsRequest request, final long start, final Throwable failure) {
+    final String api = action(request);
+    metrics.record(LATENCY, MetricsRegistry.Unit.MILLISECONDS,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), API_DIMENSION, api);
+    if (failure != null) {
+      metrics.count(ERRORS, API_DIMENSION, api, ERROR_CODE_DIMENSION, errorCode(failure));
+    }
+  }
+
+  /**
+   * @param request an EC2 request
+   * @return the EC2 action the request is for, such as DescribeNatGateways
+   */
+  static String action(final AwsRequest request) {
+    final String requestClass = request.getClass().getSimpleName();
+    return requestClass.endsWith("Request") ? requestClass.substring(0, requestClass.length() - "Request".length()) : requestClass;
+  }
+
+  private static String errorCode(final Throwable failure) {
+    if (failure instanceof AwsServiceException && ((AwsServiceException) failure).awsErrorDetails() != null
+            && ((AwsServiceException) failure).awsErrorDetails().errorCode() != null) {
+      return ((AwsServiceException) failure).awsErrorDetails().errorCode();
+    }
+    return failure.getClass().getSimpleName();
+  }
+}
@@ -0,0 +1,233 @@
+package software.amazon.ec2.natgateway;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import software.amazon.cloudformation.proxy.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the metrics of one handler invocation and emits them as CloudWatch embedded metric format (EMF) log lines,
+ * which CloudWatch turns into metrics without any call from the handler. Every metric carries the Operation dimension.
+ *
+ * Recording is lock-free: a metric is looked up in a ConcurrentHashMap and updated through LongAdders, so the calls
+ * the Update handler makes on executor threads record without contending with each other. Histograms have fixed
+ * 1-2-5 buckets and are emitted in the EMF Values and Counts form, each value being the mean of its bucket.
+ */
+public class MetricsRegistry {
+  static final String NAMESPACE = "CloudFormation/AWS-EC2-NatGateway";
+  static final String OPERATION_DIMENSION = "Operation";
+
+  // Upper bounds of the histogram buckets, 1, 2, 5, 10, ... 5e9. The last bucket also holds everything above.
+  private static final long[] BUCKET_BOUNDS = bucketBounds();
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  public enum Unit {
+    MILLISECONDS("Milliseconds"),
+    BYTES("Bytes"),
+    COUNT("Count");
+
+    private final String emfName;
+
+    Unit(final String emfName) {
+      this.emfName = emfName;
+    }
+  }
+
+  private final String operation;
+  private final ConcurrentMap<MetricKey, Metric> metrics = new ConcurrentHashMap<>();
+
+  /**
+   * @param operation value of the Operation dimension of every metric, such as Create
+   */
+  public MetricsRegistry(final String operation) {
+    this.operation = operation;
+  }
+
+  /**
+   * Adds one to a counter.
+   * @param name       metric name
+   * @param dimensions dimension names and values, in pairs
+   */
+  public void count(final String name, final String... dimensions) {
+    metric(name, Unit.COUNT, false, dimensions).record(1);
+  }
+
+  /**
+   * Adds a value to a histogram.
+   * @param name       metric name
+   * @param unit       unit of the value
+   * @param value      the value, negative values are taken as 0
+   * @param dimensions dimension names and values, in pairs
+   */
+  public void record(final String name, final Unit unit, final long value, final String... dimensions) {
+    metric(name, unit, true, dimensions).record(Math.max(0, value));
+  }
+
+  /**
+   * @param name       metric name
+   * @param dimensions dimension names and values, in pairs
+   * @return the number of values recorded for the metric, 0 if none was
+   */
+  public long getCount(final String name, final String... dimensions) {
+    final Metric metric = metrics.get(new MetricKey(name, dimensions(dimensions)));
+    return metric == null ? 0 : metric.count.sum();
+  }
+
+  /**
+   * Logs the metrics as EMF lines, one per dimension set.
+   * @param logger used to log
+   */
+  public void emit(final Logger logger) {
+    toEmfLines(System.currentTimeMillis()).forEach(logger::log);
+  }
+
+  /**
+   * @param timestamp epoch millis the metrics are reported at
+   * @return one EMF JSON document per dimension set, empty if nothing was recorded
+   */
+  List<String> toEmfLines(final long timestamp) {
+    final Map<Map<String, String>, List<Map.Entry<MetricKey, Metric>>> byDimensions = new LinkedHashMap<>();
+    metrics.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .forEach(entry -> byDimensions.computeIfAbsent(entry.getKey().dimensions, d -> new ArrayList<>()).add(entry));
+
+    final List<String> lines = new ArrayList<>(byDimensions.size());
+    byDimensions.forEach((dimensions, entries) -> {
+      final ObjectNode document = MAPPER.createObjectNode();
+      final ObjectNode directive = document.putObject("_aws").put("Timestamp", timestamp)
+              .putArray("CloudWatchMetrics").addObject().put("Namespace", NAMESPACE);
+      final ArrayNode dimensionNames = directive.putArray("Dimensions").addArray();
+      dimensions.forEach((name, value) -> {
+        dimensionNames.add(name);
+        document.put(name, value);
+      });
+      final ArrayNode definitions = directive.putArray("Metrics");
+      for (final Map.Entry<MetricKey, Metric> entry : entries) {
+        final Metric metric = entry.getValue();
+        definitions.addObject().put("Name", entry.getKey().name).put("Unit", metric.unit.emfName);
+        if (metric.buckets == null) {
+          document.put(entry.getKey().name, metric.sum.sum());
+        } else {
+          metric.writeHistogram(document.putObject(entry.getKey().name));
+        }
+      }
+      try {
+        lines.add(MAPPER.writeValueAsString(document));
+      } catch (final JsonProcessingException e) {
+        // Only strings and numbers are written
+        throw new IllegalStateException(e);
+      }
+    });
+    return lines;
+  }
+
+  private Metric metric(final String name, final Unit unit, final boolean histogram, final String... dimensions) {
+    final MetricKey key = new MetricKey(name, dimensions(dimensions));
+    final Metric metric = metrics.get(key);
+    return metric != null ? metric : metrics.computeIfAbsent(key, k -> new Metric(unit, histogram));
+  }
+
+  private Map<String, String> dimensions(final String... dimensions) {
+    if (dimensions.length % 2 != 0) {
+      throw new IllegalArgumentException("Dimensions come in name and value pairs: " + Arrays.toString(dimensions));
+    }
+    final Map<String, String> map = new LinkedHashMap<>();
+    map.put(OPERATION_DIMENSION, operation);
+    for (int i = 0; i < dimensions.length; i += 2) {
+      map.put(dimensions[i], dimensions[i + 1]);
+    }
+    return Collections.unmodifiableMap(map);
+  }
+
+  private static long[] bucketBounds() {
+    final long[] bounds = new long[30];
+    long decade = 1;
+    for (int i = 0; i < bounds.length; i += 3, decade *= 10) {
+      bounds[i] = decade;
+      bounds[i + 1] = 2 * decade;
+      bounds[i + 2] = 5 * decade;
+    }
+    return bounds;
+  }
+
+  @lombok.EqualsAndHashCode
+  private static final class MetricKey implements Comparable<MetricKey> {
+    private final String name;
+    private final Map<String, String> dimensions;
+
+    private MetricKey(final String name, final Map<String, String> dimensions) {
+      this.name = name;
+      this.dimensions = dimensions;
+    }
+
+    @Override
+    public int compareTo(final MetricKey other) {
+      final int byDimensions = dimensions.toString().compareTo(other.dimensions.toString());
+      return byDimensions != 0 ? byDimensions : name.compareTo(other.name);
+    }
+  }
+
+  private static final class Metric {
+    private final Unit unit;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    // Null for a counter
+    private final LongAdder[] buckets;
+    private final LongAdder[] bucketSums;
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    private Metric(final Unit unit, final boolean histogram) {
+      this.unit = unit;
+      this.buckets = histogram ? newAdders() : null;
+      this.bucketSums = histogram ? newAdders() : null;
+    }
+
+    private void record(final long value) {
+      count.increment();
+      sum.add(value);
+      if (buckets != null) {
+        final int searched = Arrays.binarySearch(BUCKET_BOUNDS, value);
+        final int bucket = Math.min(searched >= 0 ? searched : -searched - 1, BUCKET_BOUNDS.length - 1);
+        buckets[bucket].increment();
+        bucketSums[bucket].add(value);
+        min.accumulate(value);
+        max.accumulate(value);
+      }
+    }
+
+    private void writeHistogram(final ObjectNode histogram) {
+      final ArrayNode values = histogram.putArray("Values");
+      final ArrayNode counts = histogram.putArray("Counts");
+      for (int i = 0; i < buckets.length; i++) {
+        final long bucketCount = buckets[i].sum();
+        if (bucketCount > 0) {
+          values.add(bucketSums[i].sum() / bucketCount);
+          counts.add(bucketCount);
+        }
+      }
+      histogram.put("Max", max.get()).put("Min", min.get()).put("Count", count.sum()).put("Sum", sum.sum());
+    }
+
+    private static LongAdder[] newAdders() {
+      final LongAdder[] adders = new LongAdder[BUCKET_BOUNDS.length];
+      for (int i = 0; i < adders.length; i++) {
+        adders[i] = new LongAdder();
+      }
+      return adders;
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package software.amazon.ec2.natgateway;
+
+import software.amazon.awssdk.awscore.AwsRequest;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.cloudformation.proxy.ProxyClient;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * ProxyClient that takes a token from an AdaptiveRateLimiter before every call and reports the outcome of the call
+ * back to it, so that the rate follows the throttling EC2 answers with.
+ */
+public class RateLimitedProxyClient extends ForwardingProxyClient {
+  private final AdaptiveRateLimiter rateLimiter;
+
+  public RateLimitedProxyClient(final ProxyClient<Ec2Client> delegate, final AdaptiveRateLimiter rateLimiter) {
+    super(delegate);
+    this.rateLimiter = rateLimiter;
+  }
+
+  @Override
+  protected <T> T around(final AwsRequest request, final Supplier<T> call) {
+    rateLimiter.acquire();
+    try {
+      final T result = call.get();
+      rateLimiter.onSuccess();
+      return result;
+    } catch (final AwsServiceException e) {
+      if (e.isThrottlingException()) {
+        rateLimiter.onThrottle();
+      }
+      throw e;
+    }
+  }
+
+  // Only the token is taken, the outcome of an asynchronous call is not reported back
+  @Override
+  protected <T> CompletableFuture<T> aroundAsync(final AwsRequest request, final Supplier<CompletableFuture<T>> call) {
+    rateLimiter.acquire();
+    return call.get();
+  }
+}
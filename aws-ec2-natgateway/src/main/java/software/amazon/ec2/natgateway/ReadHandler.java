@@ -1,13 +1,38 @@
 package software.amazon.ec2.natgateway;
 
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysResponse;
+import software.amazon.awssdk.services.ec2.model.NatGateway;
+import software.amazon.awssdk.services.ec2.model.State;
+import software.amazon.cloudformation.exceptions.BaseHandlerException;
+import software.amazon.cloudformation.exceptions.CfnInvalidRequestException;
+import software.amazon.cloudformation.exceptions.ResourceNotFoundException;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
 import software.amazon.cloudformation.proxy.Logger;
 import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
 public class ReadHandler extends BaseHandlerStd {
+    // Describes of a batch read made concurrently
+    static final int MAX_CONCURRENT_BATCH_DESCRIBES = 8;
+
     private Logger logger;
 
     protected ProgressEvent<ResourceModel, CallbackContext> handleRequest(
@@ -19,10 +44,109 @@ public class ReadHandler extends BaseHandlerStd {
 
         this.logger = logger;
 
-        return proxy.initiate("AWS-EC2-NatGateway::Read", proxyClient, request.getDesiredResourceState(),
+        // When chained from Create or Update, the NAT Gateway has already been described during this request
+        final NatGateway snapshot = findNatGatewaySnapshot(request.getDesiredResourceState(), callbackContext).orElse(null);
+        if (snapshot != null) {
+            logger.log(String.format("%s has successfully been read from the request snapshot.", ResourceModel.TYPE_NAME));
+            return ProgressEvent.defaultSuccessHandler(translateResult(() -> Translator.translateNatGatewayToResourceModel(snapshot)));
+        }
+
+        // Repeated reads of the same NAT Gateway are served from the container's describe cache when it is on
+        final DescribeCache describeCache = getDescribeCache();
+        final NatGateway cachedNatGateway = describeCache != null ? describeCache.get(describeCacheKey(request)).orElse(null) : null;
+        if (cachedNatGateway != null) {
+            logger.log(String.format("%s has successfully been read from the describe cache.", ResourceModel.TYPE_NAME));
+            return ProgressEvent.defaultSuccessHandler(translateResult(() -> Translator.translateNatGatewayToResourceModel(cachedNatGateway)));
+        }
+
+        return initiate(proxy, "AWS-EC2-NatGateway::Read", proxyClient, request.getDesiredResourceState(),
                 callbackContext)
-            .translateToServiceRequest(Translator::translateToReadRequest)
+            .translateToServiceRequest(model -> translate(() -> Translator.translateToReadRequest(model)))
             .makeServiceCall((awsRequest, _proxyClient) -> readResource(awsRequest, proxyClient , logger))
-            .done(natGateway -> ProgressEvent.defaultSuccessHandler(Translator.translateNatGatewayToResourceModel(natGateway)));
+            .done(natGateway -> {
+                if (describeCache != null) {
+                    describeCache.put(describeCacheKey(request), natGateway);
+                }
+                return ProgressEvent.defaultSuccessHandler(translateResult(() -> Translator.translateNatGatewayToResourceModel(natGateway)));
+            });
+    }
+
+    /**
+     * Reads many NAT Gateways at once, for callers that reconcile known NAT Gateways. The ids are described in chunks of
+     * Translator.MAX_IDS_PER_DESCRIBE, concurrently, so N NAT Gateways take N / 200 round trips instead of N.
+     * Every NAT Gateway gets its own result, and neither a NAT Gateway that is missing or deleted nor a chunk that
+     * failed fails the others.
+     * @param models        the NAT Gateways to read, by NatGatewayId
+     * @param proxyClient   aws ec2 client used to make request
+     * @param logger        used to log
+     * @return by NAT Gateway id, in the order of the models: a success event holding the read model, or a failure event
+     * with NotFound for a missing or deleted NAT Gateway, or with the error its chunk failed with
+     */
+    public Map<String, ProgressEvent<ResourceModel, CallbackContext>> readBatch(
+            final Collection<ResourceModel> models,
+            final ProxyClient<Ec2Client> proxyClient,
+            final Logger logger) {
+        final List<String> natGatewayIds = new ArrayList<>(new LinkedHashSet<>(models.stream()
+                .map(model -> Optional.ofNullable(model.getNatGatewayId()).orElseThrow(() ->
+                        new CfnInvalidRequestException("Every model of a batch read needs a NatGatewayId")))
+                .collect(Collectors.toList())));
+
+        final List<CompletableFuture<Map<String, ProgressEvent<ResourceModel, CallbackContext>>>> chunks = new ArrayList<>();
+        for (int from = 0; from < natGatewayIds.size(); from += Translator.MAX_IDS_PER_DESCRIBE) {
+            final List<String> chunk = natGatewayIds.subList(from,
+                    Math.min(natGatewayIds.size(), from + Translator.MAX_IDS_PER_DESCRIBE));
+            chunks.add(CompletableFuture.supplyAsync(() -> readChunk(chunk, proxyClient), LazyHolder.EXECUTOR));
+        }
+
+        final Map<String, ProgressEvent<ResourceModel, CallbackContext>> results = new LinkedHashMap<>();
+        chunks.forEach(chunk -> results.putAll(chunk.join()));
+        logger.log(String.format("%d %s have been read in %d chunks, %d successfully.", results.size(),
+                ResourceModel.TYPE_NAME, chunks.size(),
+                results.values().stream().filter(ProgressEvent::isSuccess).count()));
+        return results;
+    }
+
+    private Map<String, ProgressEvent<ResourceModel, CallbackContext>> readChunk(
+            final List<String> natGatewayIds,
+            final ProxyClient<Ec2Client> proxyClient) {
+        final Map<String, NatGateway> described = new HashMap<>();
+        final Map<String, ProgressEvent<ResourceModel, CallbackContext>> results = new LinkedHashMap<>();
+        try {
+            DescribeNatGatewaysRequest describeNatGatewaysRequest = Translator.translateToBatchReadRequest(natGatewayIds);
+            String nextToken;
+            do {
+                final DescribeNatGatewaysResponse describeNatGatewaysResponse = proxyClient.injectCredentialsAndInvokeV2(
+                        describeNatGatewaysRequest, proxyClient.client()::describeNatGateways);
+                describeNatGatewaysResponse.natGateways().forEach(natGateway -> described.put(natGateway.natGatewayId(), natGateway));
+                nextToken = describeNatGatewaysResponse.nextToken();
+                describeNatGatewaysRequest = describeNatGatewaysRequest.toBuilder().nextToken(nextToken).build();
+            } while (nextToken != null);
+        } catch (final AwsServiceException e) {
+            final BaseHandlerException exception = handleError(e);
+            natGatewayIds.forEach(natGatewayId ->
+                    results.put(natGatewayId, ProgressEvent.defaultFailureHandler(exception, exception.getErrorCode())));
+            return results;
+        }
+
+        for (final String natGatewayId : natGatewayIds) {
+            final NatGateway natGateway = described.get(natGatewayId);
+            // The Read Handler should only return a non-deleted NAT Gateway
+            if (natGateway == null || State.DELETED.toString().equalsIgnoreCase(natGateway.stateAsString())) {
+                final ResourceNotFoundException exception = new ResourceNotFoundException(ResourceModel.TYPE_NAME, natGatewayId);
+                results.put(natGatewayId, ProgressEvent.defaultFailureHandler(exception, HandlerErrorCode.NotFound));
+            } else {
+                results.put(natGatewayId, ProgressEvent.defaultSuccessHandler(Translator.translateNatGatewayToResourceModel(natGateway)));
+            }
+        }
+        return results;
+    }
+
+    // Initialized on the first batch read only. Daemon threads so an idle pool never keeps the JVM alive.
+    private static class LazyHolder {
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(MAX_CONCURRENT_BATCH_DESCRIBES, runnable -> {
+            final Thread thread = new Thread(runnable, "nat-gateway-batch-read");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 }
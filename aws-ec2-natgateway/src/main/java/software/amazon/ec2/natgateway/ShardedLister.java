@@ -0,0 +1,229 @@
+package software.amazon.ec2.natgateway;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysResponse;
+import software.amazon.awssdk.services.ec2.model.DescribeVpcsResponse;
+import software.amazon.awssdk.services.ec2.model.NatGateway;
+import software.amazon.awssdk.services.ec2.model.Vpc;
+import software.amazon.cloudformation.exceptions.CfnInvalidRequestException;
+import software.amazon.cloudformation.proxy.ProxyClient;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Lists NAT Gateways VPC by VPC. Every VPC of the account is a shard listed with a vpc-id filter, and the shards at the
+ * head of the walk are described concurrently, each filling its share of the page. The NAT Gateways of a page are
+ * merged in shard order.
+ *
+ * The VPCs are walked in the order DescribeVpcs pages them, sorted by id within a page. Every List page describes the
+ * VPC page it resumes from again, so VPCs created while the NAT Gateways are listed are picked up. The next token is a
+ * composite token holding where the walk stands, and its size does not depend on the number of VPCs:
+ *  - the DescribeVpcs token of the page the last VPC started belongs to, and the id of that VPC. The walk resumes with
+ *    the VPCs of that page whose id sorts after it.
+ *  - the VPC whose NAT Gateways did not all fit in its share of the page, and the EC2 next token to resume it from. At
+ *    most one VPC is left unfinished: a page ends before a second one, whose NAT Gateways the next page describes again.
+ *
+ * Sharding lists the same NAT Gateways as the plain paginator of ListHandler and only trades API calls for latency.
+ * Every page makes at least one DescribeVpcs call and then one DescribeNatGateways call or more per shard, where the
+ * plain paginator makes one when EC2 fills the page. With the default page size of 100, a page is split into 8 shards,
+ * about 9 calls against 1. The calls all go through the AdaptiveRateLimiter of the account and region, so they slow
+ * down the other invocations of that account, and a throttled account pays for them in waiting rather than saving
+ * time. It is therefore off by default. Turn it on with NAT_GATEWAY_LIST_SHARDED only for accounts whose NAT Gateways
+ * spread over many VPCs, with a large page size, where each DescribeNatGateways call takes long enough for concurrent
+ * shards to shorten a page, and with request rate to spare. ShardedListBenchmark under the jmh profile compares both.
+ */
+public class ShardedLister {
+  // Shards described concurrently for one page
+  static final int MAX_SHARDS_PER_PAGE = 8;
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  /**
+   * Where the walk of the VPCs stands. The last VPC started is null before the first page, and the unfinished VPC is
+   * null when every VPC started so far is listed.
+   */
+  @lombok.Data
+  @lombok.NoArgsConstructor
+  @lombok.AllArgsConstructor
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  static class Cursor {
+    // DescribeVpcs token of the page lastVpcId belongs to, null for the first page
+    @JsonProperty("p")
+    private String vpcsToken;
+
+    @JsonProperty("l")
+    private String lastVpcId;
+
+    // VPC started but not finished, and the EC2 next token to resume it from
+    @JsonProperty("v")
+    private String vpcId;
+
+    @JsonProperty("t")
+    private String nextToken;
+  }
+
+  /**
+   * A VPC listed by a page: the unfinished VPC of the previous page, or one taken from the walk, which then moves the
+   * walk past it.
+   */
+  @lombok.AllArgsConstructor
+  private static class Shard {
+    private final String vpcId;
+    private final String nextToken;
+    private final boolean walked;
+    private final String vpcsToken;
+  }
+
+  /**
+   * Lists one page of NAT Gateways.
+   * @param nextToken   composite token returned with the previous page, null for the first page
+   * @param pageSize    number of NAT Gateways wanted on the page
+   * @param proxyClient aws ec2 client used to make request
+   * @return DescribeNatGateways Response holding the NAT Gateways of the page and the composite token of the next one
+   */
+  static DescribeNatGatewaysResponse listPage(
+          final String nextToken,
+          final int pageSize,
+          final ProxyClient<Ec2Client> proxyClient) {
+    final Cursor cursor = nextToken == null ? new Cursor() : decodeToken(nextToken);
+
+    // Each shard is asked for at least the smallest MaxResults EC2 accepts, which caps how many shards share a page
+    final int shardsInPage = Math.min(MAX_SHARDS_PER_PAGE, Math.max(1, pageSize / ListHandler.MIN_MAX_RESULTS));
+    final List<Shard> shards = new ArrayList<>(shardsInPage);
+    if (cursor.getVpcId() != null) {
+      shards.add(new Shard(cursor.getVpcId(), cursor.getNextToken(), false, null));
+    }
+    boolean more = walkVpcs(cursor, shardsInPage - shards.size(), shards, proxyClient);
+
+    final List<CompletableFuture<DescribeNatGatewaysResponse>> shardPages = new ArrayList<>(shards.size());
+    for (int i = 0; i < shards.size(); i++) {
+      final Shard shard = shards.get(i);
+      final int shardSize = pageSize / shards.size() + (i < pageSize % shards.size() ? 1 : 0);
+      shardPages.add(CompletableFuture.supplyAsync(() -> ListHandler.fillPage(
+              Translator.translateToListRequest(shard.nextToken, ListHandler.maxResults(shardSize, 0), shard.vpcId),
+              shardSize,
+              proxyClient), LazyHolder.EXECUTOR));
+    }
+    final List<DescribeNatGatewaysResponse> responses = shardPages.stream().map(ShardedLister::join).collect(Collectors.toList());
+
+    final List<NatGateway> natGateways = new ArrayList<>();
+    final Cursor next = new Cursor(cursor.getVpcsToken(), cursor.getLastVpcId(), null, null);
+    for (int i = 0; i < shards.size(); i++) {
+      final Shard shard = shards.get(i);
+      final DescribeNatGatewaysResponse shardPage = responses.get(i);
+      if (shardPage.nextToken() != null) {
+        if (next.getVpcId() != null) {
+          // A second unfinished VPC ends the page, the walk resumes with it
+          more = true;
+          break;
+        }
+        next.setVpcId(shard.vpcId);
+        next.setNextToken(shardPage.nextToken());
+      }
+      natGateways.addAll(shardPage.natGateways());
+      if (shard.walked) {
+        next.setVpcsToken(shard.vpcsToken);
+        next.setLastVpcId(shard.vpcId);
+      }
+    }
+
+    return DescribeNatGatewaysResponse.builder()
+            .natGateways(natGateways)
+            .nextToken(next.getVpcId() == null && !more ? null : encodeToken(next))
+            .build();
+  }
+
+  /**
+   * Takes the next VPCs of the walk, describing the VPC page it stands on and the following ones as needed.
+   * @param cursor      where the walk stands
+   * @param wanted      number of VPCs to take
+   * @param shards      the shards of the page, the VPCs taken are added to
+   * @param proxyClient aws ec2 client used to make request
+   * @return whether VPCs are left after the ones taken
+   */
+  private static boolean walkVpcs(
+          final Cursor cursor,
+          final int wanted,
+          final List<Shard> shards,
+          final ProxyClient<Ec2Client> proxyClient) {
+    String vpcsToken = cursor.getVpcsToken();
+    String after = cursor.getLastVpcId();
+    int taken = 0;
+    while (true) {
+      final DescribeVpcsResponse describeVpcsResponse = proxyClient.injectCredentialsAndInvokeV2(
+              Translator.translateToDescribeVpcsRequest(vpcsToken), proxyClient.client()::describeVpcs);
+      final List<String> vpcIds = new ArrayList<>(describeVpcsResponse.vpcs().size());
+      for (final Vpc vpc : describeVpcsResponse.vpcs()) {
+        if (after == null || vpc.vpcId().compareTo(after) > 0) {
+          vpcIds.add(vpc.vpcId());
+        }
+      }
+      Collections.sort(vpcIds);
+      for (final String vpcId : vpcIds) {
+        if (taken == wanted) {
+          return true;
+        }
+        shards.add(new Shard(vpcId, null, true, vpcsToken));
+        taken++;
+      }
+      if (describeVpcsResponse.nextToken() == null) {
+        return false;
+      }
+      if (taken == wanted) {
+        return true;
+      }
+      vpcsToken = describeVpcsResponse.nextToken();
+      after = null;
+    }
+  }
+
+  static String encodeToken(final Cursor cursor) {
+    try {
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(cursor));
+    } catch (final IOException e) {
+      throw new IllegalStateException("Unable to encode the list next token", e);
+    }
+  }
+
+  static Cursor decodeToken(final String nextToken) {
+    try {
+      return MAPPER.readValue(Base64.getUrlDecoder().decode(nextToken.getBytes(StandardCharsets.US_ASCII)), Cursor.class);
+    } catch (final IOException | IllegalArgumentException e) {
+      throw new CfnInvalidRequestException(String.format("Invalid next token %s", nextToken), e);
+    }
+  }
+
+  // Rethrows the exception a shard failed with, so that it reaches handleError unwrapped
+  private static <T> T join(final CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (final CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  // Initialized on the first sharded List only. Daemon threads so an idle pool never keeps the JVM alive.
+  private static class LazyHolder {
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(MAX_SHARDS_PER_PAGE, runnable -> {
+      final Thread thread = new Thread(runnable, "nat-gateway-list-shard");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+}
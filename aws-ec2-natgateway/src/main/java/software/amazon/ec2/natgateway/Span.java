@@ -0,0 +1,43 @@
+package software.amazon.ec2.natgateway;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A finished tracing span, as handed to a SpanExporter. Times are in microseconds, the epoch based timestamp at which
+ * the span started and its duration, as in the Zipkin v2 format.
+ */
+@lombok.Getter
+@lombok.ToString
+public class Span {
+  public enum Kind {
+    // Work done by the handler, such as an invocation or a call-graph stage
+    INTERNAL,
+    // A call to EC2
+    CLIENT
+  }
+
+  private final String traceId;
+  private final String id;
+  // Null for the root span of the operation
+  private final String parentId;
+  private final String name;
+  private final Kind kind;
+  private final long timestamp;
+  private final long duration;
+  private final Map<String, String> tags;
+
+  @lombok.Builder
+  private Span(final String traceId, final String id, final String parentId, final String name, final Kind kind,
+               final long timestamp, final long duration, final Map<String, String> tags) {
+    this.traceId = traceId;
+    this.id = id;
+    this.parentId = parentId;
+    this.name = name;
+    this.kind = kind;
+    this.timestamp = timestamp;
+    this.duration = duration;
+    this.tags = tags == null ? Collections.emptyMap() : Collections.unmodifiableMap(new HashMap<>(tags));
+  }
+}
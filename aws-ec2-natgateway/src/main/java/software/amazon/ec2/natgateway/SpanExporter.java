@@ -0,0 +1,29 @@
+package software.amazon.ec2.natgateway;
+
+import java.nio.file.Paths;
+import java.util.Collection;
+
+/**
+ * Receives the spans of a handler invocation once it returns. Implementations must not throw on a failed export in a
+ * way that matters to the operation, the handler logs the failure and carries on.
+ */
+@FunctionalInterface
+public interface SpanExporter {
+  // Environment variable naming the file ZipkinFileSpanExporter appends to. Tracing is off when it is not set.
+  String TRACE_FILE_VARIABLE = "NAT_GATEWAY_TRACE_FILE";
+
+  SpanExporter NONE = spans -> { };
+
+  /**
+   * @param spans the spans of one invocation, children before their parents
+   */
+  void export(Collection<Span> spans);
+
+  /**
+   * @return a ZipkinFileSpanExporter writing to the file named by TRACE_FILE_VARIABLE, or NONE if it is not set
+   */
+  static SpanExporter fromEnvironment() {
+    final String traceFile = System.getenv(TRACE_FILE_VARIABLE);
+    return traceFile == null || traceFile.isEmpty() ? NONE : new ZipkinFileSpanExporter(Paths.get(traceFile));
+  }
+}
@@ -0,0 +1,103 @@
+package software.amazon.ec2.natgateway;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Minimal set of tag changes that brings the live tags of a NAT Gateway to the desired tags. A tag is only created when
+ * its live value differs from the desired one or it is missing, and only removed when it is live, not desired and one
+ * of the tags the caller manages, so tags put on the NAT Gateway by others are left alone. Applying the diff to the live
+ * tags converges them, after which the diff between them is empty.
+ *
+ * A tag key is never both created and removed, so the CreateTags and DeleteTags calls can be made in any order.
+ */
+@lombok.Getter
+public class TagDiff {
+  // Most tags EC2 accepts for a resource in a CreateTags or DeleteTags call
+  static final int MAX_TAGS_PER_CALL = 50;
+
+  private final Map<String, String> tagsToCreate;
+  private final Map<String, String> tagsToDelete;
+
+  private TagDiff(final Map<String, String> tagsToCreate, final Map<String, String> tagsToDelete) {
+    this.tagsToCreate = Collections.unmodifiableMap(tagsToCreate);
+    this.tagsToDelete = Collections.unmodifiableMap(tagsToDelete);
+  }
+
+  /**
+   * @param liveTags     the tags the NAT Gateway has
+   * @param desiredTags  the tags the NAT Gateway should have
+   * @param managedKeys  keys of the tags that are removed when they are not desired
+   * @return the tag changes, with the live value of each tag to remove so that DeleteTags only removes it unchanged
+   */
+  static TagDiff between(final Map<String, String> liveTags, final Map<String, String> desiredTags,
+                         final Set<String> managedKeys) {
+    final Map<String, String> tagsToCreate = new LinkedHashMap<>();
+    desiredTags.forEach((key, value) -> {
+      if (!liveTags.containsKey(key) || !Objects.equals(value, liveTags.get(key))) {
+        tagsToCreate.put(key, value);
+      }
+    });
+    final Map<String, String> tagsToDelete = new LinkedHashMap<>();
+    liveTags.forEach((key, value) -> {
+      if (managedKeys.contains(key) && !desiredTags.containsKey(key)) {
+        tagsToDelete.put(key, value);
+      }
+    });
+    return new TagDiff(tagsToCreate, tagsToDelete);
+  }
+
+  public boolean isEmpty() {
+    return tagsToCreate.isEmpty() && tagsToDelete.isEmpty();
+  }
+
+  /**
+   * @param liveTags the tags the NAT Gateway had when the diff was computed
+   * @return the tags the NAT Gateway has once the diff is applied
+   */
+  public Map<String, String> applyTo(final Map<String, String> liveTags) {
+    final Map<String, String> tags = new LinkedHashMap<>(liveTags);
+    tags.putAll(tagsToCreate);
+    tagsToDelete.keySet().forEach(tags::remove);
+    return tags;
+  }
+
+  /**
+   * @return the tags to create, split into the tags of each CreateTags call
+   */
+  public List<Map<String, String>> createChunks() {
+    return chunk(tagsToCreate);
+  }
+
+  /**
+   * @return the tags to remove, split into the tags of each DeleteTags call
+   */
+  public List<Map<String, String>> deleteChunks() {
+    return chunk(tagsToDelete);
+  }
+
+  /**
+   * @param tags tags to change
+   * @return the tags split into the tags of each call, at most MAX_TAGS_PER_CALL each
+   */
+  static List<Map<String, String>> chunk(final Map<String, String> tags) {
+    final List<Map<String, String>> chunks = new ArrayList<>();
+    Map<String, String> chunk = new LinkedHashMap<>();
+    for (final Map.Entry<String, String> tag : tags.entrySet()) {
+      if (chunk.size() == MAX_TAGS_PER_CALL) {
+        chunks.add(chunk);
+        chunk = new LinkedHashMap<>();
+      }
+      chunk.put(tag.getKey(), tag.getValue());
+    }
+    if (!chunk.isEmpty()) {
+      chunks.add(chunk);
+    }
+    return chunks;
+  }
+}
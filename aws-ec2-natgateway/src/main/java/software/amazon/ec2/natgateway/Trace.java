@@ -0,0 +1,186 @@
+package software.amazon.ec2.natgateway;
+
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * The spans of one handler invocation. An operation is traced as:
+ *  - an operation span, the root, from the first invocation until the operation succeeds or fails
+ *  - an invocation span per handler invocation, a child of the operation span
+ *  - a stage span per call-graph stage, such as AWS-EC2-NatGateway::Delete::PreDeletionCheck, a child of the
+ *    invocation span. A stage lasts until the next one starts or the invocation returns.
+ *  - a client span per EC2 call, a child of the stage it was made in
+ * The trace id, the operation span id and the operation start time are kept in the callback context, so every
+ * invocation of the operation joins the same trace. The operation span is only finished, and exported, by the last one.
+ *
+ * Client spans may be recorded from the executor threads the Update handler makes its tag calls on.
+ */
+public class Trace {
+  static final String INVOCATION_TAG = "invocation";
+  static final String STATUS_TAG = "status";
+  static final String ERROR_TAG = "error";
+
+  private final String traceId;
+  private final String operationSpanId;
+  private final String operationName;
+  private final long operationStartMillis;
+  private final OpenSpan invocation;
+  private final Queue<Span> finished = new ConcurrentLinkedQueue<>();
+  private volatile OpenSpan stage;
+
+  private Trace(final CallbackContext callbackContext, final String operationName) {
+    this.traceId = callbackContext.getTraceId();
+    this.operationSpanId = callbackContext.getOperationSpanId();
+    this.operationName = operationName;
+    this.operationStartMillis = callbackContext.getOperationStartTime();
+    this.invocation = new OpenSpan(operationName + "::Invocation", operationSpanId, Span.Kind.INTERNAL);
+    this.invocation.tag(INVOCATION_TAG, Integer.toString(callbackContext.getInvocations()));
+  }
+
+  /**
+   * Starts tracing an invocation, joining the trace of the operation recorded in the callback context or starting a
+   * new one on the first invocation.
+   * @param callbackContext the callback context holding the trace of the operation
+   * @param operationName   the operation, such as AWS-EC2-NatGateway::Create, which names its spans with an Operation
+   *                        and an Invocation suffix
+   * @return the trace of the invocation
+   */
+  public static Trace resume(final CallbackContext callbackContext, final String operationName) {
+    if (callbackContext.getTraceId() == null) {
+      callbackContext.setTraceId(newId(2));
+      callbackContext.setOperationSpanId(newId(1));
+      callbackContext.setOperationStartTime(System.currentTimeMillis());
+    }
+    callbackContext.setInvocations(callbackContext.getInvocations() + 1);
+    return new Trace(callbackContext, operationName);
+  }
+
+  /**
+   * Finishes the running stage, if any, and starts the given one.
+   * @param name the call-graph stage name
+   */
+  public void startStage(final String name) {
+    final OpenSpan previous = stage;
+    stage = new OpenSpan(name, invocation.id, Span.Kind.INTERNAL);
+    if (previous != null) {
+      finished.add(previous.finish());
+    }
+  }
+
+  /**
+   * Runs an EC2 call in a client span, a child of the running stage.
+   * @param action the EC2 action, such as DescribeNatGateways
+   * @param call   the call
+   * @return what the call returned
+   */
+  public <T> T call(final String action, final Supplier<T> call) {
+    final OpenSpan running = stage;
+    final OpenSpan span = new OpenSpan(action, running != null ? running.id : invocation.id, Span.Kind.CLIENT);
+    try {
+      return call.get();
+    } catch (final AwsServiceException e) {
+      span.tag(ERROR_TAG, e.awsErrorDetails() != null && e.awsErrorDetails().errorCode() != null
+              ? e.awsErrorDetails().errorCode() : e.getClass().getSimpleName());
+      throw e;
+    } catch (final RuntimeException e) {
+      span.tag(ERROR_TAG, e.getClass().getSimpleName());
+      throw e;
+    } finally {
+      finished.add(span.finish());
+    }
+  }
+
+  /**
+   * Finishes the invocation, and the operation too when it is done.
+   * @param status        the outcome of the invocation, such as SUCCESS or IN_PROGRESS
+   * @param operationDone whether no further invocation will follow
+   * @return every span finished during the invocation, children before their parents
+   */
+  public List<Span> finish(final String status, final boolean operationDone) {
+    final OpenSpan running = stage;
+    stage = null;
+    if (running != null) {
+      finished.add(running.finish());
+    }
+    finished.add(invocation.tag(STATUS_TAG, status).finish());
+    if (operationDone) {
+      final long now = epochMicros();
+      finished.add(Span.builder()
+              .traceId(traceId)
+              .id(operationSpanId)
+              .name(operationName + "::Operation")
+              .kind(Span.Kind.INTERNAL)
+              .timestamp(operationStartMillis * 1000)
+              .duration(Math.max(0, now - operationStartMillis * 1000))
+              .tags(Collections.singletonMap(STATUS_TAG, status))
+              .build());
+    }
+    return new ArrayList<>(finished);
+  }
+
+  /**
+   * @param words number of 64 bit words in the id
+   * @return a random lowercase hex id, 16 characters per word as in the Zipkin and W3C formats
+   */
+  private static String newId(final int words) {
+    final StringBuilder id = new StringBuilder(16 * words);
+    for (int i = 0; i < words; i++) {
+      final String word = Long.toHexString(ThreadLocalRandom.current().nextLong());
+      for (int pad = word.length(); pad < 16; pad++) {
+        id.append('0');
+      }
+      id.append(word);
+    }
+    return id.toString();
+  }
+
+  private static long epochMicros() {
+    return System.currentTimeMillis() * 1000;
+  }
+
+  /**
+   * A span being recorded. Its duration is measured with nanoTime, which unlike the wall clock never goes backwards.
+   */
+  private final class OpenSpan {
+    private final String id = newId(1);
+    private final String name;
+    private final String parentId;
+    private final Span.Kind kind;
+    private final long timestamp = epochMicros();
+    private final long startNanos = System.nanoTime();
+    private final Map<String, String> tags = new HashMap<>();
+
+    private OpenSpan(final String name, final String parentId, final Span.Kind kind) {
+      this.name = name;
+      this.parentId = parentId;
+      this.kind = kind;
+    }
+
+    private OpenSpan tag(final String key, final String value) {
+      tags.put(key, value);
+      return this;
+    }
+
+    private Span finish() {
+      return Span.builder()
+              .traceId(traceId)
+              .id(id)
+              .parentId(parentId)
+              .name(name)
+              .kind(kind)
+              .timestamp(timestamp)
+              .duration((System.nanoTime() - startNanos) / 1000)
+              .tags(tags)
+              .build();
+    }
+  }
+}
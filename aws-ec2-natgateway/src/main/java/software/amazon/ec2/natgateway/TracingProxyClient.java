@@ -0,0 +1,24 @@
+package software.amazon.ec2.natgateway;
+
+import software.amazon.awssdk.awscore.AwsRequest;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.cloudformation.proxy.ProxyClient;
+
+import java.util.function.Supplier;
+
+/**
+ * ProxyClient that records every call in a client span of the invocation's Trace, a child of the running stage.
+ */
+public class TracingProxyClient extends ForwardingProxyClient {
+  private final Trace trace;
+
+  public TracingProxyClient(final ProxyClient<Ec2Client> delegate, final Trace trace) {
+    super(delegate);
+    this.trace = trace;
+  }
+
+  @Override
+  protected <T> T around(final AwsRequest request, final Supplier<T> call) {
+    return trace.call(MetricsProxyClient.action(request), call);
+  }
+}
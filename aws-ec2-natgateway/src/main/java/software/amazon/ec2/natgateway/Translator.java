@@ -6,15 +6,21 @@ import software.amazon.awssdk.services.ec2.model.CreateNatGatewayRequest;
 import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysRequest;
 import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysResponse;
 import software.amazon.awssdk.services.ec2.model.DeleteNatGatewayRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeVpcsRequest;
+import software.amazon.awssdk.services.ec2.model.Filter;
+import software.amazon.awssdk.services.ec2.model.NatGatewayState;
 import software.amazon.awssdk.services.ec2.model.TagSpecification;
 import software.amazon.awssdk.services.ec2.model.Tag;
 import software.amazon.awssdk.services.ec2.model.NatGateway;
+import software.amazon.awssdk.services.ec2.model.NatGatewayAddress;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -29,6 +35,18 @@ import java.util.stream.Stream;
  */
 
 public class Translator {
+  // Every NAT Gateway state a resource can be listed in, which is all of them except deleted
+  private static final List<String> LISTED_STATES = Arrays.asList(
+          NatGatewayState.PENDING.toString(),
+          NatGatewayState.AVAILABLE.toString(),
+          NatGatewayState.FAILED.toString(),
+          NatGatewayState.DELETING.toString());
+  // SDK models are immutable, so every list request can share the same filter
+  private static final Filter LISTED_STATES_FILTER = Filter.builder().name("state").values(LISTED_STATES).build();
+  // EC2 accepts at most 200 values per filter
+  static final int MAX_IDS_PER_DESCRIBE = 200;
+  // Prefix of the tags reserved by AWS, which are not part of the resource model
+  private static final String AWS_TAG_PREFIX = "aws:";
 
   /**
    * Request to create a NAT Gateway resource
@@ -62,12 +80,26 @@ public class Translator {
    * @return model AWS::EC2::NatGateway resource model
    */
   static ResourceModel translateNatGatewayToResourceModel(final NatGateway natGateway) {
+    String allocationId = null;
+    for (final NatGatewayAddress natGatewayAddress : natGateway.natGatewayAddresses()) {
+      if (natGatewayAddress != null) {
+        allocationId = natGatewayAddress.allocationId();
+        break;
+      }
+    }
+    // Skips the aws: tags before converting, rather than converting every tag and filtering the result
+    final List<software.amazon.ec2.natgateway.Tag> tags = new ArrayList<>(natGateway.tags().size());
+    for (final Tag tag : natGateway.tags()) {
+      if (!tag.key().startsWith(AWS_TAG_PREFIX)) {
+        tags.add(software.amazon.ec2.natgateway.Tag.builder().key(tag.key()).value(tag.value()).build());
+      }
+    }
     return ResourceModel.builder()
             .natGatewayId(natGateway.natGatewayId())
             .subnetId(natGateway.subnetId())
             .connectivityType(natGateway.connectivityTypeAsString())
-            .allocationId(natGateway.natGatewayAddresses().get(0).allocationId())
-            .tags(convertToNatTags(natGateway.tags()).stream().filter(n -> !n.getKey().startsWith("aws:")).collect(Collectors.toList()))
+            .allocationId(allocationId)
+            .tags(tags)
             .build();
   }
 
@@ -87,7 +119,17 @@ public class Translator {
    * @return awsRequest the aws service request to create the tags
    */
   static CreateTagsRequest translateToCreateTagsRequest(Map<String, String> tagsToCreate, final ResourceModel model) {
-    return CreateTagsRequest.builder().tags(convertToSdkTags(tagsToCreate)).resources(model.getNatGatewayId()).build();
+    return translateToCreateTagsRequest(tagsToCreate, Collections.singletonList(model.getNatGatewayId()));
+  }
+
+  /**
+   * Request to create the same Tags for several NAT Gateways at once, used by the BulkTagger
+   * @param tagsToCreate Tags to create and add to every NAT Gateway
+   * @param natGatewayIds ids of the NAT Gateways, at most BulkTagger.MAX_RESOURCES_PER_CALL
+   * @return awsRequest the aws service request to create the tags
+   */
+  static CreateTagsRequest translateToCreateTagsRequest(Map<String, String> tagsToCreate, final Collection<String> natGatewayIds) {
+    return CreateTagsRequest.builder().tags(convertToSdkTags(tagsToCreate)).resources(natGatewayIds).build();
   }
 
   /**
@@ -97,16 +139,88 @@ public class Translator {
    * @return awsRequest the aws service request to delete the tags
    */
   static DeleteTagsRequest translateToDeleteTagsRequest(Map<String, String> tagsToDelete, final ResourceModel model) {
-    return DeleteTagsRequest.builder().tags(convertToSdkTags(tagsToDelete)).resources(model.getNatGatewayId()).build();
+    return translateToDeleteTagsRequest(tagsToDelete, Collections.singletonList(model.getNatGatewayId()));
+  }
+
+  /**
+   * Request to delete the same Tags from several NAT Gateways at once, used by the BulkTagger
+   * @param tagsToDelete Tags to delete and remove from every NAT Gateway
+   * @param natGatewayIds ids of the NAT Gateways, at most BulkTagger.MAX_RESOURCES_PER_CALL
+   * @return awsRequest the aws service request to delete the tags
+   */
+  static DeleteTagsRequest translateToDeleteTagsRequest(Map<String, String> tagsToDelete, final Collection<String> natGatewayIds) {
+    return DeleteTagsRequest.builder().tags(convertToSdkTags(tagsToDelete)).resources(natGatewayIds).build();
   }
 
   /**
-   * Request to list resources
+   * Applies a tag diff to a described NAT Gateway, mirroring the CreateTags call followed by the DeleteTags call made by
+   * the Update Handler. DeleteTags only removes a tag whose value matches.
+   * @param natGateway given Nat Gateway received from a Describe response
+   * @param tagsToCreate Tags added to the resource
+   * @param tagsToDelete Tags removed from the resource
+   * @return the Nat Gateway with its tags updated
+   */
+  static NatGateway applyTagDiff(final NatGateway natGateway, final Map<String, String> tagsToCreate,
+                                 final Map<String, String> tagsToDelete) {
+    final Map<String, String> tags = new LinkedHashMap<>();
+    streamOfOrEmpty(natGateway.tags()).forEach(tag -> tags.put(tag.key(), tag.value()));
+    tags.putAll(tagsToCreate);
+    tagsToDelete.forEach(tags::remove);
+    return natGateway.toBuilder().tags(convertToSdkTags(tags)).build();
+  }
+
+  /**
+   * Request to list resources. Deleted NAT Gateways stay visible for about an hour, so they are filtered out by EC2
+   * instead of being returned and dropped, which would leave pages nearly empty.
    * @param nextToken token passed to the aws service list resources request
+   * @param maxResults maximum number of NAT Gateways EC2 should return
    * @return awsRequest the aws service request to list resources within aws account
    */
-  static DescribeNatGatewaysRequest translateToListRequest(final String nextToken) {
-    return DescribeNatGatewaysRequest.builder().nextToken(nextToken).build();
+  static DescribeNatGatewaysRequest translateToListRequest(final String nextToken, final int maxResults) {
+    return DescribeNatGatewaysRequest.builder()
+            .filter(LISTED_STATES_FILTER)
+            .maxResults(maxResults)
+            .nextToken(nextToken)
+            .build();
+  }
+
+  /**
+   * Request to describe several NAT Gateways at once, used by batch reads. A filter is used rather than the NAT Gateway
+   * ids so that a NAT Gateway that no longer exists is left out instead of failing the whole call.
+   * @param natGatewayIds the NAT Gateways to describe, at most MAX_IDS_PER_DESCRIBE
+   * @return awsRequest the aws service request to describe the resources
+   */
+  static DescribeNatGatewaysRequest translateToBatchReadRequest(final Collection<String> natGatewayIds) {
+    return DescribeNatGatewaysRequest.builder()
+            .filter(Filter.builder().name("nat-gateway-id").values(natGatewayIds).build())
+            .maxResults(1000)
+            .build();
+  }
+
+  /**
+   * Request to list the resources of a single VPC, used by the sharded List
+   * @param nextToken token passed to the aws service list resources request
+   * @param maxResults maximum number of NAT Gateways EC2 should return
+   * @param vpcId the VPC the NAT Gateways are listed from
+   * @return awsRequest the aws service request to list resources within the VPC
+   */
+  static DescribeNatGatewaysRequest translateToListRequest(final String nextToken, final int maxResults, final String vpcId) {
+    final DescribeNatGatewaysRequest listRequest = translateToListRequest(nextToken, maxResults);
+    return listRequest.toBuilder()
+            .filter(listRequest.filter().get(0), Filter.builder().name("vpc-id").values(vpcId).build())
+            .build();
+  }
+
+  /**
+   * Request to list the VPCs of the account, which the sharded List splits the NAT Gateways by
+   * @param nextToken token passed to the aws service describe VPCs request
+   * @return awsRequest the aws service request to describe the VPCs within aws account
+   */
+  static DescribeVpcsRequest translateToDescribeVpcsRequest(final String nextToken) {
+    return DescribeVpcsRequest.builder()
+            .maxResults(1000)
+            .nextToken(nextToken)
+            .build();
   }
 
   /**
@@ -115,10 +229,23 @@ public class Translator {
    * @return list of resource models
    */
   static List<ResourceModel> translateFromListRequest(final DescribeNatGatewaysResponse describeNatGatewaysResponse) {
+    // Runs once per listed NAT Gateway, up to 1000 per page, so the list is sized up front and no stream is built
+    final List<ResourceModel> models = new ArrayList<>(describeNatGatewaysResponse.natGateways().size());
+    for (final NatGateway natGateway : describeNatGatewaysResponse.natGateways()) {
+      models.add(ResourceModel.builder().natGatewayId(natGateway.natGatewayId()).build());
+    }
+    return models;
+  }
+
+  /**
+   * Translates resource objects from sdk into fully populated resource models, the same ones the Read Handler returns.
+   * The describe response already holds every property, so this needs no further API calls.
+   * @param describeNatGatewaysResponse the aws service describe resource response
+   * @return list of resource models
+   */
+  static List<ResourceModel> translateFromListRequestWithProperties(final DescribeNatGatewaysResponse describeNatGatewaysResponse) {
     return streamOfOrEmpty(describeNatGatewaysResponse.natGateways())
-        .map(resource -> ResourceModel.builder()
-            .natGatewayId(resource.natGatewayId())
-            .build())
+        .map(Translator::translateNatGatewayToResourceModel)
         .collect(Collectors.toList());
   }
 
@@ -134,13 +261,14 @@ public class Translator {
    * @return List of Nat Gateway Resource tags
    */
   static List<software.amazon.ec2.natgateway.Tag> convertToNatTags(final List<Tag> tags) {
-    return Optional.ofNullable(tags).orElse(Collections.emptyList())
-            .stream()
-            .map(tag -> software.amazon.ec2.natgateway.Tag.builder()
-                    .key(tag.key())
-                    .value(tag.value())
-                    .build())
-            .collect(Collectors.toList());
+    if (tags == null) {
+      return new ArrayList<>(0);
+    }
+    final List<software.amazon.ec2.natgateway.Tag> natTags = new ArrayList<>(tags.size());
+    for (final Tag tag : tags) {
+      natTags.add(software.amazon.ec2.natgateway.Tag.builder().key(tag.key()).value(tag.value()).build());
+    }
+    return natTags;
   }
 
   /**
@@ -149,13 +277,9 @@ public class Translator {
    * @return List of SDK tags
    */
   static List<Tag> convertToSdkTags(Map<String, String> tags) {
-    return Optional.ofNullable(tags.entrySet()).orElse(Collections.emptySet())
-            .stream()
-            .map(tag -> Tag.builder()
-                    .key(tag.getKey())
-                    .value(tag.getValue())
-                    .build())
-            .collect(Collectors.toList());
+    final List<Tag> sdkTags = new ArrayList<>(tags.size());
+    tags.forEach((key, value) -> sdkTags.add(Tag.builder().key(key).value(value).build()));
+    return sdkTags;
   }
 
   /**
@@ -164,19 +288,21 @@ public class Translator {
    * @return List of TagSpecification tags
    */
   private static Optional<List<TagSpecification>> convertNatTagsToTagSpecification(Map<String, String> modelTags, Map<String, String> systemTags) {
-    Map<String, String> allTags = new HashMap<String, String>();
     if (modelTags == null && systemTags == null) {
       return Optional.empty();
     }
 
-    if (modelTags != null) {
-      allTags.putAll(modelTags);
-    }
-
-    if (systemTags != null) {
+    // Only merged when there are both, a system tag winning over a resource tag of the same key
+    final Map<String, String> allTags;
+    if (modelTags == null) {
+      allTags = systemTags;
+    } else if (systemTags == null) {
+      allTags = modelTags;
+    } else {
+      allTags = new HashMap<>(modelTags);
       allTags.putAll(systemTags);
     }
-    return Optional.of(Arrays.asList(TagSpecification.builder()
+    return Optional.of(Collections.singletonList(TagSpecification.builder()
             .resourceType("natgateway")
             .tags(convertToSdkTags(allTags))
             .build()));
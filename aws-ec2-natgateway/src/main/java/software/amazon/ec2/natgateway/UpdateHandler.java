@@ -6,6 +6,8 @@ import software.amazon.awssdk.services.ec2.model.CreateTagsRequest;
 import software.amazon.awssdk.services.ec2.model.CreateTagsResponse;
 import software.amazon.awssdk.services.ec2.model.DeleteTagsRequest;
 import software.amazon.awssdk.services.ec2.model.DeleteTagsResponse;
+import software.amazon.awssdk.services.ec2.model.NatGateway;
+import software.amazon.awssdk.services.ec2.model.Tag;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
 import software.amazon.cloudformation.proxy.Logger;
 import software.amazon.cloudformation.proxy.ProgressEvent;
@@ -15,13 +17,28 @@ import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 
 public class UpdateHandler extends BaseHandlerStd {
+    // A stack manages at most 50 tags, so an update makes at most one CreateTags and one DeleteTags call
+    static final int MAX_CONCURRENT_TAG_CALLS = 2;
+
     private Logger logger;
 
+    @Override
+    protected boolean mutatesNatGateway() {
+        return true;
+    }
+
     protected ProgressEvent<ResourceModel, CallbackContext> handleRequest(
         final AmazonWebServicesClientProxy proxy,
         final ResourceHandlerRequest<ResourceModel> request,
@@ -57,16 +74,23 @@ public class UpdateHandler extends BaseHandlerStd {
 
         return ProgressEvent.progress(model, callbackContext)
                 .then(newProgress ->
-                        proxy.initiate("AWS-EC2-NatGateway::Update::PreUpdateCheck", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
-                                .translateToServiceRequest(Translator::translateToReadRequest)
+                        initiate(proxy, "AWS-EC2-NatGateway::Update::PreUpdateCheck", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
+                                .translateToServiceRequest(readModel -> translate(() -> Translator.translateToReadRequest(readModel)))
                                 .makeServiceCall((awsRequest, _proxyClient) -> readResource(awsRequest, proxyClient , logger))
-                                .progress()
+                                .done((awsRequest, natGateway, client, clientModel, context) -> {
+                                    // Kept for the chained Read, which then needs no DescribeNatGateways call of its own
+                                    context.setNatGatewaySnapshot(natGateway);
+                                    return ProgressEvent.progress(clientModel, context);
+                                })
                 );
     }
 
     /**
      * This will use the EC2 Tagging APIs to update the tags for the nat gateway resource by deleting the unwanted tags
-     * and creating the desired ones.
+     * and creating the desired ones. The tags are reconciled against the live tags returned by the pre-update check, so
+     * tags that already have their desired value are not created again and tags that drifted are put back. No call is
+     * made when nothing differs. The CreateTags and DeleteTags calls never touch the same tag, so they are made
+     * concurrently.
      * @param progress          holds the current progress data
      * @param proxy             aws proxy used to inject credentials and to initiate the proxy chain for the call graph
      * @param proxyClient       aws ec2 client used to make request
@@ -86,35 +110,48 @@ public class UpdateHandler extends BaseHandlerStd {
         final Map<String, String> oldTags = request.getPreviousResourceTags() == null ? Collections.emptyMap() : request.getPreviousResourceTags();
         final Map<String, String> newTags = request.getDesiredResourceTags() == null ? Collections.emptyMap() : request.getDesiredResourceTags();
 
-        final Map<String, String> tagsToDelete = new HashMap<String, String>();
-        tagsToDelete.putAll(oldTags);
-        tagsToDelete.entrySet().removeAll(newTags.entrySet());
-
-        final Map<String, String> tagsToCreate = new HashMap<String, String>();
-        tagsToCreate.putAll(newTags);
-        tagsToCreate.entrySet().removeAll(oldTags.entrySet());
+        final Map<String, String> desiredTags = new HashMap<String, String>(newTags);
+        // Only tags the stack manages are removed, tags put on the NAT Gateway outside of the stack are kept
+        final Set<String> managedKeys = new HashSet<String>(oldTags.keySet());
 
         // Adds system tags when updating after importing a resource
         if (request.getPreviousSystemTags() == null && request.getSystemTags() != null) {
-            tagsToCreate.putAll(request.getSystemTags());
+            desiredTags.putAll(request.getSystemTags());
         }
 
         // Removes system tags if update is rolled back after importing a resource
         if (request.getPreviousSystemTags() != null && request.getSystemTags() == null) {
-            tagsToDelete.putAll(request.getPreviousResourceTags());
+            managedKeys.addAll(request.getPreviousSystemTags().keySet());
         }
 
-        return ProgressEvent.progress(model, callbackContext)
-                .then(newProgress -> tagsToCreate.isEmpty() ? progress :
-                        proxy.initiate("AWS-EC2-NatGateway::Update::CreateTags", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
-                                .translateToServiceRequest(createRequest -> Translator.translateToCreateTagsRequest(tagsToCreate, model))
-                                .makeServiceCall((createRequest, client) -> createTags(createRequest, proxyClient, logger))
-                                .progress())
-                .then(newProgress -> tagsToDelete.isEmpty() ? progress :
-                        proxy.initiate("AWS-EC2-NatGateway::Update::DeleteTags", proxyClient, progress.getResourceModel(), progress.getCallbackContext())
-                                .translateToServiceRequest(deleteRequest -> Translator.translateToDeleteTagsRequest(tagsToDelete, model))
-                                .makeServiceCall((deleteRequest, client) -> deleteTags(deleteRequest, proxyClient, logger))
-                                .progress());
+        final NatGateway snapshot = callbackContext.getNatGatewaySnapshot();
+        final Map<String, String> liveTags = snapshot == null ? oldTags : snapshot.tags().stream()
+                .collect(Collectors.toMap(Tag::key, Tag::value, (first, second) -> second));
+        final TagDiff tagDiff = TagDiff.between(liveTags, desiredTags, managedKeys);
+        if (tagDiff.isEmpty()) {
+            logger.log(String.format("%s's tags are already up to date.", ResourceModel.TYPE_NAME));
+            return progress;
+        }
+
+        // Not a call graph of its own, the tag calls are made concurrently outside of proxy.initiate
+        startStage(callbackContext, "AWS-EC2-NatGateway::Update::Tags");
+        final List<CompletableFuture<?>> calls = new ArrayList<>();
+        tagDiff.createChunks().forEach(tagsToCreate -> calls.add(CompletableFuture.runAsync(() ->
+                createTags(Translator.translateToCreateTagsRequest(tagsToCreate, model), proxyClient, logger), LazyHolder.EXECUTOR)));
+        tagDiff.deleteChunks().forEach(tagsToDelete -> calls.add(CompletableFuture.runAsync(() ->
+                deleteTags(Translator.translateToDeleteTagsRequest(tagsToDelete, model), proxyClient, logger), LazyHolder.EXECUTOR)));
+        try {
+            CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0])).join();
+        } catch (final CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+
+        // The tags just applied are the only change, so the pre-check snapshot stays accurate once they are folded in
+        if (snapshot != null) {
+            callbackContext.setNatGatewaySnapshot(translateResult(() ->
+                    Translator.applyTagDiff(snapshot, tagDiff.getTagsToCreate(), tagDiff.getTagsToDelete())));
+        }
+        return progress;
     }
 
     /**
@@ -156,4 +193,13 @@ public class UpdateHandler extends BaseHandlerStd {
         logger.log(String.format("%s's tags have successfully been deleted.", ResourceModel.TYPE_NAME));
         return deleteTagsResponse;
     }
+
+    // Initialized on the first tag update only. Daemon threads so an idle pool never keeps the JVM alive.
+    private static class LazyHolder {
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(MAX_CONCURRENT_TAG_CALLS, runnable -> {
+            final Thread thread = new Thread(runnable, "nat-gateway-tagging");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 }
@@ -0,0 +1,83 @@
+package software.amazon.ec2.natgateway;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Appends spans to a local file for offline analysis, one Zipkin v2 JSON span per line. The file holds the spans of
+ * every invocation that ran on this machine, and `jq -s . file` turns it into the JSON array Zipkin and Jaeger import.
+ */
+public class ZipkinFileSpanExporter implements SpanExporter {
+  static final String SERVICE_NAME = "aws-ec2-natgateway";
+  static final String REMOTE_SERVICE_NAME = "ec2";
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final Path file;
+
+  public ZipkinFileSpanExporter(final Path file) {
+    this.file = file;
+  }
+
+  /**
+   * @throws UncheckedIOException if the file can not be written
+   */
+  @Override
+  public void export(final Collection<Span> spans) {
+    final List<String> lines = new ArrayList<>(spans.size());
+    for (final Span span : spans) {
+      lines.add(toZipkinJson(span));
+    }
+    try {
+      // Containers serve one invocation at a time, but several may share the file when run locally
+      synchronized (ZipkinFileSpanExporter.class) {
+        Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @param span a finished span
+   * @return the span in the Zipkin v2 JSON format
+   */
+  static String toZipkinJson(final Span span) {
+    final ObjectNode json = MAPPER.createObjectNode()
+            .put("traceId", span.getTraceId())
+            .put("id", span.getId())
+            .put("name", span.getName())
+            .put("timestamp", span.getTimestamp())
+            .put("duration", span.getDuration());
+    if (span.getParentId() != null) {
+      json.put("parentId", span.getParentId());
+    }
+    // Zipkin leaves the kind out for local spans
+    if (span.getKind() == Span.Kind.CLIENT) {
+      json.put("kind", "CLIENT");
+      json.putObject("remoteEndpoint").put("serviceName", REMOTE_SERVICE_NAME);
+    }
+    json.putObject("localEndpoint").put("serviceName", SERVICE_NAME);
+    if (!span.getTags().isEmpty()) {
+      final ObjectNode tags = json.putObject("tags");
+      span.getTags().forEach(tags::put);
+    }
+    try {
+      return MAPPER.writeValueAsString(json);
+    } catch (final JsonProcessingException e) {
+      // Only strings and numbers are written
+      throw new IllegalStateException(e);
+    }
+  }
+}
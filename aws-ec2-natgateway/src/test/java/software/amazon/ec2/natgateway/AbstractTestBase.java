@@ -1,24 +1,35 @@
 package software.amazon.ec2.natgateway;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import software.amazon.awssdk.awscore.AwsRequest;
 import software.amazon.awssdk.awscore.AwsResponse;
 import software.amazon.awssdk.services.ec2.Ec2Client;
 import software.amazon.awssdk.core.ResponseBytes;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.pagination.sync.SdkIterable;
+import software.amazon.awssdk.services.ec2.model.CreateNatGatewayRequest;
 import software.amazon.awssdk.services.ec2.model.NatGateway;
 import software.amazon.awssdk.services.ec2.model.NatGatewayAddress;
 import software.amazon.awssdk.services.ec2.model.Tag;
+import software.amazon.awssdk.services.ec2.model.TagSpecification;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
 import software.amazon.cloudformation.proxy.Credentials;
 import software.amazon.cloudformation.proxy.LoggerProxy;
+import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import software.amazon.cloudformation.resource.Serializer;
 
 public class AbstractTestBase {
   protected static final Credentials MOCK_CREDENTIALS;
@@ -27,14 +38,35 @@ public class AbstractTestBase {
   protected final String NAT_ID = "nat-0123456789abcdefg";
   protected final String ALT_NAT_ID = "nat-0abcdefg123456789";
   protected final String SUBNET_ID = "subnet-0123456789abcdefg";
+  protected final String VPC_ID = "vpc-0123456789abcdefg";
+  protected final String ALT_VPC_ID = "vpc-0abcdefg123456789";
   protected final String ALLOC_ID = "eipalloc-0123456789abcdefg";
   protected final String CONN_PUBLIC = "public";
   protected final String CONN_PRIVATE = "private";
   protected final String NEXT_TOKEN = "token-1";
+  // System tags CloudFormation puts on every NAT Gateway it creates
+  protected final String STACK_ID_TAG = "aws:cloudformation:stack-id";
+  protected final String LOGICAL_ID_TAG = "aws:cloudformation:logical-id";
   protected final Tag TAG_1 = Tag.builder().key("Key_1").value("Value_1").build();
   protected final Tag TAG_2 = Tag.builder().key("Key_2").value("Value_2").build();
   protected final List<Tag> TAGS = Collections.singletonList(TAG_1);
 
+  // Time between two invocations of a handler driven against the Ec2Simulator, see invokeUntilDone
+  protected static final Duration INVOCATION_INTERVAL = Duration.ofSeconds(10);
+  // Invocations after which invokeUntilDone gives up on a handler that stays in progress
+  private static final int MAX_INVOCATIONS = 100;
+
+  // Epoch millis the simulators built by simulator run at, moved forward by the tests
+  protected final AtomicLong clock = new AtomicLong(1_600_000_000_000L);
+
+  /**
+   * One handler invocation, as made by invokeUntilDone.
+   */
+  @FunctionalInterface
+  interface Invocation {
+    ProgressEvent<ResourceModel, CallbackContext> invoke(CallbackContext callbackContext);
+  }
+
   static {
     MOCK_CREDENTIALS = new Credentials("accessKey", "secretKey", "token");
     logger = new LoggerProxy();
@@ -104,4 +136,115 @@ public class AbstractTestBase {
             .natGatewayAddresses(addr)
             .build();
   }
+
+  /**
+   * @return a simulator running at the test's clock, with the test subnet in the test VPC
+   */
+  protected Ec2Simulator simulator(final Ec2Simulator.Config.ConfigBuilder config) {
+    return new Ec2Simulator(config.clock(clock::get).build()).addSubnet(SUBNET_ID, VPC_ID);
+  }
+
+  protected String givenNatGateway(final Ec2Simulator simulator) {
+    return givenNatGateway(simulator, Collections.emptyMap());
+  }
+
+  /**
+   * Creates a NAT Gateway on the simulator directly, without going through a proxy client, so that it is not counted
+   * against the handler under test.
+   */
+  protected String givenNatGateway(final Ec2Simulator simulator, final Map<String, String> tags) {
+    return simulator.createNatGateway(CreateNatGatewayRequest.builder()
+            .subnetId(SUBNET_ID)
+            .allocationId(ALLOC_ID)
+            .tagSpecifications(TagSpecification.builder().resourceType("natgateway").tags(Translator.convertToSdkTags(tags)).build())
+            .build()).natGateway().natGatewayId();
+  }
+
+  protected void advance(final Duration duration) {
+    clock.addAndGet(duration.toMillis());
+  }
+
+  /**
+   * Moves the clock past the time a NAT Gateway stays pending, so that the ones given are available.
+   */
+  protected void settle() {
+    advance(Duration.ofMinutes(5));
+  }
+
+  /**
+   * Invokes the handler until it is done, as CloudFormation would, moving the clock forward by INVOCATION_INTERVAL
+   * between invocations.
+   */
+  protected ProgressEvent<ResourceModel, CallbackContext> invokeUntilDone(final ResourceHandlerRequest<ResourceModel> request,
+                                                                          final Invocation invocation) {
+    return invokeUntilDone(request, invocation, response -> INVOCATION_INTERVAL);
+  }
+
+  /**
+   * Invokes the handler until it is done, as CloudFormation would. Between invocations the callback context goes
+   * through the callback payload, the request carries the model returned, and the clock moves forward by the given
+   * interval.
+   */
+  protected ProgressEvent<ResourceModel, CallbackContext> invokeUntilDone(
+          final ResourceHandlerRequest<ResourceModel> request,
+          final Invocation invocation,
+          final Function<ProgressEvent<ResourceModel, CallbackContext>, Duration> interval) {
+    CallbackContext callbackContext = new CallbackContext();
+    ProgressEvent<ResourceModel, CallbackContext> response;
+    int invocations = 0;
+    do {
+      response = invocation.invoke(callbackContext);
+      if (response.isInProgress()) {
+        callbackContext = roundTrip(response.getCallbackContext());
+        request.setDesiredResourceState(response.getResourceModel());
+        advance(interval.apply(response));
+      }
+    } while (response.isInProgress() && ++invocations < MAX_INVOCATIONS);
+    return response;
+  }
+
+  protected ResourceHandlerRequest<ResourceModel> buildCreateRequest(final boolean withSystemTags) {
+    final Map<String, String> systemTags = new HashMap<>();
+    systemTags.put(STACK_ID_TAG, "arn:aws:cloudformation:us-east-1:123456789012:stack/stack/0123");
+    systemTags.put(LOGICAL_ID_TAG, "NatGateway");
+    return ResourceHandlerRequest.<ResourceModel>builder()
+            .clientRequestToken("4b90a7e4-b790-456b-a937-0cfdfa211dfe")
+            .desiredResourceState(ResourceModel.builder()
+                    .subnetId(SUBNET_ID)
+                    .allocationId(ALLOC_ID)
+                    .connectivityType(CONN_PUBLIC)
+                    .build())
+            .desiredResourceTags(Collections.singletonMap(TAG_1.key(), TAG_1.value()))
+            .systemTags(withSystemTags ? systemTags : null)
+            .build();
+  }
+
+  protected ResourceHandlerRequest<ResourceModel> buildRequest(final String natGatewayId) {
+    return ResourceHandlerRequest.<ResourceModel>builder()
+            .desiredResourceState(ResourceModel.builder().natGatewayId(natGatewayId).build())
+            .build();
+  }
+
+  protected ResourceHandlerRequest<ResourceModel> buildUpdateRequest(final String natGatewayId,
+                                                                     final Map<String, String> previousTags,
+                                                                     final Map<String, String> desiredTags) {
+    return ResourceHandlerRequest.<ResourceModel>builder()
+            .previousResourceState(ResourceModel.builder().natGatewayId(natGatewayId).build())
+            .desiredResourceState(ResourceModel.builder().natGatewayId(natGatewayId).build())
+            .previousResourceTags(previousTags)
+            .desiredResourceTags(desiredTags)
+            .build();
+  }
+
+  /**
+   * Serializes the callback context into the callback payload and back, as between two invocations.
+   */
+  static CallbackContext roundTrip(final CallbackContext callbackContext) {
+    try {
+      final Serializer serializer = new Serializer();
+      return serializer.deserialize(serializer.serialize(callbackContext), new TypeReference<CallbackContext>() {});
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
 }
@@ -0,0 +1,91 @@
+package software.amazon.ec2.natgateway;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class AdaptiveRateLimiterTest {
+    private static final double MAX_RATE = 10;
+
+    private final AtomicLong clock = new AtomicLong();
+    private AdaptiveRateLimiter rateLimiter;
+
+    @BeforeEach
+    public void setup() {
+        clock.set(0);
+        rateLimiter = new AdaptiveRateLimiter(MAX_RATE, clock::get);
+    }
+
+    @Test
+    public void reserveServesBurstThenWaitsInTurn() {
+        for (int i = 0; i < MAX_RATE; i++) {
+            assertThat(rateLimiter.reserve()).isEqualTo(0);
+        }
+        // Each further caller waits one more interval at 10 calls per second
+        assertThat(rateLimiter.reserve()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(rateLimiter.reserve()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(200));
+
+        // The debt is paid back as time passes
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(300));
+        assertThat(rateLimiter.reserve()).isEqualTo(0);
+        assertThat(rateLimiter.reserve()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void onThrottleCutsRateAndDropsBurst() {
+        rateLimiter.onThrottle();
+
+        assertThat(rateLimiter.getRate()).isEqualTo(MAX_RATE * AdaptiveRateLimiter.DECREASE_FACTOR);
+        // The next caller waits for a whole token at the lowered rate
+        assertThat(rateLimiter.reserve())
+                .isCloseTo((long) (TimeUnit.SECONDS.toNanos(1) / (MAX_RATE * AdaptiveRateLimiter.DECREASE_FACTOR)), within(1000L));
+    }
+
+    @Test
+    public void onThrottleKeepsMinimumRate() {
+        for (int i = 0; i < 50; i++) {
+            rateLimiter.onThrottle();
+        }
+
+        assertThat(rateLimiter.getRate()).isEqualTo(AdaptiveRateLimiter.MIN_RATE);
+    }
+
+    @Test
+    public void onSuccessRecoversUpToMaximumRate() {
+        rateLimiter.onThrottle();
+        rateLimiter.onThrottle();
+        final double throttledRate = rateLimiter.getRate();
+
+        rateLimiter.onSuccess();
+        assertThat(rateLimiter.getRate()).isEqualTo(throttledRate + 1 / throttledRate);
+
+        for (int i = 0; i < 1000; i++) {
+            rateLimiter.onSuccess();
+        }
+        assertThat(rateLimiter.getRate()).isEqualTo(MAX_RATE);
+    }
+
+    @Test
+    public void limitersAreKeptPerAccountAndRegion() {
+        final AdaptiveRateLimiter limiter = BaseHandlerStd.rateLimiter(request("111111111111", "us-east-1"));
+        final AdaptiveRateLimiter otherRegion = BaseHandlerStd.rateLimiter(request("111111111111", "eu-west-1"));
+        final AdaptiveRateLimiter otherAccount = BaseHandlerStd.rateLimiter(request("222222222222", "us-east-1"));
+
+        assertThat(BaseHandlerStd.rateLimiter(request("111111111111", "us-east-1"))).isSameAs(limiter);
+        limiter.onThrottle();
+        // Throttling in one account and region does not slow the others down
+        assertThat(otherRegion.getRate()).isEqualTo(AdaptiveRateLimiter.DEFAULT_MAX_RATE);
+        assertThat(otherAccount.getRate()).isEqualTo(AdaptiveRateLimiter.DEFAULT_MAX_RATE);
+        assertThat(limiter.getRate()).isLessThan(AdaptiveRateLimiter.DEFAULT_MAX_RATE);
+    }
+
+    private static ResourceHandlerRequest<ResourceModel> request(final String accountId, final String region) {
+        return ResourceHandlerRequest.<ResourceModel>builder().awsAccountId(accountId).region(region).build();
+    }
+}
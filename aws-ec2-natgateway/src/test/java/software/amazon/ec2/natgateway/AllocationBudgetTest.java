@@ -0,0 +1,156 @@
+package software.amazon.ec2.natgateway;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Ceilings on the bytes a handler invocation allocates, by phase, for representative flows run end to end against the
+ * Ec2Simulator. The handler container is sized from these, so a change that makes a flow allocate noticeably more fails
+ * the build. The ceilings leave headroom over the measured values, as the counts vary a little between JVMs, and the
+ * service call phase includes the simulator and the SDK model objects it builds.
+ */
+public class AllocationBudgetTest extends AbstractTestBase {
+    // Runs made before the measured one, so that class loading and one-time initialization are not counted
+    private static final int WARMUP_RUNS = 5;
+    private static final long KB = 1024;
+
+    // Ceilings on the largest invocation of each flow, which the container has to fit. Measured around 10 KB for an
+    // invocation that polls, 30 KB for the first invocation of a create or delete, 160 KB for a page of 100.
+    private static final long CREATE_INVOCATION_CEILING = 96 * KB;
+    private static final long DELETE_INVOCATION_CEILING = 96 * KB;
+    private static final long READ_INVOCATION_CEILING = 32 * KB;
+    private static final long UPDATE_INVOCATION_CEILING = 48 * KB;
+    private static final long LIST_PAGE_INVOCATION_CEILING = 512 * KB;
+
+    // Ceilings on the Translator phases over a whole flow, which do not depend on the SDK or the simulator
+    private static final long CREATE_TRANSLATION_CEILING = 8 * KB;
+    private static final long DELETE_TRANSLATION_CEILING = 2 * KB;
+    private static final long READ_TRANSLATION_CEILING = 2 * KB;
+    private static final long UPDATE_TRANSLATION_CEILING = 6 * KB;
+    private static final long LIST_PAGE_TRANSLATION_CEILING = 32 * KB;
+
+    private AmazonWebServicesClientProxy proxy;
+    private Ec2Simulator simulator;
+    private ProxyClient<Ec2Client> proxyClient;
+
+    @BeforeEach
+    public void setup() {
+        assumeTrue(AllocationProfile.isSupported());
+        proxy = new AmazonWebServicesClientProxy(logger, MOCK_CREDENTIALS, () -> Duration.ofSeconds(600).toMillis());
+    }
+
+    @Test
+    public void create() {
+        assertWithinCeilings(profileFlow(CreateHandler::new, () -> buildCreateRequest(true)),
+                CREATE_INVOCATION_CEILING, CREATE_TRANSLATION_CEILING);
+    }
+
+    @Test
+    public void read() {
+        assertWithinCeilings(profileFlow(ReadHandler::new, () -> buildRequest(givenSettledNatGateway(Collections.emptyMap()))),
+                READ_INVOCATION_CEILING, READ_TRANSLATION_CEILING);
+    }
+
+    @Test
+    public void listPage() {
+        final List<AllocationProfile> profiles = profileFlow(ListHandler::new, () -> {
+            for (int i = 0; i < ListHandler.DEFAULT_PAGE_SIZE; i++) {
+                givenNatGateway(simulator, Collections.singletonMap(TAG_1.key(), TAG_1.value()));
+            }
+            settle();
+            return ResourceHandlerRequest.<ResourceModel>builder().desiredResourceState(ResourceModel.builder().build()).build();
+        });
+
+        assertWithinCeilings(profiles, LIST_PAGE_INVOCATION_CEILING, LIST_PAGE_TRANSLATION_CEILING);
+    }
+
+    @Test
+    public void tagUpdate() {
+        final List<AllocationProfile> profiles = profileFlow(UpdateHandler::new, () -> {
+            final Map<String, String> previousTags = new HashMap<>();
+            previousTags.put("Key_1", "Value_1");
+            previousTags.put("Key_2", "Value_2");
+            return buildUpdateRequest(givenSettledNatGateway(previousTags), previousTags,
+                    Collections.singletonMap("Key_1", "Value_3"));
+        });
+
+        assertWithinCeilings(profiles, UPDATE_INVOCATION_CEILING, UPDATE_TRANSLATION_CEILING);
+    }
+
+    @Test
+    public void delete() {
+        assertWithinCeilings(profileFlow(DeleteHandler::new, () -> buildRequest(givenSettledNatGateway(Collections.emptyMap()))),
+                DELETE_INVOCATION_CEILING, DELETE_TRANSLATION_CEILING);
+    }
+
+    private static void assertWithinCeilings(final List<AllocationProfile> profiles, final long invocationCeiling,
+                                             final long translationCeiling) {
+        long translation = 0;
+        for (final AllocationProfile profile : profiles) {
+            assertThat(profile.getTotalBytes()).as("%s", profile).isLessThanOrEqualTo(invocationCeiling);
+            // Every invocation makes an EC2 call, so an empty service call phase means the calls escaped the profile
+            assertThat(profile.getBytes(AllocationProfile.Phase.SERVICE_CALL)).isPositive();
+            translation += profile.getBytes(AllocationProfile.Phase.TRANSLATE)
+                    + profile.getBytes(AllocationProfile.Phase.RESULT_TRANSLATION);
+        }
+        assertThat(translation).as("%s", profiles).isLessThanOrEqualTo(translationCeiling);
+    }
+
+    /**
+     * Runs the flow WARMUP_RUNS times, then once more while profiling every invocation of it.
+     * @return the profile of each invocation of the measured run
+     */
+    private List<AllocationProfile> profileFlow(final Supplier<BaseHandlerStd> handlers,
+                                                final Supplier<ResourceHandlerRequest<ResourceModel>> requests) {
+        List<AllocationProfile> profiles = null;
+        for (int run = 0; run <= WARMUP_RUNS; run++) {
+            simulator = simulator(Ec2Simulator.Config.builder());
+            proxyClient = MOCK_PROXY(proxy, simulator);
+            profiles = invokeUntilDone(handlers.get(), requests.get());
+        }
+        return profiles;
+    }
+
+    /**
+     * Invokes the handler until it is done, as CloudFormation would, profiling each invocation on its own so that the
+     * callback context round trip in between is not counted.
+     */
+    private List<AllocationProfile> invokeUntilDone(final BaseHandlerStd handler,
+                                                    final ResourceHandlerRequest<ResourceModel> request) {
+        handler.setStabilizationBudget(Duration.ZERO);
+        final List<AllocationProfile> profiles = new ArrayList<>();
+        final ProgressEvent<ResourceModel, CallbackContext> response = invokeUntilDone(request, callbackContext -> {
+            final AllocationProfile profile = AllocationProfile.start();
+            try {
+                return handler.handleRequestWithRetries(proxy, request, callbackContext, proxyClient, logger);
+            } finally {
+                profiles.add(profile.finish());
+            }
+        });
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        return profiles;
+    }
+
+    private String givenSettledNatGateway(final Map<String, String> tags) {
+        final String natGatewayId = givenNatGateway(simulator, tags);
+        settle();
+        return natGatewayId;
+    }
+}
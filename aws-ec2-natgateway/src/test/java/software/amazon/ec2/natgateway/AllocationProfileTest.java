@@ -0,0 +1,94 @@
+package software.amazon.ec2.natgateway;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class AllocationProfileTest {
+    private static final int ONE_MB = 1 << 20;
+
+    // Keeps the allocations made by the tests reachable, so that they can not be optimized away
+    private Object sink;
+
+    @BeforeEach
+    public void setup() {
+        assumeTrue(AllocationProfile.isSupported());
+    }
+
+    @Test
+    public void allocationIsAttributedToTheMeasuredPhase() {
+        final AllocationProfile profile = AllocationProfile.start();
+        AllocationProfile.measure(AllocationProfile.Phase.TRANSLATE, () -> sink = new byte[ONE_MB]);
+        profile.finish();
+
+        assertThat(profile.getBytes(AllocationProfile.Phase.TRANSLATE)).isGreaterThanOrEqualTo(ONE_MB);
+        assertThat(profile.getBytes(AllocationProfile.Phase.SERVICE_CALL)).isZero();
+        assertThat(profile.getBytes(AllocationProfile.Phase.OTHER)).isLessThan(ONE_MB);
+    }
+
+    @Test
+    public void innerPhaseIsOnlyCountedOnce() {
+        final AllocationProfile profile = AllocationProfile.start();
+        AllocationProfile.measure(AllocationProfile.Phase.STABILIZE, () -> {
+            sink = new byte[ONE_MB];
+            return AllocationProfile.measure(AllocationProfile.Phase.SERVICE_CALL, () -> sink = new byte[2 * ONE_MB]);
+        });
+        profile.finish();
+
+        assertThat(profile.getBytes(AllocationProfile.Phase.STABILIZE)).isBetween((long) ONE_MB, 2L * ONE_MB);
+        assertThat(profile.getBytes(AllocationProfile.Phase.SERVICE_CALL)).isGreaterThanOrEqualTo(2L * ONE_MB);
+        assertThat(profile.getTotalBytes()).isLessThan(4L * ONE_MB);
+    }
+
+    @Test
+    public void unmeasuredAllocationIsCountedAsOther() {
+        final AllocationProfile profile = AllocationProfile.start();
+        sink = new byte[ONE_MB];
+        profile.finish();
+
+        assertThat(profile.getBytes(AllocationProfile.Phase.OTHER)).isGreaterThanOrEqualTo(ONE_MB);
+        assertThat(profile.getTotalBytes()).isEqualTo(profile.getBytes(AllocationProfile.Phase.OTHER));
+    }
+
+    @Test
+    public void finishedProfileStopsCounting() {
+        final AllocationProfile profile = AllocationProfile.start();
+        profile.finish();
+        final long total = profile.getTotalBytes();
+
+        AllocationProfile.measure(AllocationProfile.Phase.TRANSLATE, () -> sink = new byte[ONE_MB]);
+
+        assertThat(profile.finish().getTotalBytes()).isEqualTo(total);
+    }
+
+    @Test
+    public void nestedProfileAddsItsPhasesToTheEnclosingOne() {
+        final AllocationProfile outer = AllocationProfile.start();
+        final AllocationProfile inner = AllocationProfile.start();
+        AllocationProfile.measure(AllocationProfile.Phase.RESULT_TRANSLATION, () -> sink = new byte[ONE_MB]);
+        inner.finish();
+        AllocationProfile.measure(AllocationProfile.Phase.TRANSLATE, () -> sink = new byte[ONE_MB]);
+        outer.finish();
+
+        assertThat(inner.getBytes(AllocationProfile.Phase.RESULT_TRANSLATION)).isGreaterThanOrEqualTo(ONE_MB);
+        assertThat(inner.getBytes(AllocationProfile.Phase.TRANSLATE)).isZero();
+        assertThat(outer.getBytes(AllocationProfile.Phase.RESULT_TRANSLATION))
+                .isEqualTo(inner.getBytes(AllocationProfile.Phase.RESULT_TRANSLATION));
+        assertThat(outer.getBytes(AllocationProfile.Phase.TRANSLATE)).isGreaterThanOrEqualTo(ONE_MB);
+    }
+
+    @Test
+    public void measureWithoutProfileRunsTheCode() {
+        assertThat(AllocationProfile.measure(AllocationProfile.Phase.TRANSLATE, () -> "translated")).isEqualTo("translated");
+    }
+
+    @Test
+    public void toStringListsEveryPhase() {
+        final AllocationProfile profile = AllocationProfile.start().finish();
+
+        assertThat(profile.toString()).startsWith("AllocatedBytes total=")
+                .contains("translate=", "service_call=", "stabilize=", "result_translation=", "other=");
+    }
+}
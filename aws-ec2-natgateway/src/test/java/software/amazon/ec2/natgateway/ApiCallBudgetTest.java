@@ -0,0 +1,249 @@
+package software.amazon.ec2.natgateway;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import software.amazon.awssdk.services.ec2.model.DeleteNatGatewayRequest;
+import software.amazon.cloudformation.exceptions.ResourceNotFoundException;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Hard budgets on the EC2 calls each handler path makes, end to end across re-invocations, against the Ec2Simulator.
+ * Stack latency grows with every round trip, so a change that makes a path go over its budget fails the build. A change
+ * that needs more calls has to raise the budget here, on purpose.
+ */
+public class ApiCallBudgetTest extends AbstractTestBase {
+    // The paths that wait on the NAT Gateway also make one DescribeNatGateways call per poll on top of these
+    // CreateNatGateway. The chained Read uses the last poll.
+    private static final int CREATE_FIXED_CALLS = 1;
+    // Pre-deletion check and DeleteNatGateway
+    private static final int DELETE_FIXED_CALLS = 2;
+    // Pre-deletion check, which saw deleting, so the first poll is skipped
+    private static final int DELETE_DELETING_FIXED_CALLS = 1;
+    private static final int DELETE_FAILED_BUDGET = 2;
+    private static final int DELETE_DELETED_BUDGET = 1;
+    // Pre-update check, then at most one CreateTags and one DeleteTags call. The chained Read uses the pre-update check.
+    private static final int TAG_UPDATE_BUDGET = 3;
+    private static final int NO_OP_UPDATE_BUDGET = 1;
+    private static final int READ_BUDGET = 1;
+    private static final int LIST_PAGE_BUDGET = 1;
+
+    private AmazonWebServicesClientProxy proxy;
+    private Ec2Simulator simulator;
+    private CountingProxyClient proxyClient;
+    private int simulatorCallsBefore;
+
+    @BeforeEach
+    public void setup() {
+        proxy = new AmazonWebServicesClientProxy(logger, MOCK_CREDENTIALS, () -> Duration.ofSeconds(600).toMillis());
+    }
+
+    @Test
+    public void createWithinBudget() {
+        simulate(Ec2Simulator.Config.builder().pendingTime(Ec2Simulator.Delay.fixed(Duration.ZERO)));
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = invokeUntilDone(new CreateHandler(), buildCreateRequest(true));
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertWithinBudget(CREATE_FIXED_CALLS + 1);
+        assertThat(proxyClient.getCalls(Ec2Simulator.CREATE_NAT_GATEWAY)).isEqualTo(1);
+    }
+
+    @Test
+    public void createWithoutSystemTagsWithinBudget() {
+        simulate(Ec2Simulator.Config.builder().pendingTime(Ec2Simulator.Delay.fixed(Duration.ZERO)));
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = invokeUntilDone(new CreateHandler(), buildCreateRequest(false));
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertWithinBudget(CREATE_FIXED_CALLS + 1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 5, 20})
+    public void createWithPollsWithinBudget(final int polls) {
+        // Pending until the given poll
+        simulate(Ec2Simulator.Config.builder()
+                .pendingTime(Ec2Simulator.Delay.fixed(INVOCATION_INTERVAL.multipliedBy(polls - 1))));
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = invokeUntilDone(new CreateHandler(), buildCreateRequest(true));
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertWithinBudget(CREATE_FIXED_CALLS + polls);
+        assertThat(proxyClient.getCalls(Ec2Simulator.CREATE_NAT_GATEWAY)).isEqualTo(1);
+    }
+
+    @Test
+    public void deleteAvailableWithinBudget() {
+        simulate(Ec2Simulator.Config.builder().deletingTime(Ec2Simulator.Delay.fixed(Duration.ZERO)));
+        final String natGatewayId = givenNatGateway(simulator);
+        settle();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = invokeUntilDone(new DeleteHandler(), buildRequest(natGatewayId));
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertWithinBudget(DELETE_FIXED_CALLS + 1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 5, 20})
+    public void deleteWithPollsWithinBudget(final int polls) {
+        // Deleting until the given poll
+        simulate(Ec2Simulator.Config.builder()
+                .deletingTime(Ec2Simulator.Delay.fixed(INVOCATION_INTERVAL.multipliedBy(polls - 1))));
+        final String natGatewayId = givenNatGateway(simulator);
+        settle();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = invokeUntilDone(new DeleteHandler(), buildRequest(natGatewayId));
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertWithinBudget(DELETE_FIXED_CALLS + polls);
+        assertThat(proxyClient.getCalls(Ec2Simulator.DELETE_NAT_GATEWAY)).isEqualTo(1);
+    }
+
+    @Test
+    public void deletePendingWithinBudget() {
+        // Only deleted once it settled, at the second poll
+        simulate(Ec2Simulator.Config.builder()
+                .pendingTime(Ec2Simulator.Delay.fixed(INVOCATION_INTERVAL))
+                .deletingTime(Ec2Simulator.Delay.fixed(Duration.ZERO)));
+        final String natGatewayId = givenNatGateway(simulator);
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = invokeUntilDone(new DeleteHandler(), buildRequest(natGatewayId));
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertWithinBudget(DELETE_FIXED_CALLS + 2);
+    }
+
+    @Test
+    public void deleteDeletingWithinBudget() {
+        simulate(Ec2Simulator.Config.builder().deletingTime(Ec2Simulator.Delay.fixed(INVOCATION_INTERVAL)));
+        final String natGatewayId = givenNatGateway(simulator);
+        settle();
+        simulator.deleteNatGateway(DeleteNatGatewayRequest.builder().natGatewayId(natGatewayId).build());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = invokeUntilDone(new DeleteHandler(), buildRequest(natGatewayId));
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertWithinBudget(DELETE_DELETING_FIXED_CALLS + 1);
+        assertThat(proxyClient.getCalls(Ec2Simulator.DELETE_NAT_GATEWAY)).isZero();
+    }
+
+    @Test
+    public void deleteFailedWithinBudget() {
+        simulate(Ec2Simulator.Config.builder().failureRate(1));
+        final String natGatewayId = givenNatGateway(simulator);
+        settle();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = invokeUntilDone(new DeleteHandler(), buildRequest(natGatewayId));
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertWithinBudget(DELETE_FAILED_BUDGET);
+    }
+
+    @Test
+    public void deleteDeletedWithinBudget() {
+        simulate(Ec2Simulator.Config.builder().deletingTime(Ec2Simulator.Delay.fixed(Duration.ZERO)));
+        final String natGatewayId = givenNatGateway(simulator);
+        settle();
+        simulator.deleteNatGateway(DeleteNatGatewayRequest.builder().natGatewayId(natGatewayId).build());
+
+        assertThrows(ResourceNotFoundException.class, () -> invokeUntilDone(new DeleteHandler(), buildRequest(natGatewayId)));
+
+        assertWithinBudget(DELETE_DELETED_BUDGET);
+    }
+
+    @Test
+    public void tagOnlyUpdateWithinBudget() {
+        simulate(Ec2Simulator.Config.builder());
+        final Map<String, String> previousTags = new HashMap<>();
+        previousTags.put("Key_1", "Value_1");
+        previousTags.put("Key_2", "Value_2");
+        final String natGatewayId = givenNatGateway(simulator, previousTags);
+        settle();
+
+        final ResourceHandlerRequest<ResourceModel> request = buildUpdateRequest(natGatewayId, previousTags,
+                Collections.singletonMap("Key_1", "Value_3"));
+        final ProgressEvent<ResourceModel, CallbackContext> response = invokeUntilDone(new UpdateHandler(), request);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertWithinBudget(TAG_UPDATE_BUDGET);
+        assertThat(simulator.peek(natGatewayId).tags()).hasSize(1);
+    }
+
+    @Test
+    public void noOpUpdateWithinBudget() {
+        simulate(Ec2Simulator.Config.builder());
+        final Map<String, String> tags = Collections.singletonMap("Key_1", "Value_1");
+        final String natGatewayId = givenNatGateway(simulator, tags);
+        settle();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                invokeUntilDone(new UpdateHandler(), buildUpdateRequest(natGatewayId, tags, tags));
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertWithinBudget(NO_OP_UPDATE_BUDGET);
+    }
+
+    @Test
+    public void readWithinBudget() {
+        simulate(Ec2Simulator.Config.builder());
+        final String natGatewayId = givenNatGateway(simulator);
+        settle();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = invokeUntilDone(new ReadHandler(), buildRequest(natGatewayId));
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertWithinBudget(READ_BUDGET);
+    }
+
+    @Test
+    public void listPageWithinBudget() {
+        simulate(Ec2Simulator.Config.builder());
+        for (int i = 0; i < 2 * ListHandler.DEFAULT_PAGE_SIZE; i++) {
+            givenNatGateway(simulator);
+        }
+        settle();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = invokeUntilDone(new ListHandler(),
+                ResourceHandlerRequest.<ResourceModel>builder().desiredResourceState(ResourceModel.builder().build()).build());
+
+        assertThat(response.getResourceModels()).hasSize(ListHandler.DEFAULT_PAGE_SIZE);
+        assertThat(response.getNextToken()).isNotNull();
+        assertWithinBudget(LIST_PAGE_BUDGET);
+    }
+
+    private void simulate(final Ec2Simulator.Config.ConfigBuilder config) {
+        simulator = simulator(config);
+        proxyClient = new CountingProxyClient(MOCK_PROXY(proxy, simulator));
+    }
+
+    /**
+     * Invokes the handler until it is done, polling a NAT Gateway in transition once every INVOCATION_INTERVAL.
+     */
+    private ProgressEvent<ResourceModel, CallbackContext> invokeUntilDone(final BaseHandlerStd handler,
+                                                                          final ResourceHandlerRequest<ResourceModel> request) {
+        handler.setStabilizationBudget(Duration.ZERO);
+        simulatorCallsBefore = simulator.getTotalCalls();
+        return invokeUntilDone(request,
+                callbackContext -> handler.handleRequest(proxy, request, callbackContext, proxyClient, logger));
+    }
+
+    private void assertWithinBudget(final int budget) {
+        assertThat(proxyClient.getTotalCalls()).as("EC2 calls %s", proxyClient.getCalls()).isLessThanOrEqualTo(budget);
+        // Every call goes through the proxy client, so none escapes the count
+        assertThat(simulator.getTotalCalls() - simulatorCallsBefore).isEqualTo(proxyClient.getTotalCalls());
+    }
+}
@@ -0,0 +1,142 @@
+package software.amazon.ec2.natgateway;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.CreateTagsRequest;
+import software.amazon.awssdk.services.ec2.model.CreateTagsResponse;
+import software.amazon.awssdk.services.ec2.model.DeleteTagsRequest;
+import software.amazon.awssdk.services.ec2.model.DeleteTagsResponse;
+import software.amazon.awssdk.services.ec2.model.Ec2Exception;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BulkTaggerTest extends AbstractTestBase {
+    private static final String MISSING_NAT_ID = String.format("nat-%017d", 5);
+
+    @Mock
+    private AmazonWebServicesClientProxy proxy;
+
+    @Mock
+    private ProxyClient<Ec2Client> proxyClient;
+
+    @Mock
+    Ec2Client Ec2Client;
+
+    @BeforeEach
+    public void setup() {
+        proxy = new AmazonWebServicesClientProxy(logger, MOCK_CREDENTIALS, () -> Duration.ofSeconds(600).toMillis());
+        Ec2Client = mock(Ec2Client.class);
+        proxyClient = MOCK_PROXY(proxy, Ec2Client);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        verifyNoMoreInteractions(Ec2Client);
+    }
+
+    @Test
+    public void applyGroupsNatsByTagChange() {
+        when(Ec2Client.createTags(ArgumentMatchers.any(CreateTagsRequest.class))).thenReturn(CreateTagsResponse.builder().build());
+        when(Ec2Client.deleteTags(ArgumentMatchers.any(DeleteTagsRequest.class))).thenReturn(DeleteTagsResponse.builder().build());
+
+        // A stack-level tag changes on 1200 NAT Gateways, 100 of which also drop a tag
+        final Map<String, String> liveTags = Collections.singletonMap("CostCenter", "1234");
+        final Map<String, String> desiredTags = Collections.singletonMap("CostCenter", "5678");
+        final Map<String, String> liveTagsWithOwner = new LinkedHashMap<>(liveTags);
+        liveTagsWithOwner.put("Owner", "network-team");
+        final Map<String, TagDiff> tagDiffs = new LinkedHashMap<>();
+        for (int i = 0; i < 1200; i++) {
+            tagDiffs.put(String.format("nat-%017d", i), i < 100
+                    ? TagDiff.between(liveTagsWithOwner, desiredTags, liveTagsWithOwner.keySet())
+                    : TagDiff.between(liveTags, desiredTags, liveTags.keySet()));
+        }
+        // Already up to date, so it is in no call
+        tagDiffs.put(ALT_NAT_ID, TagDiff.between(desiredTags, desiredTags, desiredTags.keySet()));
+
+        final BulkTagger bulkTagger = new BulkTagger(proxyClient);
+        final Map<String, ProgressEvent<ResourceModel, CallbackContext>> results = bulkTagger.apply(tagDiffs);
+
+        assertThat(results).hasSize(1201);
+        assertThat(results.keySet()).containsExactlyElementsOf(tagDiffs.keySet());
+        assertThat(results.values()).allMatch(ProgressEvent::isSuccess);
+        assertThat(results.get(ALT_NAT_ID).getResourceModel().getNatGatewayId()).isEqualTo(ALT_NAT_ID);
+        // 1200 NAT Gateways take two CreateTags calls, the 100 dropping a tag share one DeleteTags call
+        final ArgumentCaptor<CreateTagsRequest> createTagsRequest = ArgumentCaptor.forClass(CreateTagsRequest.class);
+        verify(Ec2Client, times(2)).createTags(createTagsRequest.capture());
+        assertThat(createTagsRequest.getAllValues()).allSatisfy(request ->
+                assertThat(request.resources()).hasSizeLessThanOrEqualTo(BulkTagger.MAX_RESOURCES_PER_CALL));
+        final ArgumentCaptor<DeleteTagsRequest> deleteTagsRequest = ArgumentCaptor.forClass(DeleteTagsRequest.class);
+        verify(Ec2Client, times(1)).deleteTags(deleteTagsRequest.capture());
+        assertThat(deleteTagsRequest.getValue().resources()).hasSize(100);
+        assertThat(bulkTagger.getCalls()).isEqualTo(3);
+    }
+
+    @Test
+    public void applyIsolatesMissingNat() {
+        // A tagging call naming the missing NAT Gateway fails as a whole
+        when(Ec2Client.createTags(ArgumentMatchers.any(CreateTagsRequest.class))).thenAnswer(invocation -> {
+            final CreateTagsRequest createTagsRequest = invocation.getArgument(0);
+            if (createTagsRequest.resources().contains(MISSING_NAT_ID)) {
+                throw Ec2Exception.builder().awsErrorDetails(AwsErrorDetails.builder().errorCode("InvalidNatGatewayID.NotFound").build()).build();
+            }
+            return CreateTagsResponse.builder().build();
+        });
+
+        final Map<String, TagDiff> tagDiffs = buildTagDiffs(8);
+        final BulkTagger bulkTagger = new BulkTagger(proxyClient);
+        final Map<String, ProgressEvent<ResourceModel, CallbackContext>> results = bulkTagger.apply(tagDiffs);
+
+        assertThat(results.get(MISSING_NAT_ID).getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(results.get(MISSING_NAT_ID).getErrorCode()).isEqualTo(HandlerErrorCode.NotFound);
+        assertThat(results.values().stream().filter(ProgressEvent::isSuccess).count()).isEqualTo(7);
+        // 8, then 4 + 4, then 2 + 2 of the failed half, then 1 + 1
+        verify(Ec2Client, times(7)).createTags(ArgumentMatchers.any(CreateTagsRequest.class));
+        assertThat(bulkTagger.getCalls()).isEqualTo(7);
+    }
+
+    @Test
+    public void applyReportsFailedCallForEveryNat() {
+        when(Ec2Client.createTags(ArgumentMatchers.any(CreateTagsRequest.class))).thenThrow(
+                Ec2Exception.builder().awsErrorDetails(AwsErrorDetails.builder().errorCode("UnauthorizedOperation").build()).build());
+
+        final Map<String, ProgressEvent<ResourceModel, CallbackContext>> results =
+                new BulkTagger(proxyClient).apply(buildTagDiffs(8));
+
+        assertThat(results.values()).allMatch(result -> result.getErrorCode() == HandlerErrorCode.AccessDenied);
+        // Only a missing NAT Gateway is worth isolating, any other failure is shared by the whole call
+        verify(Ec2Client, times(1)).createTags(ArgumentMatchers.any(CreateTagsRequest.class));
+    }
+
+    private Map<String, TagDiff> buildTagDiffs(final int count) {
+        final Map<String, TagDiff> tagDiffs = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            tagDiffs.put(String.format("nat-%017d", i),
+                    TagDiff.between(Collections.emptyMap(), Collections.singletonMap("CostCenter", "5678"), Collections.emptySet()));
+        }
+        return tagDiffs;
+    }
+}
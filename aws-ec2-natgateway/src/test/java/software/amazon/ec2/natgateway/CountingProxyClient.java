@@ -0,0 +1,102 @@
+package software.amazon.ec2.natgateway;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import software.amazon.awssdk.awscore.AwsRequest;
+import software.amazon.awssdk.awscore.AwsResponse;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.pagination.sync.SdkIterable;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.cloudformation.proxy.ProxyClient;
+
+/**
+ * ProxyClient that counts the calls made through it by EC2 action, e.g. DescribeNatGateways for a
+ * DescribeNatGatewaysRequest, whether they succeed or not. A call made on the client directly, without going through
+ * the proxy, is not counted.
+ */
+public class CountingProxyClient implements ProxyClient<Ec2Client> {
+  private final ProxyClient<Ec2Client> delegate;
+  private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+  public CountingProxyClient(final ProxyClient<Ec2Client> delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public <RequestT extends AwsRequest, ResponseT extends AwsResponse> ResponseT injectCredentialsAndInvokeV2(
+          final RequestT request, final Function<RequestT, ResponseT> requestFunction) {
+    count(request);
+    return delegate.injectCredentialsAndInvokeV2(request, requestFunction);
+  }
+
+  @Override
+  public <RequestT extends AwsRequest, ResponseT extends AwsResponse> CompletableFuture<ResponseT> injectCredentialsAndInvokeV2Async(
+          final RequestT request, final Function<RequestT, CompletableFuture<ResponseT>> requestFunction) {
+    count(request);
+    return delegate.injectCredentialsAndInvokeV2Async(request, requestFunction);
+  }
+
+  @Override
+  public <RequestT extends AwsRequest, ResponseT extends AwsResponse, IterableT extends SdkIterable<ResponseT>> IterableT
+  injectCredentialsAndInvokeIterableV2(final RequestT request, final Function<RequestT, IterableT> requestFunction) {
+    count(request);
+    return delegate.injectCredentialsAndInvokeIterableV2(request, requestFunction);
+  }
+
+  @Override
+  public <RequestT extends AwsRequest, ResponseT extends AwsResponse> ResponseInputStream<ResponseT> injectCredentialsAndInvokeV2InputStream(
+          final RequestT request, final Function<RequestT, ResponseInputStream<ResponseT>> requestFunction) {
+    count(request);
+    return delegate.injectCredentialsAndInvokeV2InputStream(request, requestFunction);
+  }
+
+  @Override
+  public <RequestT extends AwsRequest, ResponseT extends AwsResponse> ResponseBytes<ResponseT> injectCredentialsAndInvokeV2Bytes(
+          final RequestT request, final Function<RequestT, ResponseBytes<ResponseT>> requestFunction) {
+    count(request);
+    return delegate.injectCredentialsAndInvokeV2Bytes(request, requestFunction);
+  }
+
+  @Override
+  public Ec2Client client() {
+    return delegate.client();
+  }
+
+  /**
+   * @return the number of calls made to the action
+   */
+  public int getCalls(final String action) {
+    final AtomicInteger count = calls.get(action);
+    return count == null ? 0 : count.get();
+  }
+
+  public int getTotalCalls() {
+    return calls.values().stream().mapToInt(AtomicInteger::get).sum();
+  }
+
+  /**
+   * @return the number of calls by action, sorted by action
+   */
+  public Map<String, Integer> getCalls() {
+    final Map<String, Integer> snapshot = new TreeMap<>();
+    calls.forEach((action, count) -> snapshot.put(action, count.get()));
+    return snapshot;
+  }
+
+  public void reset() {
+    calls.clear();
+  }
+
+  private void count(final AwsRequest request) {
+    final String requestName = request.getClass().getSimpleName();
+    final String action = requestName.endsWith("Request")
+            ? requestName.substring(0, requestName.length() - "Request".length()) : requestName;
+    calls.computeIfAbsent(action, key -> new AtomicInteger()).incrementAndGet();
+  }
+}
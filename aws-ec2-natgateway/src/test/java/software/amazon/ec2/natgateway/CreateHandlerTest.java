@@ -2,6 +2,7 @@ package software.amazon.ec2.natgateway;
 
 import java.time.Duration;
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.jupiter.api.Assertions;
 import org.mockito.ArgumentMatchers;
@@ -17,22 +18,28 @@ import software.amazon.awssdk.services.ec2.model.State;
 import software.amazon.cloudformation.exceptions.CfnGeneralServiceException;
 import software.amazon.cloudformation.exceptions.CfnInvalidRequestException;
 import software.amazon.cloudformation.exceptions.CfnNotFoundException;
+import software.amazon.cloudformation.exceptions.CfnServiceInternalErrorException;
 import software.amazon.cloudformation.exceptions.CfnServiceLimitExceededException;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
 import software.amazon.cloudformation.proxy.OperationStatus;
 import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import software.amazon.cloudformation.resource.Serializer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -84,6 +91,102 @@ public class CreateHandlerTest extends AbstractTestBase {
         assertThat(response.getMessage()).isNull();
         assertThat(response.getErrorCode()).isNull();
         assertThat(response.getResourceModel().getNatGatewayId().equals(NAT_ID));
+        // The chained Read reuses the NAT Gateway described by the final stabilization poll
+        verify(Ec2Client, times(1)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    @Test
+    public void handleRequestStabilizationInProgress() {
+        final NatGateway pendingNatGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.PENDING.toString());
+        final CreateNatGatewayResponse createResponse = CreateNatGatewayResponse.builder().natGateway(pendingNatGateway).build();
+
+        when(proxyClient.client().createNatGateway(ArgumentMatchers.any(CreateNatGatewayRequest.class))).thenReturn(createResponse);
+
+        final DescribeNatGatewaysResponse describeResponse = DescribeNatGatewaysResponse.builder().natGateways(Collections.singletonList(pendingNatGateway)).build();
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenReturn(describeResponse);
+
+        final CreateHandler handler = new CreateHandler();
+        handler.setStabilizationBudget(Duration.ZERO);
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(response.getCallbackDelaySeconds()).isBetween(BaseHandlerStd.MIN_CALLBACK_DELAY_SECONDS, BaseHandlerStd.MAX_CALLBACK_DELAY_SECONDS);
+        assertThat(response.getResourceModel().getNatGatewayId()).isEqualTo(NAT_ID);
+        assertThat(response.getCallbackContext().getStabilizationAttempts()).isEqualTo(1);
+        assertThat(response.getCallbackContext().getStabilizationStartTime()).isNotNull();
+        assertThat(response.getCallbackContext().getLastObservedState()).isEqualTo(State.PENDING.toString());
+    }
+
+    @Test
+    public void handleRequestStabilizationResumesFromCallbackContext() {
+        final NatGateway pendingNatGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.PENDING.toString());
+        final NatGateway availableNatGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString());
+        final CreateNatGatewayResponse createResponse = CreateNatGatewayResponse.builder().natGateway(pendingNatGateway).build();
+
+        when(proxyClient.client().createNatGateway(ArgumentMatchers.any(CreateNatGatewayRequest.class))).thenReturn(createResponse);
+
+        final DescribeNatGatewaysResponse pendingDescribeResponse = DescribeNatGatewaysResponse.builder().natGateways(Collections.singletonList(pendingNatGateway)).build();
+        final DescribeNatGatewaysResponse availableDescribeResponse = DescribeNatGatewaysResponse.builder().natGateways(Collections.singletonList(availableNatGateway)).build();
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class)))
+                .thenReturn(pendingDescribeResponse, availableDescribeResponse);
+
+        final CreateHandler handler = new CreateHandler();
+        handler.setStabilizationBudget(Duration.ZERO);
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+        final ProgressEvent<ResourceModel, CallbackContext> firstResponse = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+        final Long stabilizationStartTime = firstResponse.getCallbackContext().getStabilizationStartTime();
+
+        request.setDesiredResourceState(firstResponse.getResourceModel());
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, firstResponse.getCallbackContext(), proxyClient, logger);
+
+        assertThat(firstResponse.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getCallbackDelaySeconds()).isEqualTo(0);
+        assertThat(response.getResourceModel().getNatGatewayId()).isEqualTo(NAT_ID);
+        assertThat(firstResponse.getCallbackContext().getStabilizationAttempts()).isEqualTo(2);
+        assertThat(firstResponse.getCallbackContext().getStabilizationStartTime()).isEqualTo(stabilizationStartTime);
+        assertThat(firstResponse.getCallbackContext().getLastObservedState()).isEqualTo(State.AVAILABLE.toString());
+        verify(Ec2Client, times(1)).createNatGateway(ArgumentMatchers.any(CreateNatGatewayRequest.class));
+        verify(Ec2Client, times(2)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    @Test
+    public void handleRequestStabilizationResumesFromSerializedCallbackContext() throws Exception {
+        final NatGateway pendingNatGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.PENDING.toString());
+        final NatGateway availableNatGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString());
+        final CreateNatGatewayResponse createResponse = CreateNatGatewayResponse.builder().natGateway(pendingNatGateway).build();
+
+        when(proxyClient.client().createNatGateway(ArgumentMatchers.any(CreateNatGatewayRequest.class))).thenReturn(createResponse);
+
+        final DescribeNatGatewaysResponse pendingDescribeResponse = DescribeNatGatewaysResponse.builder().natGateways(Collections.singletonList(pendingNatGateway)).build();
+        final DescribeNatGatewaysResponse availableDescribeResponse = DescribeNatGatewaysResponse.builder().natGateways(Collections.singletonList(availableNatGateway)).build();
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class)))
+                .thenReturn(pendingDescribeResponse, pendingDescribeResponse, availableDescribeResponse);
+
+        final CreateHandler handler = new CreateHandler();
+        handler.setStabilizationBudget(Duration.ZERO);
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+        CallbackContext callbackContext = new CallbackContext();
+        ProgressEvent<ResourceModel, CallbackContext> response;
+        do {
+            response = handler.handleRequest(proxy, request, callbackContext, proxyClient, logger);
+            // The payload only holds the flat fields, not the memoized CreateNatGateway request and response
+            if (response.isInProgress()) {
+                assertThat(new Serializer().serialize(callbackContext)).doesNotContain("callGraphs").doesNotContain(SUBNET_ID);
+                callbackContext = roundTrip(callbackContext);
+                request.setDesiredResourceState(response.getResourceModel());
+            }
+        } while (response.isInProgress());
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel().getNatGatewayId()).isEqualTo(NAT_ID);
+        assertThat(callbackContext.getStabilizationAttempts()).isEqualTo(3);
+        assertThat(callbackContext.getCreatedTime()).isNotNull();
+        // The creation time checkpoint keeps the re-invocations from creating the NAT Gateway again
+        verify(Ec2Client, times(1)).createNatGateway(ArgumentMatchers.any(CreateNatGatewayRequest.class));
+        verify(Ec2Client, times(3)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
     }
 
     @Test
@@ -183,4 +286,156 @@ public class CreateHandlerTest extends AbstractTestBase {
             handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
         });
     }
+
+    @Test
+    public void handleRequestStabilizationSurvivesTransientFailures() {
+        final NatGateway pendingNatGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.PENDING.toString());
+        final NatGateway availableNatGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString());
+        final CreateNatGatewayResponse createResponse = CreateNatGatewayResponse.builder().natGateway(pendingNatGateway).build();
+
+        when(proxyClient.client().createNatGateway(ArgumentMatchers.any(CreateNatGatewayRequest.class))).thenReturn(createResponse);
+
+        final AwsServiceException internalError = AwsServiceException.builder().statusCode(500)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("InternalError").build()).build();
+        final AwsServiceException unavailable = AwsServiceException.builder().statusCode(503)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("Unavailable").build()).build();
+        final AwsServiceException unknownServerError = AwsServiceException.builder().statusCode(502)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("BadGateway").build()).build();
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class)))
+                .thenThrow(internalError, unavailable)
+                .thenReturn(DescribeNatGatewaysResponse.builder().natGateways(pendingNatGateway).build())
+                .thenThrow(unknownServerError)
+                .thenReturn(DescribeNatGatewaysResponse.builder().natGateways(availableNatGateway).build());
+
+        final CreateHandler handler = new CreateHandler();
+        handler.setStabilizationPollInterval(Duration.ZERO);
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+        final CallbackContext callbackContext = new CallbackContext();
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequestWithRetries(proxy, request, callbackContext, proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel().getNatGatewayId()).isEqualTo(NAT_ID);
+        assertThat(callbackContext.getStabilizationAttempts()).isEqualTo(5);
+        assertThat(callbackContext.getTransientRetries()).isEqualTo(0);
+        verify(Ec2Client, times(1)).createNatGateway(ArgumentMatchers.any(CreateNatGatewayRequest.class));
+        verify(Ec2Client, times(5)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    @Test
+    public void handleRequestTransientCreateFailureReturnsInProgress() {
+        final NatGateway natGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString());
+        final AwsServiceException serviceUnavailable = AwsServiceException.builder().statusCode(503)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("ServiceUnavailable").build()).build();
+
+        when(proxyClient.client().createNatGateway(ArgumentMatchers.any(CreateNatGatewayRequest.class)))
+                .thenThrow(serviceUnavailable)
+                .thenReturn(CreateNatGatewayResponse.builder().natGateway(natGateway).build());
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class)))
+                .thenReturn(DescribeNatGatewaysResponse.builder().natGateways(natGateway).build());
+
+        final CreateHandler handler = new CreateHandler();
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+        final ProgressEvent<ResourceModel, CallbackContext> firstResponse = handler.handleRequestWithRetries(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(firstResponse.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(firstResponse.getCallbackDelaySeconds()).isBetween(1, BaseHandlerStd.MAX_CALLBACK_DELAY_SECONDS);
+        assertThat(firstResponse.getCallbackContext().getTransientRetries()).isEqualTo(1);
+
+        request.setDesiredResourceState(firstResponse.getResourceModel());
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequestWithRetries(proxy, request, firstResponse.getCallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel().getNatGatewayId()).isEqualTo(NAT_ID);
+        assertThat(firstResponse.getCallbackContext().getTransientRetries()).isEqualTo(0);
+        verify(Ec2Client, times(2)).createNatGateway(ArgumentMatchers.any(CreateNatGatewayRequest.class));
+        verify(Ec2Client, times(1)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    @Test
+    public void handleRequestTransientFailuresExhaustRetryBudget() {
+        final NatGateway pendingNatGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.PENDING.toString());
+        final CreateNatGatewayResponse createResponse = CreateNatGatewayResponse.builder().natGateway(pendingNatGateway).build();
+        final AwsServiceException internalError = AwsServiceException.builder().statusCode(500)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("InternalError").build()).build();
+
+        when(proxyClient.client().createNatGateway(ArgumentMatchers.any(CreateNatGatewayRequest.class))).thenReturn(createResponse);
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenThrow(internalError);
+
+        final CreateHandler handler = new CreateHandler();
+        handler.setStabilizationPollInterval(Duration.ZERO);
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+
+        Assertions.assertThrows(CfnServiceInternalErrorException.class, () -> {
+            handler.handleRequestWithRetries(proxy, request, new CallbackContext(), proxyClient, logger);
+        });
+        verify(Ec2Client, times(1)).createNatGateway(ArgumentMatchers.any(CreateNatGatewayRequest.class));
+        verify(Ec2Client, times(BaseHandlerStd.MAX_TRANSIENT_RETRIES + 1)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"0, false", "50, false", "300, false", "50, true", "300, true"})
+    public void handleRequestToleratesVisibilityLag(final long visibilityLagMillis, final boolean notFoundError) {
+        final AtomicLong createdAt = stubVisibilityLag(visibilityLagMillis, notFoundError);
+
+        final CreateHandler handler = new CreateHandler();
+        handler.setStabilizationPollInterval(Duration.ofMillis(10));
+        handler.setVisibilityGracePeriod(Duration.ofSeconds(5));
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+        final CallbackContext callbackContext = new CallbackContext();
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, callbackContext, proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel().getNatGatewayId()).isEqualTo(NAT_ID);
+        assertThat(callbackContext.getCreatedTime()).isGreaterThanOrEqualTo(createdAt.get());
+        assertThat(callbackContext.getLastObservedState()).isEqualTo(State.AVAILABLE.toString());
+        verify(Ec2Client, times(1)).createNatGateway(ArgumentMatchers.any(CreateNatGatewayRequest.class));
+        verify(Ec2Client, atLeastOnce()).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void handleRequestFailsOnceVisibilityGracePeriodHasPassed(final boolean notFoundError) {
+        stubVisibilityLag(Long.MAX_VALUE, notFoundError);
+
+        final CreateHandler handler = new CreateHandler();
+        handler.setStabilizationPollInterval(Duration.ofMillis(10));
+        handler.setVisibilityGracePeriod(Duration.ofMillis(100));
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+
+        final CfnGeneralServiceException exception = Assertions.assertThrows(CfnGeneralServiceException.class, () -> {
+            handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+        });
+        assertThat(exception.getMessage()).contains(NAT_ID).contains("could still not be found");
+        verify(Ec2Client, times(1)).createNatGateway(ArgumentMatchers.any(CreateNatGatewayRequest.class));
+        verify(Ec2Client, atLeastOnce()).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    /**
+     * Simulates EC2 eventual consistency: DescribeNatGateways does not return the NAT Gateway until the given lag has
+     * passed since CreateNatGateway returned, then returns it available.
+     * @param visibilityLagMillis how long the NAT Gateway stays invisible after its creation
+     * @param notFoundError       whether an invisible NAT Gateway is answered with a NotFound error or an empty list
+     * @return the time CreateNatGateway returned at
+     */
+    private AtomicLong stubVisibilityLag(final long visibilityLagMillis, final boolean notFoundError) {
+        final NatGateway pendingNatGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.PENDING.toString());
+        final NatGateway availableNatGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString());
+        final AtomicLong createdAt = new AtomicLong();
+
+        when(proxyClient.client().createNatGateway(ArgumentMatchers.any(CreateNatGatewayRequest.class))).thenAnswer(invocation -> {
+            createdAt.set(System.currentTimeMillis());
+            return CreateNatGatewayResponse.builder().natGateway(pendingNatGateway).build();
+        });
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenAnswer(invocation -> {
+            if (System.currentTimeMillis() - createdAt.get() >= visibilityLagMillis) {
+                return DescribeNatGatewaysResponse.builder().natGateways(availableNatGateway).build();
+            }
+            if (notFoundError) {
+                throw AwsServiceException.builder().statusCode(400)
+                        .awsErrorDetails(AwsErrorDetails.builder().errorCode("InvalidNatGatewayID.NotFound").build()).build();
+            }
+            return DescribeNatGatewaysResponse.builder().build();
+        });
+        return createdAt;
+    }
 }
@@ -33,6 +33,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -93,6 +95,145 @@ public class DeleteHandlerTest extends AbstractTestBase {
         assertThat(response.getErrorCode()).isNull();
     }
 
+    @Test
+    public void handleRequestStabilizationInProgress() {
+        final NatGateway availableNatGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString());
+        final NatGateway deletingNatGateway = availableNatGateway.toBuilder().state(State.DELETING.toString()).build();
+
+        final DescribeNatGatewaysResponse availableDescribeResponse = DescribeNatGatewaysResponse.builder()
+                .natGateways(Collections.singletonList(availableNatGateway)).build();
+
+        final DescribeNatGatewaysResponse deletingDescribeResponse = DescribeNatGatewaysResponse.builder()
+                .natGateways(Collections.singletonList(deletingNatGateway)).build();
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class)))
+                .thenReturn(availableDescribeResponse, deletingDescribeResponse);
+
+        final DeleteNatGatewayResponse deleteResponse = DeleteNatGatewayResponse.builder().natGatewayId(availableNatGateway.natGatewayId()).build();
+        when(proxyClient.client().deleteNatGateway(ArgumentMatchers.any(DeleteNatGatewayRequest.class))).thenReturn(deleteResponse);
+
+        final DeleteHandler handler = new DeleteHandler();
+        handler.setStabilizationBudget(Duration.ZERO);
+
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(response.getCallbackDelaySeconds()).isBetween(BaseHandlerStd.MIN_CALLBACK_DELAY_SECONDS, BaseHandlerStd.MAX_CALLBACK_DELAY_SECONDS);
+        assertThat(response.getCallbackContext().getStabilizationAttempts()).isEqualTo(1);
+        assertThat(response.getCallbackContext().getLastObservedState()).isEqualTo(State.DELETING.toString());
+    }
+
+    @Test
+    public void handleRequestStabilizationResumesFromSerializedCallbackContext() {
+        final NatGateway availableNatGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString());
+        final NatGateway deletingNatGateway = availableNatGateway.toBuilder().state(State.DELETING.toString()).build();
+        final NatGateway deletedNatGateway = availableNatGateway.toBuilder().state(State.DELETED.toString()).build();
+
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class)))
+                .thenReturn(DescribeNatGatewaysResponse.builder().natGateways(availableNatGateway).build(),
+                        DescribeNatGatewaysResponse.builder().natGateways(deletingNatGateway).build(),
+                        DescribeNatGatewaysResponse.builder().natGateways(deletedNatGateway).build());
+
+        final DeleteNatGatewayResponse deleteResponse = DeleteNatGatewayResponse.builder().natGatewayId(NAT_ID).build();
+        when(proxyClient.client().deleteNatGateway(ArgumentMatchers.any(DeleteNatGatewayRequest.class))).thenReturn(deleteResponse);
+
+        final DeleteHandler handler = new DeleteHandler();
+        handler.setStabilizationBudget(Duration.ZERO);
+
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+        final ProgressEvent<ResourceModel, CallbackContext> firstResponse = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+        final CallbackContext callbackContext = roundTrip(firstResponse.getCallbackContext());
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, callbackContext, proxyClient, logger);
+
+        assertThat(firstResponse.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(callbackContext.getDeletionRequestedTime()).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        // Without the memoized pre-deletion check, the deletion checkpoint sends the re-invocation straight to the wait
+        verify(Ec2Client, times(1)).deleteNatGateway(ArgumentMatchers.any(DeleteNatGatewayRequest.class));
+        verify(Ec2Client, times(3)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    @Test
+    public void handleRequestAlreadyDeletingSkipsDeleteCall() {
+        final NatGateway deletingNatGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.DELETING.toString());
+        final NatGateway deletedNatGateway = deletingNatGateway.toBuilder().state(State.DELETED.toString()).build();
+
+        final DescribeNatGatewaysResponse deletingDescribeResponse = DescribeNatGatewaysResponse.builder()
+                .natGateways(Collections.singletonList(deletingNatGateway)).build();
+
+        final DescribeNatGatewaysResponse deletedDescribeResponse = DescribeNatGatewaysResponse.builder()
+                .natGateways(Collections.singletonList(deletedNatGateway)).build();
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class)))
+                .thenReturn(deletingDescribeResponse, deletedDescribeResponse);
+
+        final DeleteHandler handler = new DeleteHandler();
+        handler.setStabilizationPollInterval(Duration.ZERO);
+
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+
+        final CallbackContext callbackContext = new CallbackContext();
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, callbackContext, proxyClient, logger);
+
+        assertThat(response).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        // The pre-deletion check observed deleting, so only the describe that saw deleted counts as a poll
+        assertThat(callbackContext.getStabilizationAttempts()).isEqualTo(1);
+        verify(Ec2Client, never()).deleteNatGateway(ArgumentMatchers.any(DeleteNatGatewayRequest.class));
+        verify(Ec2Client, times(2)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    @Test
+    public void handleRequestFailedNatDeletesWithoutWaiting() {
+        final NatGateway failedNatGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.FAILED.toString());
+
+        final DescribeNatGatewaysResponse failedDescribeResponse = DescribeNatGatewaysResponse.builder()
+                .natGateways(Collections.singletonList(failedNatGateway)).build();
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class)))
+                .thenReturn(failedDescribeResponse);
+
+        final DeleteNatGatewayResponse deleteResponse = DeleteNatGatewayResponse.builder().natGatewayId(NAT_ID).build();
+        when(proxyClient.client().deleteNatGateway(ArgumentMatchers.any(DeleteNatGatewayRequest.class))).thenReturn(deleteResponse);
+
+        final DeleteHandler handler = new DeleteHandler();
+
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        verify(Ec2Client, times(1)).deleteNatGateway(ArgumentMatchers.any(DeleteNatGatewayRequest.class));
+        verify(Ec2Client, times(1)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    @Test
+    public void handleRequestNatNotFoundDuringStabilization() {
+        final NatGateway availableNatGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString());
+        final DescribeNatGatewaysResponse availableDescribeResponse = DescribeNatGatewaysResponse.builder()
+                .natGateways(Collections.singletonList(availableNatGateway)).build();
+
+        AwsErrorDetails awsErrorDetails = AwsErrorDetails.builder().errorCode("InvalidNatGatewayID.NotFound").build();
+        final AwsServiceException awsServiceException = AwsServiceException.builder().awsErrorDetails(awsErrorDetails).build();
+
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class)))
+                .thenReturn(availableDescribeResponse)
+                .thenThrow(awsServiceException);
+
+        final DeleteNatGatewayResponse deleteResponse = DeleteNatGatewayResponse.builder().natGatewayId(NAT_ID).build();
+        when(proxyClient.client().deleteNatGateway(ArgumentMatchers.any(DeleteNatGatewayRequest.class))).thenReturn(deleteResponse);
+
+        final DeleteHandler handler = new DeleteHandler();
+
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+    }
+
     @Test
     public void handleRequestDeletingAlreadyDeletedNat() {
         final NatGateway natGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.DELETED.toString());
@@ -139,4 +280,55 @@ public class DeleteHandlerTest extends AbstractTestBase {
             handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
         });
     }
+
+    @Test
+    public void handleRequestStabilizationSurvivesTransientFailures() {
+        final NatGateway availableNatGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString());
+        final NatGateway deletingNatGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.DELETING.toString());
+        final NatGateway deletedNatGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.DELETED.toString());
+        final AwsServiceException throttled = AwsServiceException.builder().statusCode(503)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("RequestLimitExceeded").build()).build();
+        final AwsServiceException internalError = AwsServiceException.builder().statusCode(500)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("InternalError").build()).build();
+
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class)))
+                .thenReturn(DescribeNatGatewaysResponse.builder().natGateways(availableNatGateway).build())
+                .thenThrow(throttled, internalError)
+                .thenReturn(DescribeNatGatewaysResponse.builder().natGateways(deletingNatGateway).build())
+                .thenThrow(internalError)
+                .thenReturn(DescribeNatGatewaysResponse.builder().natGateways(deletedNatGateway).build());
+        when(proxyClient.client().deleteNatGateway(ArgumentMatchers.any(DeleteNatGatewayRequest.class)))
+                .thenReturn(DeleteNatGatewayResponse.builder().natGatewayId(NAT_ID).build());
+
+        final DeleteHandler handler = new DeleteHandler();
+        handler.setStabilizationPollInterval(Duration.ZERO);
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequestWithRetries(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        verify(Ec2Client, times(1)).deleteNatGateway(ArgumentMatchers.any(DeleteNatGatewayRequest.class));
+        verify(Ec2Client, times(6)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    @Test
+    public void handleRequestInvalidatesDescribeCache() {
+        final NatGateway availableNatGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString());
+        final NatGateway deletedNatGateway = availableNatGateway.toBuilder().state(State.DELETED.toString()).build();
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class)))
+                .thenReturn(DescribeNatGatewaysResponse.builder().natGateways(availableNatGateway).build(),
+                        DescribeNatGatewaysResponse.builder().natGateways(deletedNatGateway).build());
+        when(proxyClient.client().deleteNatGateway(ArgumentMatchers.any(DeleteNatGatewayRequest.class)))
+                .thenReturn(DeleteNatGatewayResponse.builder().natGatewayId(NAT_ID).build());
+
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+        final DescribeCache describeCache = new DescribeCache(10, Duration.ofMinutes(1));
+        describeCache.put(BaseHandlerStd.describeCacheKey(request), availableNatGateway);
+        final DeleteHandler handler = new DeleteHandler();
+        handler.setDescribeCache(describeCache);
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequestWithRetries(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(describeCache.get(BaseHandlerStd.describeCacheKey(request))).isEmpty();
+    }
 }
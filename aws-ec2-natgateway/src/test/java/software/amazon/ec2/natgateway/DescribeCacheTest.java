@@ -0,0 +1,77 @@
+package software.amazon.ec2.natgateway;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.ec2.model.NatGateway;
+import software.amazon.awssdk.services.ec2.model.State;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DescribeCacheTest extends AbstractTestBase {
+    private static final Duration TTL = Duration.ofSeconds(5);
+    private final String KEY = DescribeCache.key("123456789012", "us-east-1", NAT_ID);
+    private final String ALT_KEY = DescribeCache.key("123456789012", "us-east-1", ALT_NAT_ID);
+
+    private final AtomicLong clock = new AtomicLong();
+    private DescribeCache describeCache;
+
+    @BeforeEach
+    public void setup() {
+        clock.set(0);
+        describeCache = new DescribeCache(2, TTL, clock::get);
+    }
+
+    @Test
+    public void getReturnsCachedNatUntilExpired() {
+        final NatGateway natGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString());
+        assertThat(describeCache.get(KEY)).isEmpty();
+
+        describeCache.put(KEY, natGateway);
+        clock.addAndGet(TTL.toNanos() - 1);
+        assertThat(describeCache.get(KEY)).contains(natGateway);
+
+        clock.addAndGet(1);
+        assertThat(describeCache.get(KEY)).isEmpty();
+        assertThat(describeCache.size()).isEqualTo(0);
+        assertThat(describeCache.getHits()).isEqualTo(1);
+        assertThat(describeCache.getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    public void keysAreScopedByAccountAndRegion() {
+        describeCache.put(KEY, buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString()));
+
+        assertThat(describeCache.get(DescribeCache.key("210987654321", "us-east-1", NAT_ID))).isEmpty();
+        assertThat(describeCache.get(DescribeCache.key("123456789012", "eu-west-1", NAT_ID))).isEmpty();
+    }
+
+    @Test
+    public void putEvictsLeastRecentlyRead() {
+        final String thirdKey = DescribeCache.key("123456789012", "us-east-1", "nat-third");
+        describeCache.put(KEY, buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString()));
+        describeCache.put(ALT_KEY, buildNatGatewayModel(ALT_NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString()));
+        // Reading the first entry makes the second the least recently read
+        describeCache.get(KEY);
+
+        describeCache.put(thirdKey, buildNatGatewayModel("nat-third", CONN_PUBLIC, State.AVAILABLE.toString()));
+
+        assertThat(describeCache.size()).isEqualTo(2);
+        assertThat(describeCache.getEvictions()).isEqualTo(1);
+        assertThat(describeCache.get(ALT_KEY)).isEmpty();
+        assertThat(describeCache.get(KEY)).isPresent();
+        assertThat(describeCache.get(thirdKey)).isPresent();
+    }
+
+    @Test
+    public void invalidateDropsEntry() {
+        describeCache.put(KEY, buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString()));
+
+        describeCache.invalidate(KEY);
+
+        assertThat(describeCache.get(KEY)).isEmpty();
+        assertThat(describeCache.getEvictions()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,466 @@
+package software.amazon.ec2.natgateway;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.ConnectivityType;
+import software.amazon.awssdk.services.ec2.model.CreateNatGatewayRequest;
+import software.amazon.awssdk.services.ec2.model.CreateNatGatewayResponse;
+import software.amazon.awssdk.services.ec2.model.CreateTagsRequest;
+import software.amazon.awssdk.services.ec2.model.CreateTagsResponse;
+import software.amazon.awssdk.services.ec2.model.DeleteNatGatewayRequest;
+import software.amazon.awssdk.services.ec2.model.DeleteNatGatewayResponse;
+import software.amazon.awssdk.services.ec2.model.DeleteTagsRequest;
+import software.amazon.awssdk.services.ec2.model.DeleteTagsResponse;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysResponse;
+import software.amazon.awssdk.services.ec2.model.DescribeVpcsRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeVpcsResponse;
+import software.amazon.awssdk.services.ec2.model.Ec2Exception;
+import software.amazon.awssdk.services.ec2.model.Filter;
+import software.amazon.awssdk.services.ec2.model.NatGateway;
+import software.amazon.awssdk.services.ec2.model.NatGatewayAddress;
+import software.amazon.awssdk.services.ec2.model.NatGatewayState;
+import software.amazon.awssdk.services.ec2.model.Tag;
+import software.amazon.awssdk.services.ec2.model.Vpc;
+
+/**
+ * In-memory EC2 that keeps the NAT Gateways created through it, for running the handlers against a stateful backend at
+ * volume without touching AWS. Only the calls the handlers make are implemented.
+ *
+ * It models what the handlers have to cope with:
+ *  - state transitions: a NAT Gateway is pending, then available or failed, and deleting, then deleted. How long each
+ *    transition takes is drawn from a configurable distribution. A deleted NAT Gateway stays visible for a while.
+ *  - eventual consistency: a NAT Gateway just created is not returned for a while, like EC2 right after the create
+ *  - throttling: every action has its own token bucket, and a call beyond its quota fails with RequestLimitExceeded
+ *  - server errors: a configurable share of the calls fail with a 500 InternalError
+ *  - latency: every call takes a configurable time to answer
+ *
+ * Time comes from the configured clock, so that tests can move it forward instead of waiting. Random draws come from
+ * the configured seed, so that a run can be replayed.
+ */
+public class Ec2Simulator implements Ec2Client {
+  static final String CREATE_NAT_GATEWAY = "CreateNatGateway";
+  static final String DESCRIBE_NAT_GATEWAYS = "DescribeNatGateways";
+  static final String DELETE_NAT_GATEWAY = "DeleteNatGateway";
+  static final String CREATE_TAGS = "CreateTags";
+  static final String DELETE_TAGS = "DeleteTags";
+  static final String DESCRIBE_VPCS = "DescribeVpcs";
+
+  /**
+   * Distribution a duration is drawn from.
+   */
+  @FunctionalInterface
+  public interface Delay {
+    Duration next(Random random);
+
+    static Delay fixed(final Duration duration) {
+      return random -> duration;
+    }
+
+    static Delay uniform(final Duration min, final Duration max) {
+      return random -> min.plusMillis((long) (random.nextDouble() * max.minus(min).toMillis()));
+    }
+
+    /**
+     * Long-tailed, like most service latencies: half of the draws are below the median, and sigma sets the tail.
+     */
+    static Delay logNormal(final Duration median, final double sigma) {
+      return random -> Duration.ofMillis((long) (median.toMillis() * Math.exp(sigma * random.nextGaussian())));
+    }
+  }
+
+  @lombok.Builder
+  @lombok.Getter
+  public static class Config {
+    // Time a NAT Gateway stays pending
+    @lombok.Builder.Default
+    private final Delay pendingTime = Delay.fixed(Duration.ofSeconds(60));
+
+    // Time a NAT Gateway stays deleting
+    @lombok.Builder.Default
+    private final Delay deletingTime = Delay.fixed(Duration.ofSeconds(30));
+
+    // Share of the NAT Gateways that end up failed instead of available
+    @lombok.Builder.Default
+    private final double failureRate = 0;
+
+    // Time a NAT Gateway just created is not returned by DescribeNatGateways
+    @lombok.Builder.Default
+    private final Delay visibilityLag = Delay.fixed(Duration.ZERO);
+
+    // Time a deleted NAT Gateway is still returned by DescribeNatGateways
+    @lombok.Builder.Default
+    private final Duration deletedRetention = Duration.ofHours(1);
+
+    // Calls per second allowed for each action once its burst is spent, 0 for no throttling
+    @lombok.Builder.Default
+    private final double requestsPerSecond = 0;
+
+    // Calls each action can make at once before being throttled
+    @lombok.Builder.Default
+    private final int burst = 100;
+
+    // Share of the calls that fail with a server error
+    @lombok.Builder.Default
+    private final double internalErrorRate = 0;
+
+    // Time every call takes to answer. It is waited for in real time, not on the clock.
+    @lombok.Builder.Default
+    private final Delay callLatency = Delay.fixed(Duration.ZERO);
+
+    // Epoch millis
+    @lombok.Builder.Default
+    private final LongSupplier clock = System::currentTimeMillis;
+
+    @lombok.Builder.Default
+    private final long seed = 0;
+  }
+
+  /**
+   * A NAT Gateway and the times of its transitions, in epoch millis.
+   */
+  private static class Record {
+    private String natGatewayId;
+    private String subnetId;
+    private String vpcId;
+    private String connectivityType;
+    private String allocationId;
+    private String clientToken;
+    private long createdAt;
+    private long visibleAt;
+    private long settledAt;
+    private boolean fails;
+    private Long deleteRequestedAt;
+    private Long deletedAt;
+    private final Map<String, String> tags = new LinkedHashMap<>();
+  }
+
+  private final Config config;
+  private final Random random;
+  private final Map<String, String> subnets = new HashMap<>();
+  // Sorted by id, which gives DescribeNatGateways pages a stable order
+  private final Map<String, Record> natGateways = new TreeMap<>();
+  private final Map<String, double[]> buckets = new HashMap<>();
+  private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+  private long nextId;
+
+  public Ec2Simulator(final Config config) {
+    this.config = config;
+    this.random = new Random(config.getSeed());
+  }
+
+  /**
+   * Makes a subnet known, so that NAT Gateways can be created in it.
+   */
+  public synchronized Ec2Simulator addSubnet(final String subnetId, final String vpcId) {
+    subnets.put(subnetId, vpcId);
+    return this;
+  }
+
+  /**
+   * @return the number of calls made to the action, including the ones that failed
+   */
+  public int getCalls(final String action) {
+    final AtomicInteger count = calls.get(action);
+    return count == null ? 0 : count.get();
+  }
+
+  public int getTotalCalls() {
+    return calls.values().stream().mapToInt(AtomicInteger::get).sum();
+  }
+
+  /**
+   * @return the NAT Gateway as it is now, whether DescribeNatGateways returns it yet or not
+   */
+  public synchronized NatGateway peek(final String natGatewayId) {
+    final Record record = natGateways.get(natGatewayId);
+    return record == null ? null : toNatGateway(record, config.getClock().getAsLong());
+  }
+
+  @Override
+  public CreateNatGatewayResponse createNatGateway(final CreateNatGatewayRequest createNatGatewayRequest) {
+    admit(CREATE_NAT_GATEWAY);
+    synchronized (this) {
+      final long now = config.getClock().getAsLong();
+      // The same client token is answered with the NAT Gateway it created
+      if (createNatGatewayRequest.clientToken() != null) {
+        for (final Record record : natGateways.values()) {
+          if (createNatGatewayRequest.clientToken().equals(record.clientToken)) {
+            return CreateNatGatewayResponse.builder().clientToken(record.clientToken)
+                    .natGateway(toNatGateway(record, now)).build();
+          }
+        }
+      }
+      final String vpcId = subnets.get(createNatGatewayRequest.subnetId());
+      if (vpcId == null) {
+        throw error(400, "InvalidSubnetID.NotFound",
+                String.format("The subnet ID '%s' does not exist", createNatGatewayRequest.subnetId()));
+      }
+      final String connectivityType = createNatGatewayRequest.connectivityType() == null
+              ? ConnectivityType.PUBLIC.toString() : createNatGatewayRequest.connectivityTypeAsString();
+      if (ConnectivityType.PUBLIC.toString().equals(connectivityType) && createNatGatewayRequest.allocationId() == null) {
+        throw error(400, "MissingParameter", "The request must contain the parameter AllocationId");
+      }
+
+      final Record record = new Record();
+      record.natGatewayId = String.format("nat-%017x", ++nextId);
+      record.subnetId = createNatGatewayRequest.subnetId();
+      record.vpcId = vpcId;
+      record.connectivityType = connectivityType;
+      record.allocationId = createNatGatewayRequest.allocationId();
+      record.clientToken = createNatGatewayRequest.clientToken();
+      record.createdAt = now;
+      record.visibleAt = now + config.getVisibilityLag().next(random).toMillis();
+      record.settledAt = now + config.getPendingTime().next(random).toMillis();
+      record.fails = random.nextDouble() < config.getFailureRate();
+      createNatGatewayRequest.tagSpecifications().forEach(tagSpecification ->
+              tagSpecification.tags().forEach(tag -> record.tags.put(tag.key(), tag.value())));
+      natGateways.put(record.natGatewayId, record);
+      return CreateNatGatewayResponse.builder().clientToken(record.clientToken).natGateway(toNatGateway(record, now)).build();
+    }
+  }
+
+  @Override
+  public DescribeNatGatewaysResponse describeNatGateways(final DescribeNatGatewaysRequest describeNatGatewaysRequest) {
+    admit(DESCRIBE_NAT_GATEWAYS);
+    synchronized (this) {
+      final long now = config.getClock().getAsLong();
+      Predicate<Record> matches = record -> now >= record.visibleAt
+              && (record.deletedAt == null || now < record.deletedAt + config.getDeletedRetention().toMillis());
+      for (final Filter filter : describeNatGatewaysRequest.filter()) {
+        matches = matches.and(filterOf(filter, now));
+      }
+
+      final List<Record> found;
+      if (describeNatGatewaysRequest.natGatewayIds().isEmpty()) {
+        found = natGateways.values().stream().filter(matches).collect(Collectors.toList());
+      } else {
+        found = new ArrayList<>();
+        for (final String natGatewayId : describeNatGatewaysRequest.natGatewayIds()) {
+          final Record record = natGateways.get(natGatewayId);
+          // Unlike a filter, an id that is not returned fails the whole call
+          if (record == null || !matches.test(record)) {
+            if (record == null || now < record.visibleAt || record.deletedAt == null) {
+              throw error(400, "NatGatewayNotFound", String.format("NAT gateway %s was not found", natGatewayId));
+            }
+            continue;
+          }
+          found.add(record);
+        }
+      }
+
+      final int from = describeNatGatewaysRequest.nextToken() == null ? 0 : Integer.parseInt(describeNatGatewaysRequest.nextToken());
+      final int pageSize = describeNatGatewaysRequest.maxResults() == null ? 1000 : describeNatGatewaysRequest.maxResults();
+      final int to = Math.min(found.size(), from + pageSize);
+      return DescribeNatGatewaysResponse.builder()
+              .natGateways(found.subList(from, to).stream().map(record -> toNatGateway(record, now)).collect(Collectors.toList()))
+              .nextToken(to < found.size() ? String.valueOf(to) : null)
+              .build();
+    }
+  }
+
+  @Override
+  public DeleteNatGatewayResponse deleteNatGateway(final DeleteNatGatewayRequest deleteNatGatewayRequest) {
+    admit(DELETE_NAT_GATEWAY);
+    synchronized (this) {
+      final long now = config.getClock().getAsLong();
+      final Record record = natGateways.get(deleteNatGatewayRequest.natGatewayId());
+      if (record == null || now < record.visibleAt) {
+        throw error(400, "NatGatewayNotFound", String.format("NAT gateway %s was not found", deleteNatGatewayRequest.natGatewayId()));
+      }
+      if (record.deleteRequestedAt == null) {
+        record.deleteRequestedAt = now;
+        // A pending NAT Gateway is only deleted once it settled
+        record.deletedAt = Math.max(now, record.settledAt) + config.getDeletingTime().next(random).toMillis();
+      }
+      return DeleteNatGatewayResponse.builder().natGatewayId(record.natGatewayId).build();
+    }
+  }
+
+  @Override
+  public CreateTagsResponse createTags(final CreateTagsRequest createTagsRequest) {
+    admit(CREATE_TAGS);
+    synchronized (this) {
+      final List<Record> records = findForTagging(createTagsRequest.resources());
+      records.forEach(record -> createTagsRequest.tags().forEach(tag -> record.tags.put(tag.key(), tag.value())));
+      return CreateTagsResponse.builder().build();
+    }
+  }
+
+  @Override
+  public DeleteTagsResponse deleteTags(final DeleteTagsRequest deleteTagsRequest) {
+    admit(DELETE_TAGS);
+    synchronized (this) {
+      final List<Record> records = findForTagging(deleteTagsRequest.resources());
+      // A tag given with a value is only removed if its value matches
+      records.forEach(record -> deleteTagsRequest.tags().forEach(tag -> {
+        if (tag.value() == null) {
+          record.tags.remove(tag.key());
+        } else {
+          record.tags.remove(tag.key(), tag.value());
+        }
+      }));
+      return DeleteTagsResponse.builder().build();
+    }
+  }
+
+  @Override
+  public DescribeVpcsResponse describeVpcs(final DescribeVpcsRequest describeVpcsRequest) {
+    admit(DESCRIBE_VPCS);
+    synchronized (this) {
+      return DescribeVpcsResponse.builder()
+              .vpcs(subnets.values().stream().distinct().sorted()
+                      .map(vpcId -> Vpc.builder().vpcId(vpcId).build()).collect(Collectors.toList()))
+              .build();
+    }
+  }
+
+  @Override
+  public String serviceName() {
+    return "ec2";
+  }
+
+  @Override
+  public void close() {
+  }
+
+  /**
+   * Counts the call, waits for its latency, then fails it if it is throttled or draws a server error.
+   */
+  private void admit(final String action) {
+    calls.computeIfAbsent(action, key -> new AtomicInteger()).incrementAndGet();
+    final long latencyMillis;
+    final boolean internalError;
+    synchronized (this) {
+      latencyMillis = config.getCallLatency().next(random).toMillis();
+      internalError = random.nextDouble() < config.getInternalErrorRate();
+    }
+    if (latencyMillis > 0) {
+      try {
+        Thread.sleep(latencyMillis);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (!tryAcquire(action)) {
+      throw error(503, "RequestLimitExceeded", "Request limit exceeded.");
+    }
+    if (internalError) {
+      throw error(500, "InternalError", "An internal error has occurred.");
+    }
+  }
+
+  private synchronized boolean tryAcquire(final String action) {
+    if (config.getRequestsPerSecond() <= 0) {
+      return true;
+    }
+    final long now = config.getClock().getAsLong();
+    // Tokens available and epoch millis of the last refill
+    final double[] bucket = buckets.computeIfAbsent(action, key -> new double[] {config.getBurst(), now});
+    bucket[0] = Math.min(config.getBurst(), bucket[0] + (now - bucket[1]) * config.getRequestsPerSecond() / 1000);
+    bucket[1] = now;
+    if (bucket[0] < 1) {
+      return false;
+    }
+    bucket[0]--;
+    return true;
+  }
+
+  private List<Record> findForTagging(final List<String> natGatewayIds) {
+    final long now = config.getClock().getAsLong();
+    final List<Record> records = new ArrayList<>();
+    for (final String natGatewayId : natGatewayIds) {
+      final Record record = natGateways.get(natGatewayId);
+      // A tagging call fails as a whole, before changing anything
+      if (record == null || now < record.visibleAt) {
+        throw error(400, "InvalidNatGatewayID.NotFound", String.format("The NAT gateway ID '%s' does not exist", natGatewayId));
+      }
+      records.add(record);
+    }
+    return records;
+  }
+
+  private Predicate<Record> filterOf(final Filter filter, final long now) {
+    final List<String> values = filter.values();
+    if ("nat-gateway-id".equals(filter.name())) {
+      return record -> values.contains(record.natGatewayId);
+    } else if ("subnet-id".equals(filter.name())) {
+      return record -> values.contains(record.subnetId);
+    } else if ("vpc-id".equals(filter.name())) {
+      return record -> values.contains(record.vpcId);
+    } else if ("state".equals(filter.name())) {
+      return record -> values.contains(stateOf(record, now).toString());
+    } else if ("tag-key".equals(filter.name())) {
+      return record -> values.stream().anyMatch(record.tags::containsKey);
+    } else if (filter.name().startsWith("tag:")) {
+      final String key = filter.name().substring("tag:".length());
+      return record -> values.contains(record.tags.get(key));
+    }
+    throw error(400, "InvalidParameterValue", String.format("The filter '%s' is invalid", filter.name()));
+  }
+
+  private static NatGatewayState stateOf(final Record record, final long now) {
+    if (record.deletedAt != null && now >= record.deletedAt) {
+      return NatGatewayState.DELETED;
+    } else if (record.deleteRequestedAt != null) {
+      return NatGatewayState.DELETING;
+    } else if (now < record.settledAt) {
+      return NatGatewayState.PENDING;
+    }
+    return record.fails ? NatGatewayState.FAILED : NatGatewayState.AVAILABLE;
+  }
+
+  private static NatGateway toNatGateway(final Record record, final long now) {
+    final NatGatewayState state = stateOf(record, now);
+    final NatGateway.Builder natGateway = NatGateway.builder()
+            .natGatewayId(record.natGatewayId)
+            .subnetId(record.subnetId)
+            .vpcId(record.vpcId)
+            .connectivityType(record.connectivityType)
+            .state(state)
+            .createTime(Instant.ofEpochMilli(record.createdAt))
+            .tags(record.tags.entrySet().stream()
+                    .map(tag -> Tag.builder().key(tag.getKey()).value(tag.getValue()).build())
+                    .collect(Collectors.toList()));
+    if (state == NatGatewayState.FAILED) {
+      natGateway.failureCode("InternalError").failureMessage("Simulated failure");
+    }
+    if (state == NatGatewayState.DELETED) {
+      natGateway.deleteTime(Instant.ofEpochMilli(record.deletedAt));
+    }
+    final int host = Math.abs(record.natGatewayId.hashCode() % 250) + 2;
+    natGateway.natGatewayAddresses(state == NatGatewayState.FAILED || state == NatGatewayState.DELETED
+            ? Collections.emptyList()
+            : Collections.singletonList(NatGatewayAddress.builder()
+                    .allocationId(record.allocationId)
+                    .networkInterfaceId("eni-" + record.natGatewayId.substring("nat-".length()))
+                    .privateIp("10.0.0." + host)
+                    .publicIp(record.allocationId == null ? null : "203.0.113." + host)
+                    .build()));
+    return natGateway.build();
+  }
+
+  private static Ec2Exception error(final int statusCode, final String errorCode, final String message) {
+    return (Ec2Exception) Ec2Exception.builder()
+            .statusCode(statusCode)
+            .message(message)
+            .awsErrorDetails(AwsErrorDetails.builder().errorCode(errorCode).errorMessage(message).serviceName("Ec2").build())
+            .build();
+  }
+}
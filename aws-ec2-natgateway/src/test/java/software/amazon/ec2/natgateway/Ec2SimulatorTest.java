@@ -0,0 +1,194 @@
+package software.amazon.ec2.natgateway;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.ec2.model.CreateNatGatewayRequest;
+import software.amazon.awssdk.services.ec2.model.DeleteNatGatewayRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysResponse;
+import software.amazon.awssdk.services.ec2.model.Ec2Exception;
+import software.amazon.awssdk.services.ec2.model.Filter;
+import software.amazon.awssdk.services.ec2.model.NatGatewayState;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+public class Ec2SimulatorTest extends AbstractTestBase {
+    private AmazonWebServicesClientProxy proxy;
+
+    @BeforeEach
+    public void setup() {
+        proxy = new AmazonWebServicesClientProxy(logger, MOCK_CREDENTIALS, () -> Duration.ofSeconds(600).toMillis());
+    }
+
+    @Test
+    public void natGatewayBecomesAvailableAfterVisibilityLagAndPendingTime() {
+        final Ec2Simulator simulator = simulator(Ec2Simulator.Config.builder()
+                .visibilityLag(Ec2Simulator.Delay.fixed(Duration.ofSeconds(5))));
+
+        final String natGatewayId = create(simulator, null);
+
+        // Not visible yet, by id or by filter
+        assertThat(catchThrowableOfType(() -> describe(simulator, natGatewayId), Ec2Exception.class)
+                .awsErrorDetails().errorCode()).isEqualTo("NatGatewayNotFound");
+        assertThat(simulator.describeNatGateways(byFilter("subnet-id", SUBNET_ID)).natGateways()).isEmpty();
+
+        advance(Duration.ofSeconds(5));
+        assertThat(describe(simulator, natGatewayId).natGateways().get(0).state()).isEqualTo(NatGatewayState.PENDING);
+
+        advance(Duration.ofSeconds(55));
+        assertThat(describe(simulator, natGatewayId).natGateways().get(0).state()).isEqualTo(NatGatewayState.AVAILABLE);
+        assertThat(describe(simulator, natGatewayId).natGateways().get(0).natGatewayAddresses().get(0).allocationId())
+                .isEqualTo(ALLOC_ID);
+        assertThat(simulator.getCalls(Ec2Simulator.DESCRIBE_NAT_GATEWAYS)).isEqualTo(5);
+    }
+
+    @Test
+    public void natGatewayFailsAtFailureRate() {
+        final Ec2Simulator simulator = simulator(Ec2Simulator.Config.builder().failureRate(1));
+
+        final String natGatewayId = create(simulator, null);
+        advance(Duration.ofMinutes(1));
+
+        assertThat(describe(simulator, natGatewayId).natGateways().get(0).state()).isEqualTo(NatGatewayState.FAILED);
+        assertThat(describe(simulator, natGatewayId).natGateways().get(0).failureCode()).isNotNull();
+    }
+
+    @Test
+    public void deletedNatGatewayIsRetainedThenForgotten() {
+        final Ec2Simulator simulator = simulator(Ec2Simulator.Config.builder()
+                .deletedRetention(Duration.ofMinutes(10)));
+        final String natGatewayId = create(simulator, null);
+        advance(Duration.ofMinutes(1));
+
+        simulator.deleteNatGateway(DeleteNatGatewayRequest.builder().natGatewayId(natGatewayId).build());
+        assertThat(describe(simulator, natGatewayId).natGateways().get(0).state()).isEqualTo(NatGatewayState.DELETING);
+
+        advance(Duration.ofSeconds(30));
+        assertThat(describe(simulator, natGatewayId).natGateways().get(0).state()).isEqualTo(NatGatewayState.DELETED);
+        assertThat(simulator.describeNatGateways(byFilter("state", "pending", "available")).natGateways()).isEmpty();
+
+        // Past the retention, a deleted NAT Gateway is no longer returned, but asking for it by id is not an error
+        advance(Duration.ofMinutes(10));
+        assertThat(describe(simulator, natGatewayId).natGateways()).isEmpty();
+    }
+
+    @Test
+    public void createIsIdempotentOnClientToken() {
+        final Ec2Simulator simulator = simulator(Ec2Simulator.Config.builder());
+
+        final String natGatewayId = create(simulator, "token");
+
+        assertThat(create(simulator, "token")).isEqualTo(natGatewayId);
+        assertThat(create(simulator, "other-token")).isNotEqualTo(natGatewayId);
+    }
+
+    @Test
+    public void describePagesThroughFilteredNatGateways() {
+        final Ec2Simulator simulator = simulator(Ec2Simulator.Config.builder());
+        simulator.addSubnet("subnet-other", ALT_VPC_ID);
+        for (int i = 0; i < 12; i++) {
+            create(simulator, null);
+        }
+        simulator.createNatGateway(CreateNatGatewayRequest.builder().subnetId("subnet-other").allocationId(ALLOC_ID).build());
+
+        final DescribeNatGatewaysRequest firstPage = DescribeNatGatewaysRequest.builder()
+                .filter(Filter.builder().name("vpc-id").values(VPC_ID).build()).maxResults(5).build();
+        final DescribeNatGatewaysResponse first = simulator.describeNatGateways(firstPage);
+        final DescribeNatGatewaysResponse second = simulator.describeNatGateways(firstPage.toBuilder().nextToken(first.nextToken()).build());
+        final DescribeNatGatewaysResponse third = simulator.describeNatGateways(firstPage.toBuilder().nextToken(second.nextToken()).build());
+
+        assertThat(first.natGateways()).hasSize(5);
+        assertThat(second.natGateways()).hasSize(5);
+        assertThat(third.natGateways()).hasSize(2);
+        assertThat(third.nextToken()).isNull();
+        assertThat(first.natGateways().get(0).natGatewayId()).isNotEqualTo(second.natGateways().get(0).natGatewayId());
+    }
+
+    @Test
+    public void callsBeyondQuotaAreThrottled() {
+        final Ec2Simulator simulator = simulator(Ec2Simulator.Config.builder().requestsPerSecond(1).burst(2));
+        final String natGatewayId = create(simulator, null);
+
+        describe(simulator, natGatewayId);
+        describe(simulator, natGatewayId);
+        final Ec2Exception throttled = catchThrowableOfType(() -> describe(simulator, natGatewayId), Ec2Exception.class);
+
+        assertThat(throttled.awsErrorDetails().errorCode()).isEqualTo("RequestLimitExceeded");
+        assertThat(throttled.isThrottlingException()).isTrue();
+        // Every action has its own quota, and the bucket refills over time
+        simulator.deleteNatGateway(DeleteNatGatewayRequest.builder().natGatewayId(natGatewayId).build());
+        advance(Duration.ofSeconds(1));
+        describe(simulator, natGatewayId);
+    }
+
+    @Test
+    public void internalErrorsAreInjected() {
+        final Ec2Simulator simulator = simulator(Ec2Simulator.Config.builder().internalErrorRate(1));
+
+        final Ec2Exception internalError = catchThrowableOfType(() -> create(simulator, null), Ec2Exception.class);
+
+        assertThat(internalError.statusCode()).isEqualTo(500);
+        assertThat(internalError.awsErrorDetails().errorCode()).isEqualTo("InternalError");
+        assertThat(simulator.getCalls(Ec2Simulator.CREATE_NAT_GATEWAY)).isEqualTo(1);
+    }
+
+    @Test
+    public void handlersCreateAndDeleteNatGatewayAcrossInvocations() {
+        final Ec2Simulator simulator = simulator(Ec2Simulator.Config.builder()
+                .visibilityLag(Ec2Simulator.Delay.fixed(Duration.ofSeconds(2)))
+                .pendingTime(Ec2Simulator.Delay.uniform(Duration.ofSeconds(60), Duration.ofSeconds(120))));
+        final ProxyClient<Ec2Client> proxyClient = MOCK_PROXY(proxy, simulator);
+
+        final CreateHandler createHandler = new CreateHandler();
+        createHandler.setStabilizationBudget(Duration.ZERO);
+        final ProgressEvent<ResourceModel, CallbackContext> created =
+                runToCompletion(createHandler, createResourceHandlerRequest(), proxyClient);
+
+        assertThat(created.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        final String natGatewayId = created.getResourceModel().getNatGatewayId();
+        assertThat(simulator.peek(natGatewayId).state()).isEqualTo(NatGatewayState.AVAILABLE);
+        assertThat(simulator.getCalls(Ec2Simulator.CREATE_NAT_GATEWAY)).isEqualTo(1);
+
+        final DeleteHandler deleteHandler = new DeleteHandler();
+        deleteHandler.setStabilizationBudget(Duration.ZERO);
+        final ProgressEvent<ResourceModel, CallbackContext> deleted = runToCompletion(deleteHandler,
+                ResourceHandlerRequest.<ResourceModel>builder().desiredResourceState(created.getResourceModel()).build(), proxyClient);
+
+        assertThat(deleted.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(simulator.peek(natGatewayId).state()).isEqualTo(NatGatewayState.DELETED);
+        assertThat(simulator.getCalls(Ec2Simulator.DELETE_NAT_GATEWAY)).isEqualTo(1);
+    }
+
+    /**
+     * Invokes the handler until it is done, moving the clock forward by the callback delay between invocations.
+     */
+    private ProgressEvent<ResourceModel, CallbackContext> runToCompletion(final BaseHandlerStd handler,
+                                                                          final ResourceHandlerRequest<ResourceModel> request,
+                                                                          final ProxyClient<Ec2Client> proxyClient) {
+        return invokeUntilDone(request,
+                callbackContext -> handler.handleRequest(proxy, request, callbackContext, proxyClient, logger),
+                response -> Duration.ofSeconds(Math.max(response.getCallbackDelaySeconds(), 1)));
+    }
+
+    private String create(final Ec2Simulator simulator, final String clientToken) {
+        return simulator.createNatGateway(CreateNatGatewayRequest.builder()
+                .subnetId(SUBNET_ID).allocationId(ALLOC_ID).clientToken(clientToken).build()).natGateway().natGatewayId();
+    }
+
+    private static DescribeNatGatewaysResponse describe(final Ec2Simulator simulator, final String natGatewayId) {
+        return simulator.describeNatGateways(DescribeNatGatewaysRequest.builder().natGatewayIds(natGatewayId).build());
+    }
+
+    private static DescribeNatGatewaysRequest byFilter(final String name, final String... values) {
+        return DescribeNatGatewaysRequest.builder().filter(Filter.builder().name(name).values(values).build()).build();
+    }
+}
@@ -0,0 +1,131 @@
+package software.amazon.ec2.natgateway;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysResponse;
+import software.amazon.awssdk.services.ec2.model.NatGateway;
+import software.amazon.awssdk.services.ec2.model.State;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.ProxyClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class InventoryExporterTest extends AbstractTestBase {
+    private static final int NAT_GATEWAYS = 100_000;
+    private static final int PAGE_SIZE = 1000;
+    // Holding every NAT Gateway of the export and its model at once takes about 50MB, a single page about 0.5MB
+    private static final long HEAP_BUDGET_BYTES = 16L * 1024 * 1024;
+    private static final int HEAP_SAMPLE_INTERVAL = 10_000;
+
+    @Mock
+    private AmazonWebServicesClientProxy proxy;
+
+    @Mock
+    private ProxyClient<Ec2Client> proxyClient;
+
+    @Mock
+    Ec2Client Ec2Client;
+
+    @BeforeEach
+    public void setup() {
+        proxy = new AmazonWebServicesClientProxy(logger, MOCK_CREDENTIALS, () -> Duration.ofSeconds(600).toMillis());
+        Ec2Client = mock(Ec2Client.class);
+        proxyClient = MOCK_PROXY(proxy, Ec2Client);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        verifyNoMoreInteractions(Ec2Client);
+    }
+
+    @Test
+    public void exportSkipsDeletedNats() throws Exception {
+        when(Ec2Client.describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenReturn(
+                DescribeNatGatewaysResponse.builder().natGateways(
+                        buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString()),
+                        buildNatGatewayModel(ALT_NAT_ID, CONN_PUBLIC, State.DELETED.toString())).build());
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        final long exported = new InventoryExporter().export(proxyClient, out);
+
+        final ResourceModel expected = Translator.translateNatGatewayToResourceModel(
+                buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString()));
+        final String[] lines = out.toString("UTF-8").split("\n");
+        assertThat(exported).isEqualTo(1);
+        assertThat(lines).hasSize(1);
+        assertThat(new ObjectMapper().readValue(lines[0], ResourceModel.class)).isEqualTo(expected);
+        verify(Ec2Client, times(1)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    @Test
+    public void exportStaysWithinHeapBudget() throws Exception {
+        when(Ec2Client.describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenAnswer(invocation -> {
+            final DescribeNatGatewaysRequest describeRequest = invocation.getArgument(0);
+            final int from = describeRequest.nextToken() == null ? 0 : Integer.parseInt(describeRequest.nextToken());
+            final int to = Math.min(NAT_GATEWAYS, from + describeRequest.maxResults());
+            final List<NatGateway> natGateways = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                natGateways.add(buildNatGatewayModel(String.format("nat-%017d", i), CONN_PUBLIC, State.AVAILABLE.toString()));
+            }
+            return DescribeNatGatewaysResponse.builder()
+                    .natGateways(natGateways)
+                    .nextToken(to < NAT_GATEWAYS ? String.valueOf(to) : null)
+                    .build();
+        });
+        final long baseline = usedHeapAfterGc();
+        final HeapSamplingOutputStream out = new HeapSamplingOutputStream();
+
+        final long exported = new InventoryExporter().export(proxyClient, out);
+
+        assertThat(exported).isEqualTo(NAT_GATEWAYS);
+        assertThat(out.lines).isEqualTo(NAT_GATEWAYS);
+        assertThat(out.maxUsedHeap - baseline).isLessThan(HEAP_BUDGET_BYTES);
+        verify(Ec2Client, times(NAT_GATEWAYS / PAGE_SIZE)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        final Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Discards the export, counting its lines and sampling the heap used while it is written
+    private static class HeapSamplingOutputStream extends OutputStream {
+        private int lines;
+        private long maxUsedHeap;
+
+        @Override
+        public void write(final int b) {
+            if (b == '\n' && ++lines % HEAP_SAMPLE_INTERVAL == 0) {
+                maxUsedHeap = Math.max(maxUsedHeap, usedHeapAfterGc());
+            }
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+        }
+    }
+}
@@ -1,17 +1,24 @@
 package software.amazon.ec2.natgateway;
 
 import org.junit.jupiter.api.AfterEach;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import software.amazon.awssdk.services.ec2.Ec2Client;
 import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysRequest;
 import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysResponse;
+import software.amazon.awssdk.services.ec2.model.DescribeVpcsRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeVpcsResponse;
+import software.amazon.awssdk.services.ec2.model.Filter;
 import software.amazon.awssdk.services.ec2.model.NatGateway;
 import software.amazon.awssdk.services.ec2.model.State;
+import software.amazon.awssdk.services.ec2.model.Tag;
+import software.amazon.awssdk.services.ec2.model.Vpc;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.cloudformation.exceptions.CfnInvalidRequestException;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
 import software.amazon.cloudformation.proxy.OperationStatus;
 import software.amazon.cloudformation.proxy.ProgressEvent;
@@ -19,10 +26,15 @@ import software.amazon.cloudformation.proxy.ProxyClient;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -112,4 +124,293 @@ public class ListHandlerTest extends AbstractTestBase{
         assertThat(response.getMessage()).isNull();
         assertThat(response.getErrorCode()).isNull();
     }
+
+    @Test
+    public void handleRequestFiltersDeletedNatsInEc2() {
+        final NatGateway natGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString());
+
+        final DescribeNatGatewaysResponse describeResponse = DescribeNatGatewaysResponse.builder().natGateways(natGateway).build();
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenReturn(describeResponse);
+
+        final ListHandler handler = new ListHandler();
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        final ArgumentCaptor<DescribeNatGatewaysRequest> captor = ArgumentCaptor.forClass(DescribeNatGatewaysRequest.class);
+        verify(Ec2Client, times(1)).describeNatGateways(captor.capture());
+        final Filter stateFilter = captor.getValue().filter().get(0);
+        assertThat(stateFilter.name()).isEqualTo("state");
+        assertThat(stateFilter.values()).doesNotContain(State.DELETED.toString());
+        assertThat(captor.getValue().maxResults()).isEqualTo(ListHandler.DEFAULT_PAGE_SIZE);
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getNextToken()).isNull();
+        assertThat(response.getResourceModels()).containsExactly(ResourceModel.builder().natGatewayId(NAT_ID).build());
+    }
+
+    @Test
+    public void handleRequestFillsPageAcrossDescribeCalls() {
+        final NatGateway natGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString());
+
+        final DescribeNatGatewaysResponse firstResponse = DescribeNatGatewaysResponse.builder()
+                .natGateways(natGateway, natGateway).nextToken(NEXT_TOKEN).build();
+        final DescribeNatGatewaysResponse secondResponse = DescribeNatGatewaysResponse.builder()
+                .natGateways(Collections.nCopies(5, natGateway)).nextToken("token-2").build();
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class)))
+                .thenReturn(firstResponse, secondResponse);
+
+        final ListHandler handler = new ListHandler();
+        handler.setPageSize(10);
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        // Only 3 NAT Gateways are missing after the second call, fewer than a describe call can be limited to
+        final ArgumentCaptor<DescribeNatGatewaysRequest> captor = ArgumentCaptor.forClass(DescribeNatGatewaysRequest.class);
+        verify(Ec2Client, times(2)).describeNatGateways(captor.capture());
+        assertThat(captor.getAllValues().get(1).nextToken()).isEqualTo(NEXT_TOKEN);
+        assertThat(captor.getAllValues().get(1).maxResults()).isEqualTo(8);
+        assertThat(response.getResourceModels()).hasSize(7);
+        assertThat(response.getNextToken()).isEqualTo("token-2");
+    }
+
+    @Test
+    public void handleRequestPagesNeverExceedPageSize() {
+        // EC2 returns at most 4 NAT Gateways per call here, which the page size of 7 is not a multiple of
+        final List<NatGateway> natGateways = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            natGateways.add(buildNatGatewayModel(String.format("nat-%017d", i), CONN_PUBLIC, State.AVAILABLE.toString()));
+        }
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenAnswer(invocation -> {
+            final DescribeNatGatewaysRequest describeRequest = invocation.getArgument(0);
+            final int from = describeRequest.nextToken() == null ? 0 : Integer.parseInt(describeRequest.nextToken());
+            final int to = Math.min(natGateways.size(), from + Math.min(4, describeRequest.maxResults()));
+            return DescribeNatGatewaysResponse.builder()
+                    .natGateways(natGateways.subList(from, to))
+                    .nextToken(to < natGateways.size() ? Integer.toString(to) : null)
+                    .build();
+        });
+
+        final ListHandler handler = new ListHandler();
+        handler.setPageSize(7);
+        final List<String> listed = new ArrayList<>();
+        String nextToken = null;
+        do {
+            final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+            request.setNextToken(nextToken);
+            final ProgressEvent<ResourceModel, CallbackContext> response =
+                    handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+            assertThat(response.getResourceModels()).hasSizeLessThanOrEqualTo(7);
+            response.getResourceModels().forEach(model -> listed.add(model.getNatGatewayId()));
+            nextToken = response.getNextToken();
+        } while (nextToken != null);
+
+        // Every NAT Gateway is listed once, none is skipped by a next token
+        final List<String> expected = new ArrayList<>();
+        natGateways.forEach(natGateway -> expected.add(natGateway.natGatewayId()));
+        assertThat(listed).containsExactlyElementsOf(expected);
+        verify(Ec2Client, atLeastOnce()).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    @Test
+    public void handleRequestPageSizeFromSetting() {
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenReturn(
+                DescribeNatGatewaysResponse.builder().natGateways(buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString())).build());
+
+        final ListHandler handler = new ListHandler();
+        handler.setPageSize(ListHandler.pageSize("250"));
+        handler.handleRequest(proxy, createResourceHandlerRequest(), new CallbackContext(), proxyClient, logger);
+
+        final ArgumentCaptor<DescribeNatGatewaysRequest> captor = ArgumentCaptor.forClass(DescribeNatGatewaysRequest.class);
+        verify(Ec2Client, times(1)).describeNatGateways(captor.capture());
+        assertThat(captor.getValue().maxResults()).isEqualTo(250);
+        // A setting DescribeNatGateways would reject is brought within bounds, one that is not a number is ignored
+        assertThat(ListHandler.pageSize(null)).isEqualTo(ListHandler.DEFAULT_PAGE_SIZE);
+        assertThat(ListHandler.pageSize("2")).isEqualTo(ListHandler.MIN_MAX_RESULTS);
+        assertThat(ListHandler.pageSize("5000")).isEqualTo(ListHandler.MAX_MAX_RESULTS);
+        assertThat(ListHandler.pageSize("many")).isEqualTo(ListHandler.DEFAULT_PAGE_SIZE);
+    }
+
+    @Test
+    public void handleRequestListWithProperties() {
+        final Tag systemTag = Tag.builder().key("aws:cloudformation:stack-name").value("stack").build();
+        final NatGateway natGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString()).toBuilder()
+                .tags(TAG_1, systemTag).build();
+        final NatGateway privateNatGateway = buildNatGatewayModel(ALT_NAT_ID, CONN_PRIVATE, State.PENDING.toString()).toBuilder()
+                .natGatewayAddresses(Collections.emptyList()).build();
+
+        final DescribeNatGatewaysResponse describeResponse = DescribeNatGatewaysResponse.builder()
+                .natGateways(natGateway, privateNatGateway).build();
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenReturn(describeResponse);
+
+        final ListHandler handler = new ListHandler();
+        handler.setWithProperties(true);
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        final ResourceModel privateModel = ResourceModel.builder()
+                .natGatewayId(ALT_NAT_ID)
+                .subnetId(SUBNET_ID)
+                .connectivityType(CONN_PRIVATE)
+                .tags(Translator.convertToNatTags(TAGS))
+                .build();
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModels()).containsExactly(request.getDesiredResourceState(), privateModel);
+        verify(Ec2Client, times(1)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    @Test
+    public void handleRequestShardedFirstPage() {
+        when(proxyClient.client().describeVpcs(ArgumentMatchers.any(DescribeVpcsRequest.class))).thenReturn(
+                DescribeVpcsResponse.builder().vpcs(Vpc.builder().vpcId(ALT_VPC_ID).build(), Vpc.builder().vpcId(VPC_ID).build()).build());
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenAnswer(invocation -> {
+            final DescribeNatGatewaysRequest describeRequest = invocation.getArgument(0);
+            return VPC_ID.equals(describeRequest.filter().get(1).values().get(0))
+                    ? DescribeNatGatewaysResponse.builder()
+                            .natGateways(Collections.nCopies(5, buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString())))
+                            .nextToken(NEXT_TOKEN).build()
+                    : DescribeNatGatewaysResponse.builder()
+                            .natGateways(buildNatGatewayModel(ALT_NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString())).build();
+        });
+
+        final ListHandler handler = new ListHandler();
+        handler.setSharded(true);
+        handler.setPageSize(10);
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        // Shards are merged in VPC id order, whatever order DescribeVpcs returns them in
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        final List<ResourceModel> expectedModels = new ArrayList<>(
+                Collections.nCopies(5, ResourceModel.builder().natGatewayId(NAT_ID).build()));
+        expectedModels.add(ResourceModel.builder().natGatewayId(ALT_NAT_ID).build());
+        assertThat(response.getResourceModels()).containsExactlyElementsOf(expectedModels);
+        // The walk is past both VPCs, only the first one is left unfinished
+        assertThat(ShardedLister.decodeToken(response.getNextToken()))
+                .isEqualTo(new ShardedLister.Cursor(null, ALT_VPC_ID, VPC_ID, NEXT_TOKEN));
+
+        final ArgumentCaptor<DescribeNatGatewaysRequest> captor = ArgumentCaptor.forClass(DescribeNatGatewaysRequest.class);
+        verify(Ec2Client, times(1)).describeVpcs(ArgumentMatchers.any(DescribeVpcsRequest.class));
+        verify(Ec2Client, times(2)).describeNatGateways(captor.capture());
+        assertThat(captor.getAllValues()).allSatisfy(describeRequest -> assertThat(describeRequest.maxResults()).isEqualTo(5));
+    }
+
+    @Test
+    public void handleRequestShardedResumesFromCompositeToken() {
+        final String nextToken = ShardedLister.encodeToken(new ShardedLister.Cursor(null, VPC_ID, VPC_ID, NEXT_TOKEN));
+        when(proxyClient.client().describeVpcs(ArgumentMatchers.any(DescribeVpcsRequest.class))).thenReturn(
+                DescribeVpcsResponse.builder().vpcs(Vpc.builder().vpcId(ALT_VPC_ID).build(), Vpc.builder().vpcId(VPC_ID).build()).build());
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenReturn(
+                DescribeNatGatewaysResponse.builder()
+                        .natGateways(buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString())).build());
+
+        final ListHandler handler = new ListHandler();
+        handler.setSharded(true);
+        handler.setPageSize(5);
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+        request.setNextToken(nextToken);
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        // A page of 5 only fits the unfinished VPC, the walk still has the other one
+        final ArgumentCaptor<DescribeNatGatewaysRequest> captor = ArgumentCaptor.forClass(DescribeNatGatewaysRequest.class);
+        verify(Ec2Client, times(1)).describeVpcs(ArgumentMatchers.any(DescribeVpcsRequest.class));
+        verify(Ec2Client, times(1)).describeNatGateways(captor.capture());
+        assertThat(captor.getValue().nextToken()).isEqualTo(NEXT_TOKEN);
+        assertThat(captor.getValue().filter().get(1).values()).containsExactly(VPC_ID);
+        assertThat(response.getResourceModels()).containsExactly(ResourceModel.builder().natGatewayId(NAT_ID).build());
+        assertThat(ShardedLister.decodeToken(response.getNextToken())).isEqualTo(new ShardedLister.Cursor(null, VPC_ID, null, null));
+    }
+
+    @Test
+    public void handleRequestShardedWalksVpcPages() {
+        when(proxyClient.client().describeVpcs(ArgumentMatchers.any(DescribeVpcsRequest.class))).thenAnswer(invocation -> {
+            final DescribeVpcsRequest describeRequest = invocation.getArgument(0);
+            return describeRequest.nextToken() == null
+                    ? DescribeVpcsResponse.builder().vpcs(Vpc.builder().vpcId("vpc-b").build(), Vpc.builder().vpcId("vpc-a").build())
+                            .nextToken("vpcs-2").build()
+                    : DescribeVpcsResponse.builder().vpcs(Vpc.builder().vpcId("vpc-c").build()).build();
+        });
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenAnswer(invocation -> {
+            final DescribeNatGatewaysRequest describeRequest = invocation.getArgument(0);
+            final String vpcId = describeRequest.filter().get(1).values().get(0);
+            return DescribeNatGatewaysResponse.builder()
+                    .natGateways(buildNatGatewayModel("nat-" + vpcId, CONN_PUBLIC, State.AVAILABLE.toString())).build();
+        });
+
+        final ListHandler handler = new ListHandler();
+        handler.setSharded(true);
+        handler.setPageSize(10);
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+        final List<ResourceModel> listed = new ArrayList<>();
+        ProgressEvent<ResourceModel, CallbackContext> response;
+        int pages = 0;
+        do {
+            response = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+            listed.addAll(response.getResourceModels());
+            request.setNextToken(response.getNextToken());
+            pages++;
+        } while (response.getNextToken() != null);
+
+        // A page of 10 lists two VPCs, the second page goes on with the next page of VPCs
+        assertThat(pages).isEqualTo(2);
+        assertThat(listed).extracting(ResourceModel::getNatGatewayId).containsExactly("nat-vpc-a", "nat-vpc-b", "nat-vpc-c");
+        verify(Ec2Client, times(3)).describeVpcs(ArgumentMatchers.any(DescribeVpcsRequest.class));
+        verify(Ec2Client, times(3)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    @Test
+    public void handleRequestShardedTokenSizeDoesNotGrowWithVpcs() {
+        final List<Vpc> vpcs = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            vpcs.add(Vpc.builder().vpcId(String.format("vpc-%017d", i)).build());
+        }
+        when(proxyClient.client().describeVpcs(ArgumentMatchers.any(DescribeVpcsRequest.class))).thenReturn(
+                DescribeVpcsResponse.builder().vpcs(vpcs).build());
+        // Every VPC holds twice its share of a page
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenAnswer(invocation -> {
+            final DescribeNatGatewaysRequest describeRequest = invocation.getArgument(0);
+            return DescribeNatGatewaysResponse.builder()
+                    .natGateways(Collections.nCopies(5, buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString())))
+                    .nextToken(describeRequest.nextToken() == null ? NEXT_TOKEN : null).build();
+        });
+
+        final ListHandler handler = new ListHandler();
+        handler.setSharded(true);
+        handler.setPageSize(40);
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+        for (int page = 0; page < 5; page++) {
+            final ProgressEvent<ResourceModel, CallbackContext> response =
+                    handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+            assertThat(response.getNextToken()).hasSizeLessThan(200);
+            request.setNextToken(response.getNextToken());
+        }
+
+        // Only one VPC is left unfinished, a page ends before the second one, so each page finishes the VPC left
+        // unfinished by the previous one and starts the next
+        final ShardedLister.Cursor cursor = ShardedLister.decodeToken(request.getNextToken());
+        assertThat(cursor.getVpcId()).isEqualTo(vpcs.get(4).vpcId());
+        assertThat(cursor.getLastVpcId()).isEqualTo(vpcs.get(4).vpcId());
+        verify(Ec2Client, times(5)).describeVpcs(ArgumentMatchers.any(DescribeVpcsRequest.class));
+        verify(Ec2Client, atLeastOnce()).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    @Test
+    public void handleRequestShardedInvalidToken() {
+        final ListHandler handler = new ListHandler();
+        handler.setSharded(true);
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+        request.setNextToken("not a composite token");
+
+        assertThrows(CfnInvalidRequestException.class,
+                () -> handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger));
+    }
 }
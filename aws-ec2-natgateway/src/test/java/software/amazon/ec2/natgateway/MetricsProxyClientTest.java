@@ -0,0 +1,114 @@
+package software.amazon.ec2.natgateway;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.ec2.model.CreateNatGatewayRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysRequest;
+import software.amazon.cloudformation.exceptions.CfnServiceInternalErrorException;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Drives the handlers against the Ec2Simulator and checks the metrics they emit by parsing the EMF lines they log, the
+ * same way CloudWatch reads them.
+ */
+public class MetricsProxyClientTest extends AbstractTestBase {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final List<String> lines = new ArrayList<>();
+
+    private AmazonWebServicesClientProxy proxy;
+
+    @BeforeEach
+    public void setup() {
+        proxy = new AmazonWebServicesClientProxy(logger, MOCK_CREDENTIALS, () -> Duration.ofSeconds(600).toMillis());
+    }
+
+    @Test
+    public void createEmitsCallLatencyAndStabilization() throws Exception {
+        final Ec2Simulator simulator = simulator(Ec2Simulator.Config.builder()
+                .pendingTime(Ec2Simulator.Delay.fixed(Duration.ofSeconds(25))));
+        final CreateHandler handler = new CreateHandler();
+        handler.setStabilizationBudget(Duration.ZERO);
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = invokeUntilDone(request, callbackContext -> {
+            lines.clear();
+            return handler.handleRequestWithRetries(proxy, request, callbackContext, MOCK_PROXY(proxy, simulator), lines::add);
+        });
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        // Only the last invocation's lines are left, the one that saw the NAT Gateway available
+        final JsonNode latency = metric("Latency", "Api", "DescribeNatGateways").get();
+        assertThat(latency.get("Latency").get("Count").asLong()).isEqualTo(1);
+        assertThat(latency.get("Operation").asText()).isEqualTo("Create");
+        final JsonNode stabilization = metric("StabilizationPolls", "ConnectivityType", CONN_PUBLIC).get();
+        // Polled at 0, 10, 20 and 30 seconds, pending for 25, counted over all invocations
+        assertThat(stabilization.get("StabilizationPolls").get("Sum").asLong()).isEqualTo(4);
+        assertThat(stabilization.get("TimeToStable").get("Count").asLong()).isEqualTo(1);
+        assertThat(metric("Errors", "Api", "DescribeNatGateways")).isEmpty();
+    }
+
+    @Test
+    public void firstCreateInvocationEmitsCreateNatGatewayLatency() throws Exception {
+        final Ec2Simulator simulator = simulator(Ec2Simulator.Config.builder());
+        final CreateHandler handler = new CreateHandler();
+        handler.setStabilizationBudget(Duration.ZERO);
+
+        handler.handleRequestWithRetries(proxy, createResourceHandlerRequest(), new CallbackContext(),
+                MOCK_PROXY(proxy, simulator), lines::add);
+
+        assertThat(metric("Latency", "Api", "CreateNatGateway").get().get("Latency").get("Count").asLong()).isEqualTo(1);
+        // Still pending, so nothing stabilized yet
+        assertThat(metric("StabilizationPolls", "ConnectivityType", CONN_PUBLIC)).isEmpty();
+    }
+
+    @Test
+    public void failedCallsAreCountedByErrorCode() throws Exception {
+        final Ec2Simulator simulator = simulator(Ec2Simulator.Config.builder().internalErrorRate(1));
+        final ReadHandler handler = new ReadHandler();
+        final ResourceHandlerRequest<ResourceModel> request = buildRequest(NAT_ID);
+
+        assertThrows(CfnServiceInternalErrorException.class, () ->
+                handler.handleRequestWithRetries(proxy, request, new CallbackContext(), MOCK_PROXY(proxy, simulator), lines::add));
+
+        final JsonNode errors = metric("Errors", "Api", "DescribeNatGateways").get();
+        assertThat(errors.get("ErrorCode").asText()).isEqualTo("InternalError");
+        assertThat(errors.get("Errors").asLong()).isEqualTo(1);
+        assertThat(metric("Latency", "Api", "DescribeNatGateways")).isPresent();
+    }
+
+    @Test
+    public void actionIsNamedAfterTheRequest() {
+        assertThat(MetricsProxyClient.action(DescribeNatGatewaysRequest.builder().build())).isEqualTo("DescribeNatGateways");
+        assertThat(MetricsProxyClient.action(CreateNatGatewayRequest.builder().build())).isEqualTo("CreateNatGateway");
+    }
+
+    /**
+     * @return the EMF document logged for the metric with the given dimension, if any
+     */
+    private Optional<JsonNode> metric(final String name, final String dimension, final String value) throws Exception {
+        for (final String line : lines) {
+            if (!line.startsWith("{\"_aws\"")) {
+                continue;
+            }
+            final JsonNode document = MAPPER.readTree(line);
+            if (document.has(name) && document.has(dimension) && value.equals(document.get(dimension).asText())) {
+                return Optional.of(document);
+            }
+        }
+        return Optional.empty();
+    }
+}
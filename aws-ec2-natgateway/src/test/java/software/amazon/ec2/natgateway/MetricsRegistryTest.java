@@ -0,0 +1,126 @@
+package software.amazon.ec2.natgateway;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MetricsRegistryTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final long TIMESTAMP = 1_600_000_000_000L;
+
+    private final MetricsRegistry metrics = new MetricsRegistry("Create");
+
+    @Test
+    public void emitsNothingWhenNothingWasRecorded() {
+        assertThat(metrics.toEmfLines(TIMESTAMP)).isEmpty();
+    }
+
+    @Test
+    public void counterIsEmittedAsEmfNumber() throws Exception {
+        metrics.count("Errors", "Api", "DescribeNatGateways", "ErrorCode", "RequestLimitExceeded");
+        metrics.count("Errors", "Api", "DescribeNatGateways", "ErrorCode", "RequestLimitExceeded");
+
+        final List<String> lines = metrics.toEmfLines(TIMESTAMP);
+
+        assertThat(lines).hasSize(1);
+        final JsonNode document = MAPPER.readTree(lines.get(0));
+        final JsonNode directive = document.get("_aws").get("CloudWatchMetrics").get(0);
+        assertThat(document.get("_aws").get("Timestamp").asLong()).isEqualTo(TIMESTAMP);
+        assertThat(directive.get("Namespace").asText()).isEqualTo(MetricsRegistry.NAMESPACE);
+        assertThat(directive.get("Dimensions").get(0)).extracting(JsonNode::asText)
+                .containsExactly("Operation", "Api", "ErrorCode");
+        assertThat(directive.get("Metrics").get(0).get("Name").asText()).isEqualTo("Errors");
+        assertThat(directive.get("Metrics").get(0).get("Unit").asText()).isEqualTo("Count");
+        assertThat(document.get("Operation").asText()).isEqualTo("Create");
+        assertThat(document.get("Api").asText()).isEqualTo("DescribeNatGateways");
+        assertThat(document.get("ErrorCode").asText()).isEqualTo("RequestLimitExceeded");
+        assertThat(document.get("Errors").asLong()).isEqualTo(2);
+    }
+
+    @Test
+    public void histogramIsEmittedAsEmfValuesAndCounts() throws Exception {
+        metrics.record("Latency", MetricsRegistry.Unit.MILLISECONDS, 3, "Api", "CreateNatGateway");
+        metrics.record("Latency", MetricsRegistry.Unit.MILLISECONDS, 5, "Api", "CreateNatGateway");
+        metrics.record("Latency", MetricsRegistry.Unit.MILLISECONDS, 120, "Api", "CreateNatGateway");
+
+        final JsonNode document = MAPPER.readTree(metrics.toEmfLines(TIMESTAMP).get(0));
+        final JsonNode latency = document.get("Latency");
+
+        // 3 and 5 share the bucket up to 5, 120 is alone in the one up to 200
+        assertThat(latency.get("Values")).extracting(JsonNode::asLong).containsExactly(4L, 120L);
+        assertThat(latency.get("Counts")).extracting(JsonNode::asLong).containsExactly(2L, 1L);
+        assertThat(latency.get("Min").asLong()).isEqualTo(3);
+        assertThat(latency.get("Max").asLong()).isEqualTo(120);
+        assertThat(latency.get("Count").asLong()).isEqualTo(3);
+        assertThat(latency.get("Sum").asLong()).isEqualTo(128);
+        assertThat(document.get("_aws").get("CloudWatchMetrics").get(0).get("Metrics").get(0).get("Unit").asText())
+                .isEqualTo("Milliseconds");
+    }
+
+    @Test
+    public void valuesBeyondTheLastBucketAreKept() throws Exception {
+        metrics.record("AllocatedBytes", MetricsRegistry.Unit.BYTES, Long.MAX_VALUE / 2);
+
+        final JsonNode histogram = MAPPER.readTree(metrics.toEmfLines(TIMESTAMP).get(0)).get("AllocatedBytes");
+
+        assertThat(histogram.get("Values").get(0).asLong()).isEqualTo(Long.MAX_VALUE / 2);
+    }
+
+    @Test
+    public void metricsAreGroupedByDimensionSet() throws Exception {
+        metrics.record("Latency", MetricsRegistry.Unit.MILLISECONDS, 10, "Api", "CreateNatGateway");
+        metrics.record("Latency", MetricsRegistry.Unit.MILLISECONDS, 10, "Api", "DescribeNatGateways");
+        metrics.record("StabilizationPolls", MetricsRegistry.Unit.COUNT, 4, "ConnectivityType", "public");
+        metrics.record("TimeToStable", MetricsRegistry.Unit.MILLISECONDS, 60_000, "ConnectivityType", "public");
+
+        final List<JsonNode> documents = new ArrayList<>();
+        for (final String line : metrics.toEmfLines(TIMESTAMP)) {
+            documents.add(MAPPER.readTree(line));
+        }
+
+        assertThat(documents).hasSize(3);
+        final JsonNode stabilization = documents.stream().filter(document -> document.has("ConnectivityType")).findFirst().get();
+        assertThat(stabilization.get("_aws").get("CloudWatchMetrics").get(0).get("Metrics"))
+                .extracting(definition -> definition.get("Name").asText())
+                .containsExactly("StabilizationPolls", "TimeToStable");
+    }
+
+    @Test
+    public void concurrentRecordsAreAllCounted() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int thread = 0; thread < 8; thread++) {
+                executor.execute(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        metrics.record("Latency", MetricsRegistry.Unit.MILLISECONDS, i % 100, "Api", "CreateTags");
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(metrics.getCount("Latency", "Api", "CreateTags")).isEqualTo(80_000);
+        final JsonNode latency = MAPPER.readTree(metrics.toEmfLines(TIMESTAMP).get(0)).get("Latency");
+        long total = 0;
+        for (final JsonNode count : latency.get("Counts")) {
+            total += count.asLong();
+        }
+        assertThat(total).isEqualTo(80_000);
+    }
+
+    @Test
+    public void unpairedDimensionIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> metrics.count("Errors", "Api"));
+    }
+}
@@ -0,0 +1,95 @@
+package software.amazon.ec2.natgateway;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysResponse;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.ProxyClient;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RateLimitedProxyClientTest extends AbstractTestBase {
+    private static final double MAX_RATE = 10;
+
+    @Mock
+    private AmazonWebServicesClientProxy proxy;
+
+    @Mock
+    Ec2Client Ec2Client;
+
+    private AdaptiveRateLimiter rateLimiter;
+    private ProxyClient<Ec2Client> proxyClient;
+
+    @BeforeEach
+    public void setup() {
+        proxy = new AmazonWebServicesClientProxy(logger, MOCK_CREDENTIALS, () -> Duration.ofSeconds(600).toMillis());
+        Ec2Client = mock(Ec2Client.class);
+        rateLimiter = new AdaptiveRateLimiter(MAX_RATE, System::nanoTime);
+        proxyClient = new RateLimitedProxyClient(MOCK_PROXY(proxy, Ec2Client), rateLimiter);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        verifyNoMoreInteractions(Ec2Client);
+    }
+
+    @Test
+    public void throttledCallSlowsDown() {
+        final AwsServiceException throttled = AwsServiceException.builder()
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("RequestLimitExceeded").build()).build();
+        when(Ec2Client.describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenThrow(throttled);
+
+        Assertions.assertThrows(AwsServiceException.class, () -> proxyClient.injectCredentialsAndInvokeV2(
+                DescribeNatGatewaysRequest.builder().build(), proxyClient.client()::describeNatGateways));
+
+        verify(Ec2Client, times(1)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+        assertThat(rateLimiter.getRate()).isEqualTo(MAX_RATE * AdaptiveRateLimiter.DECREASE_FACTOR);
+    }
+
+    @Test
+    public void otherErrorsKeepRate() {
+        final AwsServiceException notFound = AwsServiceException.builder()
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("NatGatewayNotFound").build()).build();
+        when(Ec2Client.describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenThrow(notFound);
+
+        Assertions.assertThrows(AwsServiceException.class, () -> proxyClient.injectCredentialsAndInvokeV2(
+                DescribeNatGatewaysRequest.builder().build(), proxyClient.client()::describeNatGateways));
+
+        verify(Ec2Client, times(1)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+        assertThat(rateLimiter.getRate()).isEqualTo(MAX_RATE);
+    }
+
+    @Test
+    public void successfulCallsRecoverRate() {
+        final AwsServiceException throttled = AwsServiceException.builder()
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("Throttling").build()).build();
+        when(Ec2Client.describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class)))
+                .thenThrow(throttled)
+                .thenReturn(DescribeNatGatewaysResponse.builder().build());
+
+        Assertions.assertThrows(AwsServiceException.class, () -> proxyClient.injectCredentialsAndInvokeV2(
+                DescribeNatGatewaysRequest.builder().build(), proxyClient.client()::describeNatGateways));
+        proxyClient.injectCredentialsAndInvokeV2(DescribeNatGatewaysRequest.builder().build(), proxyClient.client()::describeNatGateways);
+
+        verify(Ec2Client, times(2)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+        assertThat(rateLimiter.getRate()).isEqualTo(MAX_RATE * AdaptiveRateLimiter.DECREASE_FACTOR + 1 / (MAX_RATE * AdaptiveRateLimiter.DECREASE_FACTOR));
+    }
+}
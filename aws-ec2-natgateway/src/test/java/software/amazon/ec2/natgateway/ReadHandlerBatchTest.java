@@ -0,0 +1,125 @@
+package software.amazon.ec2.natgateway;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysResponse;
+import software.amazon.awssdk.services.ec2.model.Ec2Exception;
+import software.amazon.awssdk.services.ec2.model.State;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.HandlerErrorCode;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ProxyClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ReadHandlerBatchTest extends AbstractTestBase {
+    private static final String MISSING_NAT_ID = String.format("nat-%017d", 7);
+    private static final String DELETED_NAT_ID = String.format("nat-%017d", 8);
+
+    @Mock
+    private AmazonWebServicesClientProxy proxy;
+
+    @Mock
+    private ProxyClient<Ec2Client> proxyClient;
+
+    @Mock
+    Ec2Client Ec2Client;
+
+    @BeforeEach
+    public void setup() {
+        proxy = new AmazonWebServicesClientProxy(logger, MOCK_CREDENTIALS, () -> Duration.ofSeconds(600).toMillis());
+        Ec2Client = mock(Ec2Client.class);
+        proxyClient = MOCK_PROXY(proxy, Ec2Client);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        verifyNoMoreInteractions(Ec2Client);
+    }
+
+    @Test
+    public void readBatchChunksIdsAndReportsMissingPerItem() {
+        // Every described NAT Gateway is returned, except one that is missing and one that is deleted
+        when(Ec2Client.describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenAnswer(invocation -> {
+            final DescribeNatGatewaysRequest describeRequest = invocation.getArgument(0);
+            return DescribeNatGatewaysResponse.builder().natGateways(describeRequest.filter().get(0).values().stream()
+                    .filter(natId -> !MISSING_NAT_ID.equals(natId))
+                    .map(natId -> buildNatGatewayModel(natId, CONN_PUBLIC,
+                            DELETED_NAT_ID.equals(natId) ? State.DELETED.toString() : State.AVAILABLE.toString()))
+                    .collect(Collectors.toList())).build();
+        });
+
+        final Map<String, ProgressEvent<ResourceModel, CallbackContext>> results =
+                new ReadHandler().readBatch(buildModels(450), proxyClient, logger);
+
+        assertThat(results).hasSize(450);
+        assertThat(results.keySet()).containsExactlyElementsOf(
+                buildModels(450).stream().map(ResourceModel::getNatGatewayId).collect(Collectors.toList()));
+        assertThat(results.get(MISSING_NAT_ID).getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(results.get(MISSING_NAT_ID).getErrorCode()).isEqualTo(HandlerErrorCode.NotFound);
+        assertThat(results.get(DELETED_NAT_ID).getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(results.get(DELETED_NAT_ID).getErrorCode()).isEqualTo(HandlerErrorCode.NotFound);
+        assertThat(results.values().stream().filter(ProgressEvent::isSuccess).count()).isEqualTo(448);
+        final String readNatId = String.format("nat-%017d", 449);
+        assertThat(results.get(readNatId).getResourceModel().getNatGatewayId()).isEqualTo(readNatId);
+        assertThat(results.get(readNatId).getResourceModel().getConnectivityType()).isEqualTo(CONN_PUBLIC);
+
+        // 450 NAT Gateways take three describes of at most 200 ids
+        verify(Ec2Client, times(3)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    @Test
+    public void readBatchReportsFailedChunkPerItem() {
+        // The chunk holding the first NAT Gateway fails, the others succeed
+        final String failingNatId = String.format("nat-%017d", 0);
+        when(Ec2Client.describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenAnswer(invocation -> {
+            final DescribeNatGatewaysRequest describeRequest = invocation.getArgument(0);
+            if (describeRequest.filter().get(0).values().contains(failingNatId)) {
+                throw Ec2Exception.builder().awsErrorDetails(AwsErrorDetails.builder().errorCode("UnauthorizedOperation").build()).build();
+            }
+            return DescribeNatGatewaysResponse.builder().natGateways(describeRequest.filter().get(0).values().stream()
+                    .map(natId -> buildNatGatewayModel(natId, CONN_PUBLIC, State.AVAILABLE.toString()))
+                    .collect(Collectors.toList())).build();
+        });
+
+        final Map<String, ProgressEvent<ResourceModel, CallbackContext>> results =
+                new ReadHandler().readBatch(buildModels(250), proxyClient, logger);
+
+        assertThat(results).hasSize(250);
+        assertThat(results.get(failingNatId).getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(results.get(failingNatId).getErrorCode()).isEqualTo(HandlerErrorCode.AccessDenied);
+        assertThat(results.values().stream().filter(ProgressEvent::isFailed).count()).isEqualTo(200);
+        assertThat(results.values().stream().filter(ProgressEvent::isSuccess).count()).isEqualTo(50);
+
+        verify(Ec2Client, times(2)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    private List<ResourceModel> buildModels(final int count) {
+        final List<ResourceModel> models = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            models.add(ResourceModel.builder().natGatewayId(String.format("nat-%017d", i)).build());
+        }
+        return models;
+    }
+}
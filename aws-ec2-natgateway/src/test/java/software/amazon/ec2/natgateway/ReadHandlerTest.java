@@ -12,7 +12,9 @@ import software.amazon.awssdk.services.ec2.model.State;
 import software.amazon.awssdk.services.ec2.model.NatGateway;
 import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysRequest;
 import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysResponse;
+import software.amazon.cloudformation.exceptions.CfnServiceInternalErrorException;
 import software.amazon.cloudformation.exceptions.CfnServiceLimitExceededException;
+import software.amazon.cloudformation.exceptions.CfnThrottlingException;
 import software.amazon.cloudformation.exceptions.ResourceNotFoundException;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
 import software.amazon.cloudformation.proxy.OperationStatus;
@@ -29,6 +31,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -109,4 +112,72 @@ public class ReadHandlerTest extends AbstractTestBase {
             handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
         });
     }
+
+    @Test
+    public void handleRequestThrottled() {
+        AwsErrorDetails awsErrorDetails = AwsErrorDetails.builder().errorCode("RequestLimitExceeded").build();
+        final AwsServiceException awsServiceException = AwsServiceException.builder().awsErrorDetails(awsErrorDetails).build();
+
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class)))
+                .thenThrow(awsServiceException);
+
+        final ReadHandler handler = new ReadHandler();
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+
+        Assertions.assertThrows(CfnThrottlingException.class, () -> {
+            handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+        });
+    }
+
+    @Test
+    public void handleRequestTransientFailureFailsFast() {
+        final AwsServiceException internalError = AwsServiceException.builder().statusCode(500)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("InternalError").build()).build();
+
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class)))
+                .thenThrow(internalError);
+
+        final ReadHandler handler = new ReadHandler();
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+
+        // CloudFormation does not re-invoke Read, so it can not answer with IN_PROGRESS
+        Assertions.assertThrows(CfnServiceInternalErrorException.class, () -> {
+            handler.handleRequestWithRetries(proxy, request, new CallbackContext(), proxyClient, logger);
+        });
+    }
+
+    @Test
+    public void handleRequestEmptyDescribe() {
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class)))
+                .thenReturn(DescribeNatGatewaysResponse.builder().build());
+
+        final ReadHandler handler = new ReadHandler();
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+
+        Assertions.assertThrows(ResourceNotFoundException.class, () -> {
+            handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+        });
+    }
+
+    @Test
+    public void handleRequestServedFromDescribeCache() {
+        final DescribeNatGatewaysResponse describeResponse = DescribeNatGatewaysResponse.builder()
+                .natGateways(buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString())).build();
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class)))
+                .thenReturn(describeResponse);
+
+        final DescribeCache describeCache = new DescribeCache(10, Duration.ofMinutes(1));
+        final ReadHandler handler = new ReadHandler();
+        handler.setDescribeCache(describeCache);
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+
+        final ProgressEvent<ResourceModel, CallbackContext> firstResponse = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel()).isEqualTo(firstResponse.getResourceModel());
+        assertThat(describeCache.getHits()).isEqualTo(1);
+        assertThat(describeCache.getMisses()).isEqualTo(1);
+        verify(Ec2Client, times(1)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
 }
@@ -0,0 +1,111 @@
+package software.amazon.ec2.natgateway;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TagDiffTest {
+    // Few keys and values, so that live, desired and managed tags overlap in every way
+    private static final int KEYS = 12;
+    private static final int VALUES = 3;
+
+    static LongStream seeds() {
+        return LongStream.range(0, 200);
+    }
+
+    @ParameterizedTest
+    @MethodSource("seeds")
+    public void applyingDiffConvergesLiveTags(final long seed) {
+        final Random random = new Random(seed);
+        final Map<String, String> liveTags = randomTags(random);
+        final Map<String, String> desiredTags = randomTags(random);
+        final Set<String> managedKeys = randomTags(random).keySet();
+
+        final TagDiff tagDiff = TagDiff.between(liveTags, desiredTags, managedKeys);
+        final Map<String, String> convergedTags = tagDiff.applyTo(liveTags);
+
+        // Every desired tag has its desired value
+        desiredTags.forEach((key, value) -> assertThat(convergedTags).containsEntry(key, value));
+        // A tag that is not desired is gone if it is managed and kept unchanged otherwise
+        liveTags.forEach((key, value) -> {
+            if (!desiredTags.containsKey(key)) {
+                if (managedKeys.contains(key)) {
+                    assertThat(convergedTags).doesNotContainKey(key);
+                } else {
+                    assertThat(convergedTags).containsEntry(key, value);
+                }
+            }
+        });
+        // Converged tags need no further change
+        assertThat(TagDiff.between(convergedTags, desiredTags, managedKeys).isEmpty()).isTrue();
+    }
+
+    @ParameterizedTest
+    @MethodSource("seeds")
+    public void diffIsMinimal(final long seed) {
+        final Random random = new Random(seed);
+        final Map<String, String> liveTags = randomTags(random);
+        final Map<String, String> desiredTags = randomTags(random);
+        final Set<String> managedKeys = randomTags(random).keySet();
+
+        final TagDiff tagDiff = TagDiff.between(liveTags, desiredTags, managedKeys);
+
+        // Nothing is created with the value it already has, and only live tags are removed, with their live value
+        tagDiff.getTagsToCreate().forEach((key, value) -> assertThat(liveTags.get(key)).isNotEqualTo(value));
+        tagDiff.getTagsToDelete().forEach((key, value) -> assertThat(liveTags).containsEntry(key, value));
+        // No tag is both created and removed, so the calls can run in any order
+        assertThat(Collections.disjoint(tagDiff.getTagsToCreate().keySet(), tagDiff.getTagsToDelete().keySet())).isTrue();
+        // Each tag to change is in exactly one call
+        final List<Map<String, String>> chunks = tagDiff.createChunks();
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk).isNotEmpty().hasSizeLessThanOrEqualTo(TagDiff.MAX_TAGS_PER_CALL));
+        assertThat(chunks.stream().mapToInt(Map::size).sum()).isEqualTo(tagDiff.getTagsToCreate().size());
+    }
+
+    @Test
+    public void identicalTagsNeedNoCall() {
+        final Map<String, String> tags = randomTags(new Random(0));
+
+        final TagDiff tagDiff = TagDiff.between(tags, new HashMap<>(tags), tags.keySet());
+
+        assertThat(tagDiff.isEmpty()).isTrue();
+        assertThat(tagDiff.createChunks()).isEmpty();
+        assertThat(tagDiff.deleteChunks()).isEmpty();
+    }
+
+    @Test
+    public void largeTagSetsAreChunked() {
+        final Map<String, String> desiredTags = new HashMap<>();
+        for (int i = 0; i < 2 * TagDiff.MAX_TAGS_PER_CALL + 1; i++) {
+            desiredTags.put("Key_" + i, "Value_" + i);
+        }
+
+        final TagDiff tagDiff = TagDiff.between(Collections.emptyMap(), desiredTags, Collections.emptySet());
+
+        assertThat(tagDiff.createChunks().stream().map(Map::size).collect(Collectors.toList()))
+                .containsExactly(TagDiff.MAX_TAGS_PER_CALL, TagDiff.MAX_TAGS_PER_CALL, 1);
+        assertThat(tagDiff.deleteChunks()).isEmpty();
+    }
+
+    private static Map<String, String> randomTags(final Random random) {
+        final Map<String, String> tags = new HashMap<>();
+        final Set<Integer> keys = new HashSet<>();
+        final int count = random.nextInt(KEYS + 1);
+        while (keys.size() < count) {
+            keys.add(random.nextInt(KEYS));
+        }
+        keys.forEach(key -> tags.put("Key_" + key, "Value_" + random.nextInt(VALUES)));
+        return tags;
+    }
+}
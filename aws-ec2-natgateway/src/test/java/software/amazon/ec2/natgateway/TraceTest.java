@@ -0,0 +1,171 @@
+package software.amazon.ec2.natgateway;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.ec2.model.Ec2Exception;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TraceTest extends AbstractTestBase {
+    private static final String OPERATION = "AWS-EC2-NatGateway::Create";
+
+    private final List<Span> exported = new ArrayList<>();
+
+    private AmazonWebServicesClientProxy proxy;
+
+    @BeforeEach
+    public void setup() {
+        proxy = new AmazonWebServicesClientProxy(logger, MOCK_CREDENTIALS, () -> Duration.ofSeconds(600).toMillis());
+    }
+
+    @Test
+    public void callsAreChildrenOfTheRunningStage() {
+        final CallbackContext callbackContext = new CallbackContext();
+        final Trace trace = Trace.resume(callbackContext, OPERATION);
+
+        trace.call("DescribeNatGateways", () -> "before any stage");
+        trace.startStage("AWS-EC2-NatGateway::Create");
+        trace.call("CreateNatGateway", () -> "created");
+        trace.startStage("AWS-EC2-NatGateway::Create::Stabilize");
+        trace.call("DescribeNatGateways", () -> "polled");
+        final Map<String, Span> spans = byName(trace.finish("IN_PROGRESS", false));
+
+        final Span invocation = spans.get(OPERATION + "::Invocation");
+        final Span create = spans.get("AWS-EC2-NatGateway::Create");
+        final Span stabilize = spans.get("AWS-EC2-NatGateway::Create::Stabilize");
+        assertThat(invocation.getParentId()).isEqualTo(callbackContext.getOperationSpanId());
+        assertThat(invocation.getTags()).containsEntry(Trace.INVOCATION_TAG, "1").containsEntry(Trace.STATUS_TAG, "IN_PROGRESS");
+        assertThat(create.getParentId()).isEqualTo(invocation.getId());
+        assertThat(stabilize.getParentId()).isEqualTo(invocation.getId());
+        assertThat(spans.get("CreateNatGateway").getParentId()).isEqualTo(create.getId());
+        assertThat(spans.get("DescribeNatGateways").getParentId()).isEqualTo(stabilize.getId());
+        assertThat(spans.get("CreateNatGateway").getKind()).isEqualTo(Span.Kind.CLIENT);
+        // The operation goes on, so its span is not finished yet
+        assertThat(spans).doesNotContainKey(OPERATION + "::Operation");
+    }
+
+    @Test
+    public void reinvocationJoinsTheTraceOfTheOperation() {
+        final CallbackContext first = new CallbackContext();
+        final List<Span> firstSpans = Trace.resume(first, OPERATION).finish("IN_PROGRESS", false);
+
+        final CallbackContext second = roundTrip(first);
+        final List<Span> secondSpans = Trace.resume(second, OPERATION).finish("SUCCESS", true);
+
+        assertThat(second.getTraceId()).hasSize(32).isEqualTo(first.getTraceId());
+        assertThat(second.getOperationSpanId()).hasSize(16).isEqualTo(first.getOperationSpanId());
+        assertThat(second.getInvocations()).isEqualTo(2);
+        assertThat(secondSpans).extracting(Span::getTraceId).containsOnly(first.getTraceId());
+        final Map<String, Span> spans = byName(secondSpans);
+        assertThat(spans.get(OPERATION + "::Invocation").getTags()).containsEntry(Trace.INVOCATION_TAG, "2");
+        assertThat(spans.get(OPERATION + "::Operation").getId()).isEqualTo(first.getOperationSpanId());
+        assertThat(spans.get(OPERATION + "::Operation").getParentId()).isNull();
+        assertThat(spans.get(OPERATION + "::Operation").getTimestamp())
+                .isLessThanOrEqualTo(byName(firstSpans).get(OPERATION + "::Invocation").getTimestamp());
+    }
+
+    @Test
+    public void failedCallIsTaggedWithTheErrorCode() {
+        final Trace trace = Trace.resume(new CallbackContext(), OPERATION);
+
+        assertThrows(Ec2Exception.class, () -> trace.call("DescribeNatGateways", () -> {
+            throw Ec2Exception.builder().awsErrorDetails(AwsErrorDetails.builder().errorCode("RequestLimitExceeded").build()).build();
+        }));
+
+        assertThat(byName(trace.finish("FAILED", true)).get("DescribeNatGateways").getTags())
+                .containsEntry(Trace.ERROR_TAG, "RequestLimitExceeded");
+    }
+
+    @Test
+    public void callsFromOtherThreadsAreKept() {
+        final Trace trace = Trace.resume(new CallbackContext(), OPERATION);
+        trace.startStage("AWS-EC2-NatGateway::Update::Tags");
+
+        final List<CompletableFuture<String>> calls = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            calls.add(CompletableFuture.supplyAsync(() -> trace.call("CreateTags", () -> "tagged")));
+        }
+        calls.forEach(CompletableFuture::join);
+
+        assertThat(trace.finish("SUCCESS", true)).filteredOn(span -> span.getName().equals("CreateTags")).hasSize(20);
+    }
+
+    @Test
+    public void nothingIsTracedWithoutExporter() {
+        final Ec2Simulator simulator = simulator(Ec2Simulator.Config.builder());
+        final CreateHandler handler = new CreateHandler();
+        handler.setStabilizationBudget(Duration.ZERO);
+        handler.setSpanExporter(SpanExporter.NONE);
+        final CallbackContext callbackContext = new CallbackContext();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequestWithRetries(
+                proxy, createResourceHandlerRequest(), callbackContext, MOCK_PROXY(proxy, simulator), logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(callbackContext.getTraceId()).isNull();
+        assertThat(callbackContext.getOperationSpanId()).isNull();
+        assertThat(callbackContext.getOperationStartTime()).isNull();
+        assertThat(callbackContext.getInvocations()).isZero();
+        assertThat(callbackContext.getTrace()).isNull();
+    }
+
+    @Test
+    public void createIsTracedAcrossInvocations() {
+        final Ec2Simulator simulator = simulator(Ec2Simulator.Config.builder()
+                .pendingTime(Ec2Simulator.Delay.fixed(Duration.ofSeconds(15))));
+        final CreateHandler handler = new CreateHandler();
+        handler.setStabilizationBudget(Duration.ZERO);
+        handler.setSpanExporter(exported::addAll);
+        final ResourceHandlerRequest<ResourceModel> request = createResourceHandlerRequest();
+
+        final AtomicInteger invocations = new AtomicInteger();
+        final ProgressEvent<ResourceModel, CallbackContext> response = invokeUntilDone(request, callbackContext -> {
+            invocations.incrementAndGet();
+            return handler.handleRequestWithRetries(proxy, request, callbackContext, MOCK_PROXY(proxy, simulator), logger);
+        });
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(invocations.get()).isGreaterThan(1);
+        assertThat(exported).extracting(Span::getTraceId).containsOnly(exported.get(0).getTraceId());
+        final Map<String, Span> byId = exported.stream().collect(Collectors.toMap(Span::getId, Function.identity()));
+        final List<Span> operations = exported.stream().filter(span -> span.getParentId() == null).collect(Collectors.toList());
+        assertThat(operations).extracting(Span::getName).containsExactly(OPERATION + "::Operation");
+        assertThat(exported).filteredOn(span -> span.getName().equals(OPERATION + "::Invocation"))
+                .hasSize(invocations.get())
+                .allSatisfy(span -> assertThat(span.getParentId()).isEqualTo(operations.get(0).getId()));
+        // Every span hangs off the operation span
+        for (final Span span : exported) {
+            Span ancestor = span;
+            while (ancestor.getParentId() != null) {
+                ancestor = byId.get(ancestor.getParentId());
+            }
+            assertThat(ancestor).isSameAs(operations.get(0));
+        }
+        final Span create = exported.stream().filter(span -> span.getName().equals("CreateNatGateway")).findFirst().get();
+        assertThat(byId.get(create.getParentId()).getName()).isEqualTo("AWS-EC2-NatGateway::Create");
+        assertThat(exported).filteredOn(span -> span.getName().equals("AWS-EC2-NatGateway::Create::Stabilize")).hasSize(invocations.get());
+        // The chained Read is answered from the last poll, without a stage or describe of its own
+        assertThat(exported).extracting(Span::getName).doesNotContain("AWS-EC2-NatGateway::Read");
+        assertThat(exported).filteredOn(span -> span.getName().equals("DescribeNatGateways"))
+                .allSatisfy(span -> assertThat(byId.get(span.getParentId()).getName()).startsWith("AWS-EC2-NatGateway::Create::"));
+    }
+
+    private static Map<String, Span> byName(final List<Span> spans) {
+        return spans.stream().collect(Collectors.toMap(Span::getName, Function.identity(), (first, second) -> second));
+    }
+}
@@ -6,6 +6,7 @@ import java.util.Collections;
 import java.util.List;
 
 import org.junit.jupiter.api.Assertions;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
@@ -37,10 +38,13 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -96,8 +100,8 @@ public class UpdateHandlerTest extends AbstractTestBase {
         final List<Tag> newTags = new ArrayList<>(TAGS);
         newTags.add(TAG_2);
 
-        NatGateway natGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString());
-        natGateway = natGateway.toBuilder().tags(newTags).build();
+        // The pre-update check finds the NAT Gateway with its previous tags
+        final NatGateway natGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString());
 
         final CreateTagsResponse createTagsResponse = CreateTagsResponse.builder().build();
         when(proxyClient.client().createTags(ArgumentMatchers.any(CreateTagsRequest.class))).thenReturn(createTagsResponse);
@@ -128,12 +132,46 @@ public class UpdateHandlerTest extends AbstractTestBase {
         assertThat(response.getResourceModel().getTags().equals(newTags));
     }
 
+    @Test
+    public void handleRequestUpdateDerivesModelFromPreUpdateSnapshot() {
+        final List<Tag> newTags = new ArrayList<>(TAGS);
+        newTags.add(TAG_2);
+
+        // EC2 is only described once, before the tags are changed
+        final NatGateway natGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString());
+
+        final CreateTagsResponse createTagsResponse = CreateTagsResponse.builder().build();
+        when(proxyClient.client().createTags(ArgumentMatchers.any(CreateTagsRequest.class))).thenReturn(createTagsResponse);
+
+        final DescribeNatGatewaysResponse describeNatGatewaysResponse = DescribeNatGatewaysResponse.builder().natGateways(natGateway).build();
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenReturn(describeNatGatewaysResponse);
+
+        buildResourceModels(TAGS, newTags);
+
+        final UpdateHandler handler = new UpdateHandler();
+
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .previousResourceState(oldModel).desiredResourceState(newModel).build();
+
+        request.setPreviousResourceTags(oldModel.getTags().stream().collect(Collectors.toMap(tag -> tag.getKey(), tag -> tag.getValue())));
+        request.setDesiredResourceTags(newModel.getTags().stream().collect(Collectors.toMap(tag -> tag.getKey(), tag -> tag.getValue())));
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel()).isEqualTo(request.getDesiredResourceState());
+        verify(Ec2Client, times(1)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+        verify(Ec2Client, times(1)).createTags(ArgumentMatchers.any(CreateTagsRequest.class));
+    }
+
     @Test
     public void handleRequestUpdateOnlyRemovesTags() {
         final List<Tag> newTags = new ArrayList<>();
 
-        NatGateway natGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString());
-        natGateway = natGateway.toBuilder().tags(newTags).build();
+        // The pre-update check finds the NAT Gateway with its previous tags
+        final NatGateway natGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString());
 
         final DeleteTagsResponse deleteTagsResponse = DeleteTagsResponse.builder().build();
         when(proxyClient.client().deleteTags(ArgumentMatchers.any(DeleteTagsRequest.class))).thenReturn(deleteTagsResponse);
@@ -169,8 +207,8 @@ public class UpdateHandlerTest extends AbstractTestBase {
         final List<Tag> newTags = new ArrayList<>();
         newTags.add(TAG_2);
 
-        NatGateway natGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString());
-        natGateway = natGateway.toBuilder().tags(newTags).build();
+        // The pre-update check finds the NAT Gateway with its previous tags
+        final NatGateway natGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString());
 
         final CreateTagsResponse createTagsResponse = CreateTagsResponse.builder().build();
         when(proxyClient.client().createTags(ArgumentMatchers.any(CreateTagsRequest.class))).thenReturn(createTagsResponse);
@@ -307,4 +345,131 @@ public class UpdateHandlerTest extends AbstractTestBase {
         assertThat(response.getErrorCode()).isNull();
         assertThat(response.getResourceModel().getTags().equals(null));
     }
+
+    @Test
+    public void handleRequestUpdateSkipsTagsAlreadyLive() {
+        final List<Tag> newTags = new ArrayList<>(TAGS);
+        newTags.add(TAG_2);
+
+        // The new tag is already on the NAT Gateway
+        final NatGateway natGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString())
+                .toBuilder().tags(newTags).build();
+        final DescribeNatGatewaysResponse describeNatGatewaysResponse = DescribeNatGatewaysResponse.builder().natGateways(natGateway).build();
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenReturn(describeNatGatewaysResponse);
+
+        buildResourceModels(TAGS, newTags);
+        final ResourceHandlerRequest<ResourceModel> request = buildTagUpdateRequest();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                new UpdateHandler().handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        verify(Ec2Client, times(1)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+        verify(Ec2Client, never()).createTags(ArgumentMatchers.any(CreateTagsRequest.class));
+    }
+
+    @Test
+    public void handleRequestUpdateRestoresDriftedTag() {
+        // The tag was changed outside of the stack, although the template did not change it
+        final Tag driftedTag = TAG_1.toBuilder().value("Drifted").build();
+        final NatGateway natGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString())
+                .toBuilder().tags(driftedTag).build();
+        final DescribeNatGatewaysResponse describeNatGatewaysResponse = DescribeNatGatewaysResponse.builder().natGateways(natGateway).build();
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenReturn(describeNatGatewaysResponse);
+        when(proxyClient.client().createTags(ArgumentMatchers.any(CreateTagsRequest.class))).thenReturn(CreateTagsResponse.builder().build());
+
+        buildResourceModels(TAGS, TAGS);
+        final ResourceHandlerRequest<ResourceModel> request = buildTagUpdateRequest();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                new UpdateHandler().handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        final ArgumentCaptor<CreateTagsRequest> createTagsRequest = ArgumentCaptor.forClass(CreateTagsRequest.class);
+        verify(Ec2Client, times(1)).createTags(createTagsRequest.capture());
+        assertThat(createTagsRequest.getValue().tags()).containsExactly(TAG_1);
+        verify(Ec2Client, times(1)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    @Test
+    public void handleRequestUpdateKeepsTagsNotManagedByStack() {
+        final Tag unmanagedTag = Tag.builder().key("Owner").value("network-team").build();
+        final NatGateway natGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString())
+                .toBuilder().tags(TAG_1, unmanagedTag).build();
+        final DescribeNatGatewaysResponse describeNatGatewaysResponse = DescribeNatGatewaysResponse.builder().natGateways(natGateway).build();
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenReturn(describeNatGatewaysResponse);
+        when(proxyClient.client().deleteTags(ArgumentMatchers.any(DeleteTagsRequest.class))).thenReturn(DeleteTagsResponse.builder().build());
+
+        buildResourceModels(TAGS, new ArrayList<>());
+        final ResourceHandlerRequest<ResourceModel> request = buildTagUpdateRequest();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                new UpdateHandler().handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        final ArgumentCaptor<DeleteTagsRequest> deleteTagsRequest = ArgumentCaptor.forClass(DeleteTagsRequest.class);
+        verify(Ec2Client, times(1)).deleteTags(deleteTagsRequest.capture());
+        assertThat(deleteTagsRequest.getValue().tags()).containsExactly(TAG_1);
+        verify(Ec2Client, times(1)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    @Test
+    public void handleRequestRollbackAfterImportOnlyRemovesSystemTags() {
+        final Map<String, String> systemTags = new HashMap<>();
+        systemTags.put(STACK_ID_TAG, "arn:aws:cloudformation:us-east-1:123456789012:stack/stack/0123");
+        final Tag systemTag = Tag.builder().key(STACK_ID_TAG).value(systemTags.get(STACK_ID_TAG)).build();
+        final NatGateway natGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString())
+                .toBuilder().tags(TAG_1, systemTag).build();
+        final DescribeNatGatewaysResponse describeNatGatewaysResponse = DescribeNatGatewaysResponse.builder().natGateways(natGateway).build();
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenReturn(describeNatGatewaysResponse);
+        when(proxyClient.client().deleteTags(ArgumentMatchers.any(DeleteTagsRequest.class))).thenReturn(DeleteTagsResponse.builder().build());
+
+        buildResourceModels(TAGS, TAGS);
+        final ResourceHandlerRequest<ResourceModel> request = buildTagUpdateRequest();
+        request.setPreviousSystemTags(systemTags);
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                new UpdateHandler().handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        // The resource tags the template still declares are kept
+        final ArgumentCaptor<DeleteTagsRequest> deleteTagsRequest = ArgumentCaptor.forClass(DeleteTagsRequest.class);
+        verify(Ec2Client, times(1)).deleteTags(deleteTagsRequest.capture());
+        assertThat(deleteTagsRequest.getValue().tags()).containsExactly(systemTag);
+        verify(Ec2Client, times(1)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    @Test
+    public void handleRequestUpdateChunksLargeTagSets() {
+        final List<Tag> newTags = new ArrayList<>();
+        for (int i = 0; i < 2 * TagDiff.MAX_TAGS_PER_CALL + 1; i++) {
+            newTags.add(Tag.builder().key("Key_" + i).value("Value_" + i).build());
+        }
+        final NatGateway natGateway = buildNatGatewayModel(NAT_ID, CONN_PUBLIC, State.AVAILABLE.toString());
+        final DescribeNatGatewaysResponse describeNatGatewaysResponse = DescribeNatGatewaysResponse.builder().natGateways(natGateway).build();
+        when(proxyClient.client().describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class))).thenReturn(describeNatGatewaysResponse);
+        when(proxyClient.client().createTags(ArgumentMatchers.any(CreateTagsRequest.class))).thenReturn(CreateTagsResponse.builder().build());
+
+        buildResourceModels(TAGS, newTags);
+        final ResourceHandlerRequest<ResourceModel> request = buildTagUpdateRequest();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                new UpdateHandler().handleRequest(proxy, request, new CallbackContext(), proxyClient, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        // Key_1 already has its value, the 100 others are created in two calls
+        final ArgumentCaptor<CreateTagsRequest> createTagsRequest = ArgumentCaptor.forClass(CreateTagsRequest.class);
+        verify(Ec2Client, times(2)).createTags(createTagsRequest.capture());
+        assertThat(createTagsRequest.getAllValues().stream().mapToInt(createRequest -> createRequest.tags().size()).sum())
+                .isEqualTo(2 * TagDiff.MAX_TAGS_PER_CALL);
+        verify(Ec2Client, times(1)).describeNatGateways(ArgumentMatchers.any(DescribeNatGatewaysRequest.class));
+    }
+
+    private ResourceHandlerRequest<ResourceModel> buildTagUpdateRequest() {
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .previousResourceState(oldModel).desiredResourceState(newModel).build();
+        request.setPreviousResourceTags(oldModel.getTags().stream().collect(Collectors.toMap(tag -> tag.getKey(), tag -> tag.getValue())));
+        request.setDesiredResourceTags(newModel.getTags().stream().collect(Collectors.toMap(tag -> tag.getKey(), tag -> tag.getValue())));
+        return request;
+    }
 }
@@ -0,0 +1,80 @@
+package software.amazon.ec2.natgateway;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ZipkinFileSpanExporterTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String TRACE_ID = "0123456789abcdef0123456789abcdef";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void clientSpanIsWrittenInZipkinV2Format() throws Exception {
+        final JsonNode json = MAPPER.readTree(ZipkinFileSpanExporter.toZipkinJson(Span.builder()
+                .traceId(TRACE_ID)
+                .id("00000000000000aa")
+                .parentId("00000000000000bb")
+                .name("DescribeNatGateways")
+                .kind(Span.Kind.CLIENT)
+                .timestamp(1_600_000_000_000_000L)
+                .duration(1500)
+                .tags(Collections.singletonMap(Trace.ERROR_TAG, "RequestLimitExceeded"))
+                .build()));
+
+        assertThat(json.get("traceId").asText()).isEqualTo(TRACE_ID);
+        assertThat(json.get("id").asText()).isEqualTo("00000000000000aa");
+        assertThat(json.get("parentId").asText()).isEqualTo("00000000000000bb");
+        assertThat(json.get("name").asText()).isEqualTo("DescribeNatGateways");
+        assertThat(json.get("kind").asText()).isEqualTo("CLIENT");
+        assertThat(json.get("timestamp").asLong()).isEqualTo(1_600_000_000_000_000L);
+        assertThat(json.get("duration").asLong()).isEqualTo(1500);
+        assertThat(json.get("localEndpoint").get("serviceName").asText()).isEqualTo(ZipkinFileSpanExporter.SERVICE_NAME);
+        assertThat(json.get("remoteEndpoint").get("serviceName").asText()).isEqualTo(ZipkinFileSpanExporter.REMOTE_SERVICE_NAME);
+        assertThat(json.get("tags").get("error").asText()).isEqualTo("RequestLimitExceeded");
+    }
+
+    @Test
+    public void rootSpanHasNoParentNorKind() throws Exception {
+        final JsonNode json = MAPPER.readTree(ZipkinFileSpanExporter.toZipkinJson(Span.builder()
+                .traceId(TRACE_ID)
+                .id("00000000000000aa")
+                .name("AWS-EC2-NatGateway::Create")
+                .kind(Span.Kind.INTERNAL)
+                .build()));
+
+        assertThat(json.has("parentId")).isFalse();
+        assertThat(json.has("kind")).isFalse();
+        assertThat(json.has("remoteEndpoint")).isFalse();
+        assertThat(json.has("tags")).isFalse();
+    }
+
+    @Test
+    public void spansOfEveryInvocationAreAppended() throws Exception {
+        final Path file = directory.resolve("spans.ndjson");
+        final ZipkinFileSpanExporter exporter = new ZipkinFileSpanExporter(file);
+
+        exporter.export(Arrays.asList(span("0000000000000001"), span("0000000000000002")));
+        exporter.export(Collections.singletonList(span("0000000000000003")));
+
+        final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertThat(lines).hasSize(3);
+        assertThat(MAPPER.readTree(lines.get(2)).get("id").asText()).isEqualTo("0000000000000003");
+    }
+
+    private static Span span(final String id) {
+        return Span.builder().traceId(TRACE_ID).id(id).name("AWS-EC2-NatGateway::Read").kind(Span.Kind.INTERNAL).build();
+    }
+}